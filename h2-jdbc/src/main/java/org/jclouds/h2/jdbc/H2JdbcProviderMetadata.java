@@ -16,8 +16,12 @@
  */
 package org.jclouds.h2.jdbc;
 
+import java.util.Properties;
+
 import org.jclouds.h2.jdbc.config.H2JdbcBlobStoreContextModule;
+import org.jclouds.h2.jdbc.reference.H2JdbcConstants;
 import org.jclouds.jdbc.JdbcApiMetadata;
+import org.jclouds.jdbc.reference.JdbcConstants;
 import org.jclouds.providers.ProviderMetadata;
 import org.jclouds.providers.internal.BaseProviderMetadata;
 
@@ -43,6 +47,22 @@ public class H2JdbcProviderMetadata extends BaseProviderMetadata {
       super(builder);
    }
 
+   public static Properties defaultProperties() {
+      Properties properties = JdbcApiMetadata.defaultProperties();
+      properties.setProperty(H2JdbcConstants.PROPERTY_URL, H2JdbcConstants.DEFAULT_URL);
+      properties.setProperty(H2JdbcConstants.PROPERTY_USER, H2JdbcConstants.DEFAULT_USER);
+      properties.setProperty(H2JdbcConstants.PROPERTY_PASSWORD, H2JdbcConstants.DEFAULT_PASSWORD);
+      properties.setProperty(H2JdbcConstants.PROPERTY_POOL_SIZE, String.valueOf(H2JdbcConstants.DEFAULT_POOL_SIZE));
+      properties.setProperty(H2JdbcConstants.PROPERTY_POOL_TIMEOUT, String.valueOf(H2JdbcConstants.DEFAULT_POOL_TIMEOUT));
+      properties.setProperty(H2JdbcConstants.PROPERTY_STATEMENT_CACHE_SIZE,
+            String.valueOf(H2JdbcConstants.DEFAULT_STATEMENT_CACHE_SIZE));
+      properties.setProperty(H2JdbcConstants.PROPERTY_CACHE_SIZE, String.valueOf(H2JdbcConstants.DEFAULT_CACHE_SIZE));
+      properties.setProperty(H2JdbcConstants.PROPERTY_MV_STORE, String.valueOf(H2JdbcConstants.DEFAULT_MV_STORE));
+      properties.setProperty(H2JdbcConstants.PROPERTY_FILE_LOCK, H2JdbcConstants.DEFAULT_FILE_LOCK);
+      properties.setProperty(JdbcConstants.PROPERTY_SCHEMA_LOCATION, H2JdbcConstants.SCHEMA_LOCATION);
+      return properties;
+   }
+
    public static class Builder extends BaseProviderMetadata.Builder {
       protected Builder() {
          id("h2-jdbc")
@@ -50,7 +70,8 @@ public class H2JdbcProviderMetadata extends BaseProviderMetadata {
                .apiMetadata(new JdbcApiMetadata()
                      .toBuilder()
                      .defaultModule(H2JdbcBlobStoreContextModule.class)
-                     .build());
+                     .build())
+               .defaultProperties(H2JdbcProviderMetadata.defaultProperties());
       }
 
       @Override
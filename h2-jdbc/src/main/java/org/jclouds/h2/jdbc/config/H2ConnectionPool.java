@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.config;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.jclouds.Constants;
+import org.jclouds.h2.jdbc.reference.H2JdbcConstants;
+import org.jclouds.jdbc.metrics.JdbcMetrics;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.lifecycle.Closer;
+
+/**
+ * Bounded pool of H2 connections, used by the persistence unit instead of the connections
+ * Hibernate opens by itself. It records how long threads wait for a connection, so the pool
+ * can be sized from the metrics exposed by {@link #getWaitCount()} and related methods. When the
+ * JDBC metrics are enabled, the statements prepared on its connections are counted as the queries
+ * of the running operation.
+ */
+@Singleton
+public class H2ConnectionPool implements DataSource {
+
+   private final JdbcConnectionPool pool;
+   private final int maxConnections;
+   private final AtomicLong waitCount = new AtomicLong();
+   private final AtomicLong waitNanos = new AtomicLong();
+   private final AtomicLong maxWaitNanos = new AtomicLong();
+   private final AtomicLong failureCount = new AtomicLong();
+   private final JdbcMetrics metrics;
+
+   @Inject
+   H2ConnectionPool(@Named(H2JdbcConstants.PROPERTY_URL) String url,
+         @Named(H2JdbcConstants.PROPERTY_USER) String user,
+         @Named(H2JdbcConstants.PROPERTY_PASSWORD) String password,
+         @Named(H2JdbcConstants.PROPERTY_POOL_SIZE) int poolSize,
+         @Named(H2JdbcConstants.PROPERTY_POOL_TIMEOUT) int poolTimeout,
+         @Named(H2JdbcConstants.PROPERTY_STATEMENT_CACHE_SIZE) int statementCacheSize,
+         @Named(H2JdbcConstants.PROPERTY_CACHE_SIZE) int cacheSize,
+         @Named(H2JdbcConstants.PROPERTY_MV_STORE) boolean mvStore,
+         @Named(H2JdbcConstants.PROPERTY_FILE_LOCK) String fileLock,
+         @Named(Constants.PROPERTY_USER_THREADS) int userThreads,
+         @Named(JdbcConstants.PROPERTY_CHUNK_WRITER_THREADS) int chunkWriterThreads,
+         JdbcMetrics metrics, Closer closer) {
+      checkArgument(poolSize >= 0, "pool size must not be negative");
+      this.metrics = metrics;
+      this.maxConnections = poolSize > 0 ? poolSize : Math.max(userThreads, 1) + chunkWriterThreads;
+      this.pool = JdbcConnectionPool.create(url
+            + ";QUERY_CACHE_SIZE=" + statementCacheSize
+            + ";CACHE_SIZE=" + cacheSize
+            + ";MV_STORE=" + String.valueOf(mvStore).toUpperCase()
+            + ";FILE_LOCK=" + fileLock, user, password);
+      pool.setMaxConnections(maxConnections);
+      pool.setLoginTimeout(poolTimeout);
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() {
+            pool.dispose();
+         }
+      });
+   }
+
+   @Override
+   public Connection getConnection() throws SQLException {
+      long start = System.nanoTime();
+      try {
+         Connection connection = pool.getConnection();
+         return metrics.isEnabled() ? countQueries(connection) : connection;
+      } catch (SQLException e) {
+         failureCount.incrementAndGet();
+         throw e;
+      } finally {
+         recordWait(System.nanoTime() - start);
+      }
+   }
+
+   @Override
+   public Connection getConnection(String username, String password) throws SQLException {
+      throw new SQLFeatureNotSupportedException("Connections are opened with the configured credentials");
+   }
+
+   private Connection countQueries(final Connection connection) {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+            new InvocationHandler() {
+               @Override
+               public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                  if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                     metrics.queryPrepared();
+                  }
+                  try {
+                     return method.invoke(connection, args);
+                  } catch (InvocationTargetException e) {
+                     throw e.getCause();
+                  }
+               }
+            });
+   }
+
+   private void recordWait(long nanos) {
+      waitCount.incrementAndGet();
+      waitNanos.addAndGet(nanos);
+      long max = maxWaitNanos.get();
+      while (nanos > max && !maxWaitNanos.compareAndSet(max, nanos)) {
+         max = maxWaitNanos.get();
+      }
+   }
+
+   public int getMaxConnections() {
+      return maxConnections;
+   }
+
+   public int getActiveConnections() {
+      return pool.getActiveConnections();
+   }
+
+   /**
+    * Returns the number of connection requests, including the failed ones.
+    */
+   public long getWaitCount() {
+      return waitCount.get();
+   }
+
+   /**
+    * Returns the time spent waiting for connections, summed over all requests.
+    */
+   public long getTotalWaitTime(TimeUnit unit) {
+      return unit.convert(waitNanos.get(), TimeUnit.NANOSECONDS);
+   }
+
+   public long getMaxWaitTime(TimeUnit unit) {
+      return unit.convert(maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * Returns the number of requests that failed, most likely because no connection was released
+    * before the pool timeout.
+    */
+   public long getFailureCount() {
+      return failureCount.get();
+   }
+
+   @Override
+   public PrintWriter getLogWriter() {
+      return pool.getLogWriter();
+   }
+
+   @Override
+   public void setLogWriter(PrintWriter out) {
+      pool.setLogWriter(out);
+   }
+
+   @Override
+   public void setLoginTimeout(int seconds) {
+      pool.setLoginTimeout(seconds);
+   }
+
+   @Override
+   public int getLoginTimeout() {
+      return pool.getLoginTimeout();
+   }
+
+   @Override
+   public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+      throw new SQLFeatureNotSupportedException();
+   }
+
+   @Override
+   public <T> T unwrap(Class<T> iface) throws SQLException {
+      if (iface.isInstance(this)) {
+         return iface.cast(this);
+      }
+      return pool.unwrap(iface);
+   }
+
+   @Override
+   public boolean isWrapperFor(Class<?> iface) throws SQLException {
+      return iface.isInstance(this) || pool.isWrapperFor(iface);
+   }
+
+}
@@ -16,23 +16,40 @@
  */
 package org.jclouds.h2.jdbc.config;
 
-import java.util.Properties;
+import java.util.Map;
 
+import javax.inject.Inject;
+
+import org.hibernate.cfg.AvailableSettings;
 import org.jclouds.jdbc.config.JdbcBlobStoreContextModule;
 
+import com.google.common.collect.Maps;
 import com.google.inject.persist.jpa.JpaPersistModule;
 
 public class H2JdbcBlobStoreContextModule extends JdbcBlobStoreContextModule {
 
-   private static final String DEFAULT_FILE = "./jclouds-db";
-
    protected void configure() {
       super.configure();
 
-      Properties properties = new Properties();
-      properties.setProperty("hibernate.connection.url", "jdbc:h2:" + DEFAULT_FILE);
+      // The pool is configured from the context properties, so it can only be handed to the
+      // persistence unit once the injector exists, before the persistence service is started
+      Map<String, Object> properties = Maps.newHashMap();
+      requestInjection(new PersistenceDataSource(properties));
 
       install(new JpaPersistModule("jclouds-h2").properties(properties));
    }
 
+   private static final class PersistenceDataSource {
+      private final Map<String, Object> properties;
+
+      private PersistenceDataSource(Map<String, Object> properties) {
+         this.properties = properties;
+      }
+
+      @Inject
+      void setDataSource(H2ConnectionPool dataSource) {
+         properties.put(AvailableSettings.DATASOURCE, dataSource);
+      }
+   }
+
 }
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.reference;
+
+/**
+ * Common constants used in h2-jdbc provider
+ */
+public final class H2JdbcConstants {
+
+    /**
+     * JDBC URL of the database, without settings. The settings below are appended to it.
+     */
+    public static final String PROPERTY_URL = "jclouds.h2.url";
+
+    public static final String DEFAULT_URL = "jdbc:h2:./jclouds-db";
+
+    public static final String PROPERTY_USER = "jclouds.h2.user";
+
+    public static final String DEFAULT_USER = "sa";
+
+    public static final String PROPERTY_PASSWORD = "jclouds.h2.password";
+
+    public static final String DEFAULT_PASSWORD = "";
+
+    /**
+     * Maximum number of pooled connections. A value of 0 sizes the pool for
+     * {@code jclouds.user-threads} plus the chunk writer threads.
+     */
+    public static final String PROPERTY_POOL_SIZE = "jclouds.h2.pool-size";
+
+    public static final int DEFAULT_POOL_SIZE = 0;
+
+    /**
+     * Number of seconds a thread waits for a pooled connection before failing.
+     */
+    public static final String PROPERTY_POOL_TIMEOUT = "jclouds.h2.pool-timeout";
+
+    public static final int DEFAULT_POOL_TIMEOUT = 30;
+
+    /**
+     * Number of parsed statements cached by each connection (H2 {@code QUERY_CACHE_SIZE}).
+     */
+    public static final String PROPERTY_STATEMENT_CACHE_SIZE = "jclouds.h2.statement-cache-size";
+
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+    /**
+     * Size of the H2 page cache in KB (H2 {@code CACHE_SIZE}).
+     */
+    public static final String PROPERTY_CACHE_SIZE = "jclouds.h2.cache-size";
+
+    public static final int DEFAULT_CACHE_SIZE = 16 * 1024;
+
+    /**
+     * Whether the database uses the MVStore storage engine (H2 {@code MV_STORE}).
+     */
+    public static final String PROPERTY_MV_STORE = "jclouds.h2.mv-store";
+
+    public static final boolean DEFAULT_MV_STORE = true;
+
+    /**
+     * File locking method of the database: FILE, SOCKET, FS or NO (H2 {@code FILE_LOCK}).
+     */
+    public static final String PROPERTY_FILE_LOCK = "jclouds.h2.file-lock";
+
+    public static final String DEFAULT_FILE_LOCK = "FILE";
+
+    /**
+     * Class path directory of the H2 schema scripts, see
+     * {@link org.jclouds.jdbc.reference.JdbcConstants#PROPERTY_SCHEMA_LOCATION}.
+     */
+    public static final String SCHEMA_LOCATION = "META-INF/jclouds-jdbc/h2";
+
+    private H2JdbcConstants() {
+        throw new AssertionError("Intentionally Unimplemented");
+    }
+}
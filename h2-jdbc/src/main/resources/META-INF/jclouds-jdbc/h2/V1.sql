@@ -0,0 +1,72 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one or more
+-- contributor license agreements.  See the NOTICE file distributed with
+-- this work for additional information regarding copyright ownership.
+-- The ASF licenses this file to You under the Apache License, Version 2.0
+-- (the "License"); you may not use this file except in compliance with
+-- the License.  You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+
+-- Version 1: the layout previously generated by hibernate.hbm2ddl.auto, which databases created by
+-- earlier releases already have.
+CREATE SEQUENCE IF NOT EXISTS hibernate_sequence START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE IF NOT EXISTS ContainerEntity (
+   id BIGINT NOT NULL PRIMARY KEY,
+   containerAccess INTEGER,
+   creationDate TIMESTAMP,
+   name VARCHAR(255) UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS PayloadEntity (
+   id BIGINT NOT NULL PRIMARY KEY,
+   cacheControl VARCHAR(255),
+   contentDisposition VARCHAR(255),
+   contentEncoding VARCHAR(255),
+   contentLanguage VARCHAR(255),
+   contentLength BIGINT,
+   contentMD5 BINARY(255),
+   contentType VARCHAR(255),
+   expires TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS PayloadEntity_chunks (
+   PayloadEntity_id BIGINT NOT NULL REFERENCES PayloadEntity (id),
+   chunks BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS ChunkEntity (
+   id BIGINT NOT NULL PRIMARY KEY,
+   data BLOB,
+   size INTEGER NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS BlobEntity (
+   id BIGINT NOT NULL REFERENCES ContainerEntity (id),
+   key VARCHAR(255) NOT NULL,
+   blobAccess INTEGER,
+   creationDate TIMESTAMP,
+   directory BOOLEAN NOT NULL,
+   etag VARCHAR(255),
+   lastModified TIMESTAMP,
+   size BIGINT,
+   tier INTEGER,
+   payload_id BIGINT REFERENCES PayloadEntity (id),
+   PRIMARY KEY (id, key)
+);
+
+CREATE TABLE IF NOT EXISTS BlobEntity_userMetadata (
+   BlobEntity_id BIGINT NOT NULL,
+   BlobEntity_key VARCHAR(255) NOT NULL,
+   userMetadata VARCHAR(255),
+   userMetadata_KEY VARCHAR(255) NOT NULL,
+   PRIMARY KEY (BlobEntity_id, BlobEntity_key, userMetadata_KEY),
+   FOREIGN KEY (BlobEntity_id, BlobEntity_key) REFERENCES BlobEntity (id, key)
+);
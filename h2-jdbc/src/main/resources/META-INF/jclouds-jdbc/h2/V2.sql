@@ -0,0 +1,32 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one or more
+-- contributor license agreements.  See the NOTICE file distributed with
+-- this work for additional information regarding copyright ownership.
+-- The ASF licenses this file to You under the Apache License, Version 2.0
+-- (the "License"); you may not use this file except in compliance with
+-- the License.  You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+
+-- Version 2: ordered chunk lists, chunk hashes and the indexes used by listings and deletes.
+
+-- Chunk lists were unordered bags, number their rows in insertion order
+ALTER TABLE PayloadEntity_chunks ADD COLUMN IF NOT EXISTS seq INTEGER;
+UPDATE PayloadEntity_chunks c SET seq = (SELECT COUNT(*) FROM PayloadEntity_chunks o
+   WHERE o.PayloadEntity_id = c.PayloadEntity_id AND o._ROWID_ < c._ROWID_);
+ALTER TABLE PayloadEntity_chunks ALTER COLUMN seq SET NOT NULL;
+ALTER TABLE PayloadEntity_chunks ADD PRIMARY KEY (PayloadEntity_id, seq);
+-- Reference checks of the chunk deletes
+CREATE INDEX IF NOT EXISTS PayloadEntity_chunks_chunks ON PayloadEntity_chunks (chunks);
+
+ALTER TABLE ChunkEntity ADD COLUMN IF NOT EXISTS hash VARCHAR(64);
+CREATE INDEX IF NOT EXISTS ChunkEntity_hash ON ChunkEntity (hash);
+
+-- Blobs referencing a payload, key lookups and prefix range scans use the (id, key) primary key
+CREATE INDEX IF NOT EXISTS BlobEntity_payload ON BlobEntity (payload_id);
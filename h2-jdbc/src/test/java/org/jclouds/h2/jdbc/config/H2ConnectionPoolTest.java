@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.Constants;
+import org.jclouds.h2.jdbc.reference.H2JdbcConstants;
+import org.jclouds.jdbc.metrics.JdbcMetrics;
+import org.jclouds.jdbc.metrics.JdbcMetricsListener;
+import org.jclouds.jdbc.metrics.NoopJdbcMetricsListener;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.lifecycle.Closer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.name.Names;
+
+@Test(groups = "unit", testName = "H2ConnectionPoolTest", singleThreaded = true)
+public class H2ConnectionPoolTest {
+
+   private Injector injector;
+
+   @AfterMethod(alwaysRun = true)
+   public void tearDown() throws IOException {
+      if (injector != null) {
+         injector.getInstance(Closer.class).close();
+         injector = null;
+      }
+   }
+
+   public void testDefaultPoolSize() throws IOException {
+      assertThat(createPool(0, 30, 8, 4, false).getMaxConnections()).isEqualTo(12);
+      assertThat(createPool(0, 30, 0, 0, false).getMaxConnections()).isEqualTo(1);
+      assertThat(createPool(3, 30, 8, 4, false).getMaxConnections()).isEqualTo(3);
+   }
+
+   public void testWaitForConnection() throws Exception {
+      final H2ConnectionPool pool = createPool(1, 30, 1, 0, false);
+      Connection connection = pool.getConnection();
+      assertThat(pool.getActiveConnections()).isEqualTo(1);
+      assertThat(pool.getWaitCount()).isEqualTo(1);
+
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         Future<Long> waiting = executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws SQLException {
+               long start = System.nanoTime();
+               Connection connection = pool.getConnection();
+               connection.close();
+               return System.nanoTime() - start;
+            }
+         });
+         Thread.sleep(500);
+         assertThat(waiting.isDone()).isFalse();
+         connection.close();
+         long waited = waiting.get(10, TimeUnit.SECONDS);
+
+         assertThat(waited).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+         assertThat(pool.getWaitCount()).isEqualTo(2);
+         assertThat(pool.getMaxWaitTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(500);
+         assertThat(pool.getTotalWaitTime(TimeUnit.NANOSECONDS))
+               .isGreaterThanOrEqualTo(pool.getMaxWaitTime(TimeUnit.NANOSECONDS));
+         assertThat(pool.getFailureCount()).isZero();
+         assertThat(pool.getActiveConnections()).isZero();
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   public void testWaitTimeout() throws Exception {
+      H2ConnectionPool pool = createPool(1, 1, 1, 0, false);
+      Connection connection = pool.getConnection();
+      try {
+         pool.getConnection();
+         fail("The pool should be exhausted");
+      } catch (SQLException e) {
+         assertThat(pool.getFailureCount()).isEqualTo(1);
+         assertThat(pool.getWaitCount()).isEqualTo(2);
+         assertThat(pool.getMaxWaitTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(500);
+      } finally {
+         connection.close();
+      }
+   }
+
+   public void testCountQueries() throws Exception {
+      H2ConnectionPool pool = createPool(1, 30, 1, 0, true);
+      JdbcMetrics metrics = injector.getInstance(JdbcMetrics.class);
+      long queries = metrics.queries();
+      Connection connection = pool.getConnection();
+      try {
+         connection.prepareStatement("SELECT 1").close();
+         connection.createStatement().close();
+         connection.getAutoCommit();
+      } finally {
+         connection.close();
+      }
+      assertThat(metrics.queries()).isEqualTo(queries + 2);
+   }
+
+   public void testQueriesNotCountedWithoutMetrics() throws Exception {
+      H2ConnectionPool pool = createPool(1, 30, 1, 0, false);
+      JdbcMetrics metrics = injector.getInstance(JdbcMetrics.class);
+      long queries = metrics.queries();
+      Connection connection = pool.getConnection();
+      try {
+         connection.prepareStatement("SELECT 1").close();
+      } finally {
+         connection.close();
+      }
+      assertThat(metrics.queries()).isEqualTo(queries);
+   }
+
+   private H2ConnectionPool createPool(int poolSize, int poolTimeout, int userThreads, int chunkWriterThreads,
+         final boolean measured) throws IOException {
+      final Properties properties = new Properties();
+      properties.setProperty(H2JdbcConstants.PROPERTY_URL, "jdbc:h2:mem:" + UUID.randomUUID());
+      properties.setProperty(H2JdbcConstants.PROPERTY_USER, H2JdbcConstants.DEFAULT_USER);
+      properties.setProperty(H2JdbcConstants.PROPERTY_PASSWORD, H2JdbcConstants.DEFAULT_PASSWORD);
+      properties.setProperty(H2JdbcConstants.PROPERTY_POOL_SIZE, String.valueOf(poolSize));
+      properties.setProperty(H2JdbcConstants.PROPERTY_POOL_TIMEOUT, String.valueOf(poolTimeout));
+      properties.setProperty(H2JdbcConstants.PROPERTY_STATEMENT_CACHE_SIZE,
+            String.valueOf(H2JdbcConstants.DEFAULT_STATEMENT_CACHE_SIZE));
+      properties.setProperty(H2JdbcConstants.PROPERTY_CACHE_SIZE, String.valueOf(H2JdbcConstants.DEFAULT_CACHE_SIZE));
+      properties.setProperty(H2JdbcConstants.PROPERTY_MV_STORE, String.valueOf(H2JdbcConstants.DEFAULT_MV_STORE));
+      properties.setProperty(H2JdbcConstants.PROPERTY_FILE_LOCK, "NO");
+      properties.setProperty(Constants.PROPERTY_USER_THREADS, String.valueOf(userThreads));
+      properties.setProperty(JdbcConstants.PROPERTY_CHUNK_WRITER_THREADS, String.valueOf(chunkWriterThreads));
+      if (injector != null) {
+         injector.getInstance(Closer.class).close();
+      }
+      injector = Guice.createInjector(new AbstractModule() {
+         @Override
+         protected void configure() {
+            Names.bindProperties(binder(), properties);
+            bind(JdbcMetricsListener.class).toInstance(measured ? new IgnoringListener()
+                  : new NoopJdbcMetricsListener());
+         }
+      });
+      return injector.getInstance(H2ConnectionPool.class);
+   }
+
+   /**
+    * Enables the metrics, which are disabled when the no-op listener is bound.
+    */
+   private static final class IgnoringListener implements JdbcMetricsListener {
+      @Override
+      public void operationCompleted(String operation, long nanos, long queries, boolean failed) {
+      }
+
+      @Override
+      public void chunksWritten(int chunks, long bytes) {
+      }
+
+      @Override
+      public void chunksRead(int chunks, long bytes) {
+      }
+   }
+
+}
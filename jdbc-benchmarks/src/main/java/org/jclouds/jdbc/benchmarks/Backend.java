@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmarks;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Properties;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.h2.jdbc.reference.H2JdbcConstants;
+import org.jclouds.logging.log4j.config.Log4JLoggingModule;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Module;
+import com.google.inject.persist.jpa.JpaPersistModule;
+
+/**
+ * Embedded databases the benchmarks run on. Each context gets its own database files in the
+ * given directory.
+ */
+public enum Backend {
+
+   /**
+    * The h2-jdbc provider, with its connection pool and versioned schema.
+    */
+   H2 {
+      @Override
+      BlobStoreContext newContext(File directory) {
+         Properties overrides = new Properties();
+         overrides.setProperty(H2JdbcConstants.PROPERTY_URL, "jdbc:h2:" + new File(directory, "h2").getAbsolutePath());
+         return ContextBuilder.newBuilder("h2-jdbc")
+               .overrides(overrides)
+               .modules(ImmutableSet.<Module> of(new Log4JLoggingModule()))
+               .build(BlobStoreContext.class);
+      }
+   },
+
+   /**
+    * The jdbc api on HSQLDB, with the schema generated by Hibernate.
+    */
+   HSQLDB {
+      @Override
+      BlobStoreContext newContext(File directory) {
+         // The persistence unit shipped with h2-jdbc lists the entities, only its connection
+         // settings are replaced
+         Map<String, String> properties = ImmutableMap.<String, String> builder()
+               .put("hibernate.dialect", "org.hibernate.dialect.HSQLDialect")
+               .put("hibernate.connection.driver_class", "org.hsqldb.jdbcDriver")
+               // Hsqldb must use multiversion concurrency control for concurrent workloads
+               .put("hibernate.connection.url", "jdbc:hsqldb:file:" + new File(directory, "hsqldb").getAbsolutePath()
+                     + ";shutdown=true;sql.enforce_strict_size=true;hsqldb.tx=mvcc")
+               .put("hibernate.connection.user", "sa")
+               .put("hibernate.hbm2ddl.auto", "create")
+               .build();
+         return ContextBuilder.newBuilder("jdbc")
+               .modules(ImmutableSet.<Module> of(new JpaPersistModule("jclouds-h2").properties(properties),
+                     new Log4JLoggingModule()))
+               .build(BlobStoreContext.class);
+      }
+   };
+
+   abstract BlobStoreContext newContext(File directory);
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.util.Closeables2;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Files;
+
+/**
+ * Base state of the benchmarks. Every trial runs on a new embedded database of the selected
+ * backend, holding a single container.
+ */
+public abstract class BaseJdbcBenchmark {
+
+   protected static final String CONTAINER = "benchmark";
+
+   @Param({ "H2", "HSQLDB" })
+   public Backend backend;
+
+   protected BlobStoreContext context;
+   protected BlobStore blobStore;
+
+   private File directory;
+
+   @Setup(Level.Trial)
+   public void openContext() throws Exception {
+      directory = Files.createTempDir();
+      context = backend.newContext(directory);
+      blobStore = context.getBlobStore();
+      blobStore.createContainerInLocation(null, CONTAINER);
+      populate();
+   }
+
+   /**
+    * Stores the blobs the benchmark needs for the whole trial. Called once the container exists.
+    */
+   protected void populate() throws Exception {
+   }
+
+   @TearDown(Level.Trial)
+   public void closeContext() {
+      Closeables2.closeQuietly(context);
+      deleteRecursively(directory);
+   }
+
+   /**
+    * Stores the same content under each key, using as many threads as there are processors so
+    * large data sets can be set up in reasonable time.
+    */
+   protected void putBlobs(List<String> keys, final ByteSource content) throws InterruptedException,
+         ExecutionException {
+      ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      try {
+         List<Future<Void>> futures = Lists.newArrayList();
+         for (final List<String> batch : Lists.partition(keys, 1000)) {
+            futures.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() throws IOException {
+                  for (String key : batch) {
+                     blobStore.putBlob(CONTAINER, blobStore.blobBuilder(key)
+                           .payload(content)
+                           .contentLength(content.size())
+                           .build());
+                  }
+                  return null;
+               }
+            }));
+         }
+         for (Future<Void> future : futures) {
+            future.get();
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   /**
+    * Returns random content, generated with a fixed seed so runs store the same data.
+    */
+   protected static ByteSource randomContent(int size) {
+      byte[] data = new byte[size];
+      new Random(size).nextBytes(data);
+      return ByteSource.wrap(data);
+   }
+
+   private static void deleteRecursively(File file) {
+      File[] children = file.listFiles();
+      if (children != null) {
+         for (File child : children) {
+            deleteRecursively(child);
+         }
+      }
+      file.delete();
+   }
+
+}
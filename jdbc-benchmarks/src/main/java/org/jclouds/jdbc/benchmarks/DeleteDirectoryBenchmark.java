@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Time taken to recursively delete a directory of small blobs nested in subdirectories. The
+ * directory is filled again before every iteration, next to blobs that must be kept.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DeleteDirectoryBenchmark extends BaseJdbcBenchmark {
+
+   private static final String DIRECTORY = "deleted";
+   private static final int SUBDIRECTORIES = 10;
+
+   @Param({ "1000", "10000", "100000" })
+   public int blobs;
+
+   @Override
+   protected void populate() throws Exception {
+      putBlobs(names("kept"), randomContent(16));
+   }
+
+   @Setup(Level.Iteration)
+   public void fillDirectory() throws Exception {
+      putBlobs(names(DIRECTORY), randomContent(16));
+   }
+
+   @Benchmark
+   public void deleteDirectory() {
+      blobStore.deleteDirectory(CONTAINER, DIRECTORY);
+   }
+
+   private List<String> names(String directory) {
+      List<String> names = Lists.newArrayListWithCapacity(blobs);
+      for (int i = 0; i < blobs; i++) {
+         names.add(String.format("%s/sub%02d/blob%07d", directory, i % SUBDIRECTORIES, i));
+      }
+      return names;
+   }
+
+}
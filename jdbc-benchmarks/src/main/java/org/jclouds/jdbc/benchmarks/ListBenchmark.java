@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmarks;
+
+import static org.jclouds.blobstore.options.ListContainerOptions.Builder.afterMarker;
+import static org.jclouds.blobstore.options.ListContainerOptions.Builder.inDirectory;
+import static org.jclouds.blobstore.options.ListContainerOptions.Builder.recursive;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Latency of listing and counting the blobs of a container holding a growing number of small
+ * blobs, spread over {@value #DIRECTORIES} directories. Setting up the largest containers takes
+ * several minutes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ListBenchmark extends BaseJdbcBenchmark {
+
+   static final int DIRECTORIES = 100;
+
+   @Param({ "1000", "10000", "100000", "1000000" })
+   public int keys;
+
+   @Override
+   protected void populate() throws Exception {
+      List<String> names = Lists.newArrayListWithCapacity(keys);
+      for (int i = 0; i < keys; i++) {
+         names.add(String.format("dir%03d/blob%07d", i % DIRECTORIES, i));
+      }
+      putBlobs(names, randomContent(16));
+   }
+
+   @Benchmark
+   public PageSet<? extends StorageMetadata> listFirstPage() {
+      return blobStore.list(CONTAINER, recursive());
+   }
+
+   @Benchmark
+   public PageSet<? extends StorageMetadata> listDirectoryFirstPage() {
+      return blobStore.list(CONTAINER, inDirectory("dir042").recursive());
+   }
+
+   @Benchmark
+   public void listAll(Blackhole blackhole) {
+      String marker = null;
+      do {
+         PageSet<? extends StorageMetadata> page = blobStore.list(CONTAINER,
+               marker == null ? recursive() : afterMarker(marker).recursive());
+         blackhole.consume(page);
+         marker = page.getNextMarker();
+      } while (marker != null);
+   }
+
+   @Benchmark
+   public long countBlobs() {
+      return blobStore.countBlobs(CONTAINER);
+   }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmarks;
+
+import static org.jclouds.blobstore.options.ListContainerOptions.Builder.maxResults;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Readers, writers and listers sharing a blob store at the same time. Readers read random blobs
+ * of a fixed set while writers overwrite random blobs of another set, so reads never race with
+ * the release of the content they read, but the results include the contention on the tables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MixedWorkloadBenchmark extends BaseJdbcBenchmark {
+
+   private static final int KEYS = 1000;
+
+   @Param({ "4096", "1048576" })
+   public int size;
+
+   private ByteSource content;
+   private List<String> readKeys;
+   private List<String> writeKeys;
+
+   @Override
+   protected void populate() throws Exception {
+      content = randomContent(size);
+      readKeys = Lists.newArrayListWithCapacity(KEYS);
+      writeKeys = Lists.newArrayListWithCapacity(KEYS);
+      for (int i = 0; i < KEYS; i++) {
+         readKeys.add(String.format("read%04d", i));
+         writeKeys.add(String.format("write%04d", i));
+      }
+      putBlobs(readKeys, content);
+   }
+
+   /**
+    * Random key picked by each thread, kept apart so threads do not contend on a shared random.
+    */
+   @State(Scope.Thread)
+   public static class ThreadKeys {
+      private final Random random = new Random();
+
+      String next(List<String> keys) {
+         return keys.get(random.nextInt(keys.size()));
+      }
+   }
+
+   @Benchmark
+   @Group("mixed")
+   @GroupThreads(4)
+   public long get(ThreadKeys threadKeys) throws IOException {
+      Blob blob = blobStore.getBlob(CONTAINER, threadKeys.next(readKeys));
+      InputStream in = blob.getPayload().openStream();
+      try {
+         return ByteStreams.copy(in, ByteStreams.nullOutputStream());
+      } finally {
+         in.close();
+      }
+   }
+
+   @Benchmark
+   @Group("mixed")
+   @GroupThreads(2)
+   public String put(ThreadKeys threadKeys) {
+      return blobStore.putBlob(CONTAINER, blobStore.blobBuilder(threadKeys.next(writeKeys))
+            .payload(content)
+            .contentLength(size)
+            .build());
+   }
+
+   @Benchmark
+   @Group("mixed")
+   @GroupThreads(1)
+   public PageSet<? extends StorageMetadata> list() {
+      return blobStore.list(CONTAINER, maxResults(100).recursive());
+   }
+
+}
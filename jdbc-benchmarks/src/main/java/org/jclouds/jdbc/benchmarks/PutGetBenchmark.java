@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.blobstore.domain.Blob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Throughput and latency of storing and reading a whole blob. The stored blob is overwritten by
+ * every put, so the database does not grow during the trial. Multiply the throughput by the size
+ * to get the bandwidth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PutGetBenchmark extends BaseJdbcBenchmark {
+
+   private static final String PUT_KEY = "put";
+   private static final String GET_KEY = "get";
+
+   @Param({ "1024", "65536", "1048576", "16777216", "268435456" })
+   public int size;
+
+   private ByteSource content;
+
+   @Override
+   protected void populate() {
+      content = randomContent(size);
+      blobStore.putBlob(CONTAINER, blobStore.blobBuilder(GET_KEY).payload(content).contentLength(size).build());
+   }
+
+   @Benchmark
+   public String put() {
+      return blobStore.putBlob(CONTAINER, blobStore.blobBuilder(PUT_KEY).payload(content).contentLength(size).build());
+   }
+
+   @Benchmark
+   public long get() throws IOException {
+      Blob blob = blobStore.getBlob(CONTAINER, GET_KEY);
+      InputStream in = blob.getPayload().openStream();
+      try {
+         return ByteStreams.copy(in, ByteStreams.nullOutputStream());
+      } finally {
+         in.close();
+      }
+   }
+
+}
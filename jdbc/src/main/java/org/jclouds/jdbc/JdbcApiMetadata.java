@@ -23,8 +23,10 @@ import org.jclouds.apis.ApiMetadata;
 import org.jclouds.apis.internal.BaseApiMetadata;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.jdbc.config.JdbcBlobStoreContextModule;
+import org.jclouds.jdbc.reference.JdbcConstants;
 
 import java.net.URI;
+import java.util.Properties;
 
 /**
  * Implementation of {@link ApiMetadata} for jclouds Jdbc BlobStore
@@ -45,6 +47,26 @@ public class JdbcApiMetadata extends BaseApiMetadata {
       super(builder);
    }
 
+   public static Properties defaultProperties() {
+      Properties properties = BaseApiMetadata.defaultProperties();
+      properties.setProperty(JdbcConstants.PROPERTY_INLINE_THRESHOLD, String.valueOf(JdbcConstants.DEFAULT_INLINE_THRESHOLD));
+      properties.setProperty(JdbcConstants.PROPERTY_CHUNK_SIZE, String.valueOf(JdbcConstants.DEFAULT_CHUNK_SIZE));
+      properties.setProperty(JdbcConstants.PROPERTY_MAX_CHUNK_SIZE, String.valueOf(JdbcConstants.DEFAULT_MAX_CHUNK_SIZE));
+      properties.setProperty(JdbcConstants.PROPERTY_CHUNK_CODEC, JdbcConstants.DEFAULT_CHUNK_CODEC);
+      properties.setProperty(JdbcConstants.PROPERTY_CHUNK_READ_AHEAD, String.valueOf(JdbcConstants.DEFAULT_CHUNK_READ_AHEAD));
+      properties.setProperty(JdbcConstants.PROPERTY_CHUNK_FLUSH_INTERVAL, String.valueOf(JdbcConstants.DEFAULT_CHUNK_FLUSH_INTERVAL));
+      properties.setProperty(JdbcConstants.PROPERTY_CHUNK_WRITER_THREADS, String.valueOf(JdbcConstants.DEFAULT_CHUNK_WRITER_THREADS));
+      properties.setProperty(JdbcConstants.PROPERTY_DELETE_BATCH_SIZE, String.valueOf(JdbcConstants.DEFAULT_DELETE_BATCH_SIZE));
+      properties.setProperty(JdbcConstants.PROPERTY_CHUNK_DEDUP, String.valueOf(JdbcConstants.DEFAULT_CHUNK_DEDUP));
+      properties.setProperty(JdbcConstants.PROPERTY_CONTAINER_CACHE_SIZE, String.valueOf(JdbcConstants.DEFAULT_CONTAINER_CACHE_SIZE));
+      properties.setProperty(JdbcConstants.PROPERTY_CONTAINER_CACHE_EXPIRY, String.valueOf(JdbcConstants.DEFAULT_CONTAINER_CACHE_EXPIRY));
+      properties.setProperty(JdbcConstants.PROPERTY_CHUNK_CACHE_SIZE, String.valueOf(JdbcConstants.DEFAULT_CHUNK_CACHE_SIZE));
+      properties.setProperty(JdbcConstants.PROPERTY_CHUNK_CACHE_STORAGE, JdbcConstants.DEFAULT_CHUNK_CACHE_STORAGE);
+      properties.setProperty(JdbcConstants.PROPERTY_SLOW_OPERATION_THRESHOLD,
+            String.valueOf(JdbcConstants.DEFAULT_SLOW_OPERATION_THRESHOLD));
+      return properties;
+   }
+
    public static class Builder extends BaseApiMetadata.Builder<Builder> {
 
       protected Builder() {
@@ -58,6 +80,7 @@ public class JdbcApiMetadata extends BaseApiMetadata {
          .version("1")
          .documentation(URI.create("http://www.jclouds.org/documentation/userguide/blobstore-guide"))
          .view(BlobStoreContext.class)
+         .defaultProperties(JdbcApiMetadata.defaultProperties())
          .defaultModules(ImmutableSet.<Class<? extends Module>>of(JdbcBlobStoreContextModule.class));
       }
 
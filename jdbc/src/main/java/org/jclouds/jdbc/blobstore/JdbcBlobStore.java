@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.blobstore;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jclouds.blobstore.KeyNotFoundException;
+import org.jclouds.blobstore.LocalStorageStrategy;
+import org.jclouds.blobstore.config.LocalBlobStore;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.CopyOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.strategy.internal.MultipartUploadSlicingAlgorithm;
+import org.jclouds.blobstore.util.ForwardingBlobStore;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.io.Payload;
+import org.jclouds.jdbc.strategy.JdbcStorageStrategy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Blob store on top of {@link LocalBlobStore} that answers listings with paged queries, instead of
+ * loading every blob in the container, and reads blob metadata without loading the payload. Listings
+ * grouped by subdirectory or delimiter skip the blobs under each common prefix instead of reading
+ * them. Copies share the stored content of their source instead of streaming it.
+ * Multipart uploads keep their parts in hidden blobs named like {@link LocalBlobStore} does, but
+ * are completed by joining the chunks of the parts instead of copying them.
+ */
+@Singleton
+public class JdbcBlobStore extends ForwardingBlobStore {
+
+   private static final int DEFAULT_MAX_RESULTS = 1000;
+
+   private final JdbcStorageStrategy storageStrategy;
+
+   @Inject
+   JdbcBlobStore(LocalBlobStore localBlobStore, LocalStorageStrategy storageStrategy) {
+      super(localBlobStore);
+      this.storageStrategy = (JdbcStorageStrategy) storageStrategy;
+   }
+
+   @Override
+   public BlobMetadata blobMetadata(String container, String name) {
+      return storageStrategy.getBlobMetadata(container, name);
+   }
+
+   @Override
+   public String copyBlob(String fromContainer, String fromName, String toContainer, String toName,
+         CopyOptions options) {
+      BlobMetadata source = blobMetadata(fromContainer, fromName);
+      if (source == null) {
+         throw new KeyNotFoundException(fromContainer, fromName, "while copying");
+      }
+      String eTag = unquote(source.getETag());
+      if (eTag != null) {
+         if (options.ifMatch() != null && !unquote(options.ifMatch()).equals(eTag)) {
+            throw preconditionFailed();
+         }
+         if (options.ifNoneMatch() != null && unquote(options.ifNoneMatch()).equals(eTag)) {
+            throw preconditionFailed();
+         }
+      }
+      Date lastModified = source.getLastModified();
+      if (lastModified != null) {
+         if (options.ifModifiedSince() != null && lastModified.compareTo(options.ifModifiedSince()) <= 0) {
+            throw preconditionFailed();
+         }
+         if (options.ifUnmodifiedSince() != null && lastModified.compareTo(options.ifUnmodifiedSince()) > 0) {
+            throw preconditionFailed();
+         }
+      }
+      return storageStrategy.copyBlob(fromContainer, fromName, toContainer, toName,
+            options.contentMetadata().orNull(), options.userMetadata().orNull());
+   }
+
+   @Override
+   public MultipartPart uploadMultipartPart(MultipartUpload mpu, int partNumber, Payload payload) {
+      try {
+         return storageStrategy.putMultipartPart(mpu.containerName(), uploadPrefix(mpu) + partNumber, partNumber,
+               payload);
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      }
+   }
+
+   @Override
+   public String completeMultipartUpload(MultipartUpload mpu, List<MultipartPart> parts) {
+      String uploadPrefix = uploadPrefix(mpu);
+      List<String> partKeys = new ArrayList<String>(parts.size());
+      for (MultipartPart part : parts) {
+         partKeys.add(uploadPrefix + part.partNumber());
+      }
+      String eTag = storageStrategy.completeMultipartUpload(mpu.containerName(), mpu.blobName(), uploadPrefix,
+            partKeys, mpu.blobMetadata(), mpu.putOptions().getBlobAccess());
+      if (eTag == null) {
+         // Parts stored with another chunk layout have to be copied
+         return super.completeMultipartUpload(mpu, parts);
+      }
+      return eTag;
+   }
+
+   @Override
+   public void abortMultipartUpload(MultipartUpload mpu) {
+      storageStrategy.abortMultipartUpload(mpu.containerName(), uploadPrefix(mpu));
+   }
+
+   @Override
+   public PageSet<? extends StorageMetadata> list(String container) {
+      return list(container, ListContainerOptions.NONE);
+   }
+
+   @Override
+   public PageSet<? extends StorageMetadata> list(String container, ListContainerOptions options) {
+      String dir = Strings.emptyToNull(options.getDir());
+      String delimiter = Strings.emptyToNull(options.getDelimiter());
+      if ((dir != null && options.getPrefix() != null)
+            || (delimiter != null && (dir != null || options.isRecursive()))) {
+         // Rejected by LocalBlobStore
+         return delegate().list(container, options);
+      }
+      if (delimiter == null && !options.isRecursive()) {
+         delimiter = storageStrategy.getSeparator();
+      }
+      Integer maxResults = options.getMaxResults();
+      return storageStrategy.listBlobs(container, dir, options.getPrefix(), delimiter, options.getMarker(),
+            maxResults == null ? DEFAULT_MAX_RESULTS : maxResults, options.isDetailed());
+   }
+
+   /**
+    * Returns the key prefix of the blobs {@link LocalBlobStore} creates for a multipart upload.
+    */
+   private static String uploadPrefix(MultipartUpload mpu) {
+      return MultipartUploadSlicingAlgorithm.MULTIPART_PREFIX + mpu.id() + "-" + mpu.blobName() + "-";
+   }
+
+   private static String unquote(String eTag) {
+      if (eTag != null && eTag.length() >= 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+         return eTag.substring(1, eTag.length() - 1);
+      }
+      return eTag;
+   }
+
+   /**
+    * Returns the exception {@link LocalBlobStore} reports when a copy precondition fails.
+    */
+   private static HttpResponseException preconditionFailed() {
+      return new HttpResponseException(new HttpCommand(HttpRequest.builder()
+            .method("GET")
+            .endpoint("http://stub")
+            .build()), HttpResponse.builder().statusCode(412).build());
+   }
+
+}
@@ -26,7 +26,7 @@ import com.google.inject.persist.PersistService;
 public class JPAInitializer {
 
    @Inject
-   private JPAInitializer(final PersistService persistService, Closer closer) {
+   private JPAInitializer(final PersistService persistService, SchemaManager schemaManager, Closer closer) {
       persistService.start();
       closer.addToClose(new Closeable() {
          @Override
@@ -34,6 +34,7 @@ public class JPAInitializer {
             persistService.stop();
          }
       });
+      schemaManager.migrate();
    }
 
 }
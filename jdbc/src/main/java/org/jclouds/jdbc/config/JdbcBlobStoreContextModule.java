@@ -17,14 +17,17 @@
 package org.jclouds.jdbc.config;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.matcher.Matchers;
 import org.jclouds.blobstore.BlobRequestSigner;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.LocalBlobRequestSigner;
 import org.jclouds.blobstore.LocalStorageStrategy;
 import org.jclouds.blobstore.attr.ConsistencyModel;
 import org.jclouds.blobstore.config.BlobStoreObjectModule;
-import org.jclouds.blobstore.config.LocalBlobStore;
 import org.jclouds.blobstore.util.BlobUtils;
+import org.jclouds.jdbc.blobstore.JdbcBlobStore;
+import org.jclouds.jdbc.metrics.JdbcMetricsInterceptor;
+import org.jclouds.jdbc.service.JdbcService;
 import org.jclouds.jdbc.strategy.JdbcStorageStrategy;
 import org.jclouds.jdbc.util.JdbcBlobUtils;
 
@@ -33,12 +36,25 @@ public class JdbcBlobStoreContextModule extends AbstractModule {
    @Override
    protected void configure() {
       bind(JPAInitializer.class).asEagerSingleton();
-      bind(BlobStore.class).to(LocalBlobStore.class);
+      bind(BlobStore.class).to(JdbcBlobStore.class);
       install(new BlobStoreObjectModule());
       bind(ConsistencyModel.class).toInstance(ConsistencyModel.STRICT);
       bind(LocalStorageStrategy.class).to(JdbcStorageStrategy.class);
       bind(BlobUtils.class).to(JdbcBlobUtils.class);
       bind(BlobRequestSigner.class).to(LocalBlobRequestSigner.class);
+      bindMetrics();
+   }
+
+   /**
+    * Measures the operations of the JDBC service. The measures are sent to the bound
+    * {@link org.jclouds.jdbc.metrics.JdbcMetricsListener}, and are skipped when there is none and
+    * the slow operation log is disabled.
+    */
+   protected void bindMetrics() {
+      JdbcMetricsInterceptor interceptor = new JdbcMetricsInterceptor();
+      requestInjection(interceptor);
+      bindInterceptor(Matchers.subclassesOf(JdbcService.class), JdbcMetricsInterceptor.publicMethodsOf(JdbcService.class),
+            interceptor);
    }
 
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.config;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.logging.Logger;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.persist.UnitOfWork;
+
+/**
+ * Keeps the database schema at the version of the scripts found in the schema location.
+ * <p>
+ * The location holds an {@code init.sql} script creating the {@value #VERSION_TABLE} table if it
+ * does not exist, and one {@code V<n>.sql} script per schema version. Each script is applied in its
+ * own transaction together with the row recording its version, so an interrupted migration resumes
+ * from the last applied version.
+ */
+@Singleton
+public class SchemaManager {
+
+   /**
+    * Name of the table recording the applied schema versions.
+    */
+   public static final String VERSION_TABLE = "SchemaVersion";
+
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_SCHEMA_LOCATION)
+   private String location = null;
+
+   private final Provider<EntityManager> entityManager;
+   private final UnitOfWork unitOfWork;
+
+   @Inject
+   SchemaManager(Provider<EntityManager> entityManager, UnitOfWork unitOfWork) {
+      this.entityManager = entityManager;
+      this.unitOfWork = unitOfWork;
+   }
+
+   /**
+    * Applies the scripts newer than the version recorded in the database.
+    *
+    * @return the schema version of the database, 0 if the schema is not managed
+    */
+   public int migrate() {
+      if (location == null) {
+         return 0;
+      }
+      URL init = script("init.sql");
+      if (init == null) {
+         throw new IllegalStateException("No init.sql script found in schema location " + location);
+      }
+      unitOfWork.begin();
+      try {
+         apply(init, null);
+         int version = currentVersion();
+         URL script;
+         while ((script = script("V" + (version + 1) + ".sql")) != null) {
+            apply(script, ++version);
+            logger.info("Migrated the schema to version %d", version);
+         }
+         return version;
+      } finally {
+         unitOfWork.end();
+      }
+   }
+
+   private int currentVersion() {
+      Number version = (Number) entityManager.get().createNativeQuery("SELECT MAX(version) FROM " + VERSION_TABLE)
+            .getSingleResult();
+      return version == null ? 0 : version.intValue();
+   }
+
+   private void apply(URL script, Integer version) {
+      List<String> statements = statements(script);
+      EntityManager em = entityManager.get();
+      EntityTransaction transaction = em.getTransaction();
+      transaction.begin();
+      try {
+         for (String statement : statements) {
+            em.createNativeQuery(statement).executeUpdate();
+         }
+         if (version != null) {
+            em.createNativeQuery("INSERT INTO " + VERSION_TABLE + " (version, applied) VALUES (?1, CURRENT_TIMESTAMP)")
+                  .setParameter(1, version)
+                  .executeUpdate();
+         }
+         transaction.commit();
+      } finally {
+         if (transaction.isActive()) {
+            transaction.rollback();
+         }
+      }
+   }
+
+   private URL script(String name) {
+      return SchemaManager.class.getClassLoader().getResource(location + "/" + name);
+   }
+
+   /**
+    * Splits a script on semicolons, after dropping the comment lines.
+    */
+   private static List<String> statements(URL script) {
+      StringBuilder sql = new StringBuilder();
+      try {
+         for (String line : Resources.readLines(script, UTF_8)) {
+            if (!line.trim().startsWith("--")) {
+               sql.append(line).append('\n');
+            }
+         }
+      } catch (IOException e) {
+         throw new IllegalStateException("Could not read schema script " + script, e);
+      }
+      return Lists.newArrayList(Splitter.on(';').trimResults().omitEmptyStrings().split(sql));
+   }
+
+}
@@ -18,6 +18,7 @@ package org.jclouds.jdbc.conversion;
 
 import com.google.common.base.Function;
 import com.google.common.hash.HashCode;
+import com.google.common.io.ByteSource;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import org.jclouds.blobstore.domain.Blob;
@@ -25,18 +26,29 @@ import org.jclouds.blobstore.domain.BlobBuilder;
 import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.PayloadEntity;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.repository.ChunkCache;
 import org.jclouds.jdbc.service.JdbcService;
-import org.jclouds.jdbc.util.JdbcInputStream;
+import org.jclouds.jdbc.util.ChunkCodec;
+import org.jclouds.jdbc.util.JdbcByteSource;
+
+import javax.inject.Named;
 
 public class BlobEntityToBlob implements Function<BlobEntity, Blob> {
 
    private final Provider<BlobBuilder> blobBuilders;
    private final JdbcService jdbcService;
+   private final ChunkCache chunkCache;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CHUNK_READ_AHEAD)
+   private int chunkReadAhead = JdbcConstants.DEFAULT_CHUNK_READ_AHEAD;
 
    @Inject
-   BlobEntityToBlob(Provider<BlobBuilder> blobBuilders, JdbcService jdbcService) {
+   BlobEntityToBlob(Provider<BlobBuilder> blobBuilders, JdbcService jdbcService, ChunkCache chunkCache) {
       this.blobBuilders = blobBuilders;
       this.jdbcService = jdbcService;
+      this.chunkCache = chunkCache;
    }
 
    @Override
@@ -53,8 +65,15 @@ public class BlobEntityToBlob implements Function<BlobEntity, Blob> {
       if (blobEntity.isDirectory()) {
          builder.type(StorageType.FOLDER);
       }
+      else if (payload.getInlineData() != null) {
+         builder.payload(ByteSource.wrap(payload.getInlineData()));
+      }
       else {
-         builder.payload(new JdbcInputStream(jdbcService, blobEntity.getPayload().getChunks()));
+         // Payloads stored before the chunk size and codec were recorded use the defaults
+         int chunkSize = payload.getChunkSize() == null ? JdbcConstants.DEFAULT_CHUNK_SIZE : payload.getChunkSize();
+         ChunkCodec codec = payload.getCodec() == null ? ChunkCodec.NONE : payload.getCodec();
+         builder.payload(new JdbcByteSource(jdbcService, payload.getId(), payload.getContentLength(), chunkSize, codec,
+               chunkReadAhead, chunkCache));
       }
 
       Blob blob = builder.build();
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.conversion;
+
+import com.google.common.base.Function;
+import com.google.common.hash.HashCode;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.domain.internal.MutableBlobMetadataImpl;
+import org.jclouds.io.MutableContentMetadata;
+import org.jclouds.jdbc.repository.BlobSummary;
+
+public class BlobSummaryToBlobMetadata implements Function<BlobSummary, MutableBlobMetadata> {
+
+   @Override
+   public MutableBlobMetadata apply(BlobSummary summary) {
+      if (summary == null) {
+         return null;
+      }
+
+      MutableBlobMetadata metadata = new MutableBlobMetadataImpl();
+      metadata.setName(summary.getKey());
+      if (summary.isCommonPrefix()) {
+         metadata.setType(StorageType.RELATIVE_PATH);
+         return metadata;
+      }
+      metadata.setType(summary.isDirectory() ? StorageType.FOLDER : StorageType.BLOB);
+      metadata.setCreationDate(summary.getCreationDate());
+      metadata.setLastModified(summary.getLastModified());
+      metadata.setSize(summary.getSize());
+      metadata.setETag(summary.getEtag());
+      metadata.setTier(summary.getTier());
+      metadata.setUserMetadata(summary.getUserMetadata());
+
+      MutableContentMetadata contentMetadata = metadata.getContentMetadata();
+      contentMetadata.setCacheControl(summary.getCacheControl());
+      contentMetadata.setContentType(summary.getContentType());
+      contentMetadata.setContentDisposition(summary.getContentDisposition());
+      contentMetadata.setContentEncoding(summary.getContentEncoding());
+      contentMetadata.setContentLanguage(summary.getContentLanguage());
+      contentMetadata.setContentLength(summary.getContentLength());
+      contentMetadata.setContentMD5(summary.getContentMD5() == null ? null : HashCode.fromBytes(summary.getContentMD5()));
+      contentMetadata.setExpires(summary.getExpires());
+      return metadata;
+   }
+
+}
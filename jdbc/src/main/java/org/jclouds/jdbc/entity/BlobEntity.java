@@ -20,11 +20,13 @@ import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.blobstore.domain.Tier;
 
 import javax.persistence.CascadeType;
+import javax.persistence.CollectionTable;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.IdClass;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToOne;
@@ -34,10 +36,16 @@ import java.util.Date;
 import java.util.Map;
 
 @Entity
-@Table
+// The key lookups and prefix range scans of a container use the (id, key) primary key
+@Table(indexes = @Index(name = "BlobEntity_payload", columnList = "payload_id"))
 @IdClass(value = BlobEntityPK.class)
 public class BlobEntity {
 
+   /**
+    * Name of the table holding the user metadata, used by native bulk statements.
+    */
+   public static final String USER_METADATA_TABLE = "BlobEntity_userMetadata";
+
    @Id
    @ManyToOne
    @JoinColumn(name = "id")
@@ -47,9 +55,11 @@ public class BlobEntity {
    private String key;
 
    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+   @JoinColumn(name = "payload_id")
    private PayloadEntity payload;
 
    @ElementCollection(fetch = FetchType.EAGER)
+   @CollectionTable(name = USER_METADATA_TABLE)
    public Map<String, String> userMetadata;
 
    private Date creationDate;
@@ -18,30 +18,49 @@ package org.jclouds.jdbc.entity;
 
 import org.jclouds.jdbc.reference.JdbcConstants;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Lob;
 import javax.persistence.Table;
 
 @Entity
-@Table
+@Table(indexes = @Index(name = "ChunkEntity_hash", columnList = "hash"))
+@Cacheable(false)
 public class ChunkEntity {
 
+   /**
+    * Name of the chunk table, used by native bulk statements.
+    */
+   public static final String TABLE = "ChunkEntity";
+
    @Id
    @GeneratedValue
    private Long id;
 
    @Lob
-   @Column(length = JdbcConstants.DEFAULT_CHUNK_SIZE)
+   @Column(length = JdbcConstants.MAX_CHUNK_SIZE)
    private byte[] data;
 
+   /**
+    * Size of the decoded content, the data may be encoded by the codec of the payloads.
+    */
    private int size;
 
+   @Column(length = 64)
+   private String hash;
+
    public ChunkEntity(byte[] data, int size) {
+      this(data, size, null);
+   }
+
+   public ChunkEntity(byte[] data, int size, String hash) {
       this.data = data;
       this.size = size;
+      this.hash = hash;
    }
 
    public ChunkEntity() {
@@ -70,4 +89,12 @@ public class ChunkEntity {
    public void setSize(int size) {
       this.size = size;
    }
+
+   public String getHash() {
+      return hash;
+   }
+
+   public void setHash(String hash) {
+      this.hash = hash;
+   }
 }
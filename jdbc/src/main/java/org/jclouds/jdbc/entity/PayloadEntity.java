@@ -17,25 +17,54 @@
 package org.jclouds.jdbc.entity;
 
 import com.google.common.collect.ImmutableList;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.util.ChunkCodec;
 
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.OrderColumn;
 import java.util.Date;
 import java.util.List;
 
 @Entity
 public class PayloadEntity {
 
+   /**
+    * Names of the table holding the chunk ids of each payload, used by native bulk statements.
+    */
+   public static final String CHUNKS_TABLE = "PayloadEntity_chunks";
+   public static final String CHUNKS_JOIN_COLUMN = "PayloadEntity_id";
+   public static final String CHUNKS_COLUMN = "chunks";
+   public static final String CHUNKS_ORDER_COLUMN = "seq";
+
    @Id
    @GeneratedValue
    private Long id;
 
-   @ElementCollection(fetch = FetchType.EAGER)
+   @ElementCollection(fetch = FetchType.LAZY)
+   @CollectionTable(name = CHUNKS_TABLE, joinColumns = @JoinColumn(name = CHUNKS_JOIN_COLUMN),
+         indexes = @Index(name = "PayloadEntity_chunks_chunks", columnList = CHUNKS_COLUMN))
+   @Column(name = CHUNKS_COLUMN)
+   @OrderColumn(name = CHUNKS_ORDER_COLUMN)
    private List<Long> chunks;
 
+   private Integer chunkSize;
+
+   @Enumerated(EnumType.STRING)
+   @Column(length = 16)
+   private ChunkCodec codec;
+
+   @Column(length = JdbcConstants.MAX_INLINE_SIZE)
+   private byte[] inlineData;
    private String cacheControl;
    private String contentType;
    private Long contentLength;
@@ -77,6 +106,41 @@ public class PayloadEntity {
       this.chunks = chunks;
    }
 
+   /**
+    * Size of every chunk but the last one, null for inline payloads and for payloads stored with
+    * {@link JdbcConstants#DEFAULT_CHUNK_SIZE} before it was recorded.
+    */
+   public Integer getChunkSize() {
+      return chunkSize;
+   }
+
+   public void setChunkSize(Integer chunkSize) {
+      this.chunkSize = chunkSize;
+   }
+
+   /**
+    * Encoding of the chunks, null for inline payloads and for payloads stored without encoding
+    * before it was recorded.
+    */
+   public ChunkCodec getCodec() {
+      return codec;
+   }
+
+   public void setCodec(ChunkCodec codec) {
+      this.codec = codec;
+   }
+
+   /**
+    * Content of a payload stored inline instead of in chunks, null for chunked payloads.
+    */
+   public byte[] getInlineData() {
+      return inlineData;
+   }
+
+   public void setInlineData(byte[] inlineData) {
+      this.inlineData = inlineData;
+   }
+
    public String getCacheControl() {
       return cacheControl;
    }
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Iterables;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point of the measures taken inside the JDBC blob store. It forwards them to the bound
+ * {@link JdbcMetricsListener} and logs the operations slower than
+ * {@link JdbcConstants#PROPERTY_SLOW_OPERATION_THRESHOLD}. Callers check {@link #isEnabled()}
+ * first, so nothing is measured when there is no listener and no threshold.
+ */
+@Singleton
+public class JdbcMetrics {
+
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_SLOW_OPERATION_THRESHOLD)
+   private long slowOperationThreshold = JdbcConstants.DEFAULT_SLOW_OPERATION_THRESHOLD;
+
+   private final JdbcMetricsListener listener;
+   private final boolean listening;
+
+   // Statements prepared by each thread, sampled at the start and the end of the operations
+   private final ThreadLocal<long[]> queries = new ThreadLocal<long[]>() {
+      @Override
+      protected long[] initialValue() {
+         return new long[1];
+      }
+   };
+
+   @Inject
+   JdbcMetrics(JdbcMetricsListener listener) {
+      this.listener = listener;
+      this.listening = !(listener instanceof NoopJdbcMetricsListener);
+   }
+
+   public boolean isEnabled() {
+      return listening || slowOperationThreshold > 0;
+   }
+
+   /**
+    * Counts a statement prepared by the current thread.
+    */
+   public void queryPrepared() {
+      queries.get()[0]++;
+   }
+
+   /**
+    * Returns the number of statements prepared by the current thread so far.
+    */
+   public long queries() {
+      return queries.get()[0];
+   }
+
+   /**
+    * Reports a completed operation.
+    *
+    * @param arguments arguments of the operation, the strings among them identify the container
+    *        and the blob in the slow operation log
+    * @param queries number of statements prepared by the operation, see {@link #queries()}
+    */
+   public void operationCompleted(String operation, Object[] arguments, long nanos, long queries, boolean failed) {
+      if (listening) {
+         listener.operationCompleted(operation, nanos, queries, failed);
+      }
+      if (slowOperationThreshold > 0 && nanos >= TimeUnit.MILLISECONDS.toNanos(slowOperationThreshold)) {
+         logger.warn("Slow %s(%s): %d ms, %d queries%s", operation,
+               Joiner.on(", ").join(Iterables.filter(Arrays.asList(arguments), String.class)),
+               TimeUnit.NANOSECONDS.toMillis(nanos), queries, failed ? ", failed" : "");
+      }
+   }
+
+   public void chunksWritten(int chunks, long bytes) {
+      if (listening) {
+         listener.chunksWritten(chunks, bytes);
+      }
+   }
+
+   public void chunksRead(int chunks, long bytes) {
+      if (listening) {
+         listener.chunksRead(chunks, bytes);
+      }
+   }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.matcher.AbstractMatcher;
+import com.google.inject.matcher.Matcher;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Measures the public methods of a service as operations of the same name. Calls made by the
+ * service to its own public methods are intercepted too, but only the outermost call of a thread
+ * is measured, so nested calls are part of the calling operation instead of being counted twice.
+ */
+public class JdbcMetricsInterceptor implements MethodInterceptor {
+
+   @Inject
+   private JdbcMetrics metrics;
+
+   // Number of intercepted calls in progress in each thread
+   private final ThreadLocal<int[]> depth = new ThreadLocal<int[]>() {
+      @Override
+      protected int[] initialValue() {
+         return new int[1];
+      }
+   };
+
+   /**
+    * Matches the public methods declared by the given class.
+    */
+   public static Matcher<Method> publicMethodsOf(final Class<?> type) {
+      return new AbstractMatcher<Method>() {
+         @Override
+         public boolean matches(Method method) {
+            return method.getDeclaringClass() == type && Modifier.isPublic(method.getModifiers())
+                  && !method.isSynthetic();
+         }
+      };
+   }
+
+   @Override
+   public Object invoke(MethodInvocation invocation) throws Throwable {
+      int[] calls = depth.get();
+      if (metrics == null || !metrics.isEnabled() || calls[0] > 0) {
+         return invocation.proceed();
+      }
+      long start = System.nanoTime();
+      long queries = metrics.queries();
+      boolean failed = true;
+      calls[0]++;
+      try {
+         Object result = invocation.proceed();
+         failed = false;
+         return result;
+      } finally {
+         calls[0]--;
+         metrics.operationCompleted(invocation.getMethod().getName(), invocation.getArguments(),
+               System.nanoTime() - start, metrics.queries() - queries, failed);
+      }
+   }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+import com.google.inject.ImplementedBy;
+
+/**
+ * Receives the measures taken inside the JDBC blob store. Bind an implementation in a module
+ * given to the context builder to collect them, {@link JdbcMetricsRecorder} keeps them in memory.
+ * When no listener is bound nothing is measured.
+ * <p>
+ * Listeners are called by the threads doing the work, so they must be thread safe and fast.
+ */
+@ImplementedBy(NoopJdbcMetricsListener.class)
+public interface JdbcMetricsListener {
+
+   /**
+    * Called when an operation of the JDBC service completes.
+    *
+    * @param operation name of the operation, the name of the service method
+    * @param nanos time taken by the operation, including the transaction commit
+    * @param queries number of statements prepared by the thread running the operation, only
+    *        counted when the connections come from a pool that reports them
+    * @param failed whether the operation threw an exception
+    */
+   void operationCompleted(String operation, long nanos, long queries, boolean failed);
+
+   /**
+    * Called when chunks are inserted.
+    *
+    * @param bytes number of bytes stored, after encoding
+    */
+   void chunksWritten(int chunks, long bytes);
+
+   /**
+    * Called when chunks are loaded.
+    *
+    * @param bytes number of bytes loaded, before decoding
+    */
+   void chunksRead(int chunks, long bytes);
+
+}
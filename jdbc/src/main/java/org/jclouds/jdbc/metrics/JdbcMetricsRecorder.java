@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Singleton;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Listener keeping the measures in memory: a latency histogram and the number of queries of every
+ * operation, and the chunk traffic. The histogram buckets double in width, bucket {@code i}
+ * counts the operations that took less than {@code 2^i} microseconds and at least half as long.
+ */
+@Singleton
+public class JdbcMetricsRecorder implements JdbcMetricsListener {
+
+   public static final int BUCKETS = 32;
+
+   private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<String, Operation>();
+   private final AtomicLong chunksWritten = new AtomicLong();
+   private final AtomicLong bytesWritten = new AtomicLong();
+   private final AtomicLong chunksRead = new AtomicLong();
+   private final AtomicLong bytesRead = new AtomicLong();
+
+   @Override
+   public void operationCompleted(String operation, long nanos, long queries, boolean failed) {
+      Operation stats = operations.get(operation);
+      if (stats == null) {
+         Operation created = new Operation();
+         stats = operations.putIfAbsent(operation, created);
+         if (stats == null) {
+            stats = created;
+         }
+      }
+      stats.record(nanos, queries, failed);
+   }
+
+   @Override
+   public void chunksWritten(int chunks, long bytes) {
+      chunksWritten.addAndGet(chunks);
+      bytesWritten.addAndGet(bytes);
+   }
+
+   @Override
+   public void chunksRead(int chunks, long bytes) {
+      chunksRead.addAndGet(chunks);
+      bytesRead.addAndGet(bytes);
+   }
+
+   /**
+    * Returns the statistics of the operations that completed at least once, by operation name.
+    */
+   public Map<String, OperationStats> getOperationStats() {
+      ImmutableMap.Builder<String, OperationStats> result = ImmutableMap.builder();
+      for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+         result.put(entry.getKey(), entry.getValue().snapshot());
+      }
+      return result.build();
+   }
+
+   public long getChunksWritten() {
+      return chunksWritten.get();
+   }
+
+   public long getBytesWritten() {
+      return bytesWritten.get();
+   }
+
+   public long getChunksRead() {
+      return chunksRead.get();
+   }
+
+   public long getBytesRead() {
+      return bytesRead.get();
+   }
+
+   private static final class Operation {
+      private final AtomicLong count = new AtomicLong();
+      private final AtomicLong failures = new AtomicLong();
+      private final AtomicLong totalNanos = new AtomicLong();
+      private final AtomicLong maxNanos = new AtomicLong();
+      private final AtomicLong queries = new AtomicLong();
+      private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+      void record(long nanos, long operationQueries, boolean failed) {
+         count.incrementAndGet();
+         if (failed) {
+            failures.incrementAndGet();
+         }
+         totalNanos.addAndGet(nanos);
+         long max = maxNanos.get();
+         while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+         }
+         queries.addAndGet(operationQueries);
+         long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+         histogram.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1));
+      }
+
+      OperationStats snapshot() {
+         long[] buckets = new long[BUCKETS];
+         for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = histogram.get(i);
+         }
+         return new OperationStats(count.get(), failures.get(), totalNanos.get(), maxNanos.get(), queries.get(),
+               buckets);
+      }
+   }
+
+}
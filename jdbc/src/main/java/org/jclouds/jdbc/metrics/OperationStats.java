@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of an operation recorded by {@link JdbcMetricsRecorder}.
+ */
+public final class OperationStats {
+
+   private final long count;
+   private final long failures;
+   private final long totalNanos;
+   private final long maxNanos;
+   private final long queries;
+   private final long[] histogram;
+
+   OperationStats(long count, long failures, long totalNanos, long maxNanos, long queries, long[] histogram) {
+      this.count = count;
+      this.failures = failures;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+      this.queries = queries;
+      this.histogram = histogram;
+   }
+
+   public long getCount() {
+      return count;
+   }
+
+   public long getFailures() {
+      return failures;
+   }
+
+   public long getTotalTime(TimeUnit unit) {
+      return unit.convert(totalNanos, TimeUnit.NANOSECONDS);
+   }
+
+   public long getMaxTime(TimeUnit unit) {
+      return unit.convert(maxNanos, TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * Returns the number of statements prepared by all the calls of the operation.
+    */
+   public long getQueries() {
+      return queries;
+   }
+
+   /**
+    * Returns the latency histogram, see {@link JdbcMetricsRecorder} for the bucket bounds.
+    */
+   public long[] getHistogram() {
+      return histogram.clone();
+   }
+
+   /**
+    * Returns an upper bound of the latency of the given fraction of the calls, from the
+    * histogram.
+    *
+    * @param quantile fraction of the calls, between 0 and 1
+    */
+   public long getLatencyBound(double quantile, TimeUnit unit) {
+      long threshold = (long) Math.ceil(quantile * count);
+      long seen = 0;
+      for (int i = 0; i < histogram.length; i++) {
+         seen += histogram[i];
+         if (seen >= threshold) {
+            return unit.convert(1L << i, TimeUnit.MICROSECONDS);
+         }
+      }
+      return getMaxTime(unit);
+   }
+
+   @Override
+   public String toString() {
+      return "OperationStats{count=" + count + ", failures=" + failures + ", totalNanos=" + totalNanos
+            + ", maxNanos=" + maxNanos + ", queries=" + queries + ", histogram=" + Arrays.toString(histogram) + "}";
+   }
+
+}
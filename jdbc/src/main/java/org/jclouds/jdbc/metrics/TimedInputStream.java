@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream adding up the time spent reading the underlying stream, so the cost of producing
+ * the data of an upload can be told apart from the cost of storing it.
+ */
+public final class TimedInputStream extends FilterInputStream {
+
+   private long nanos;
+
+   public TimedInputStream(InputStream in) {
+      super(in);
+   }
+
+   @Override
+   public int read() throws IOException {
+      long start = System.nanoTime();
+      try {
+         return in.read();
+      } finally {
+         nanos += System.nanoTime() - start;
+      }
+   }
+
+   @Override
+   public int read(byte[] b, int off, int len) throws IOException {
+      long start = System.nanoTime();
+      try {
+         return in.read(b, off, len);
+      } finally {
+         nanos += System.nanoTime() - start;
+      }
+   }
+
+   @Override
+   public long skip(long n) throws IOException {
+      long start = System.nanoTime();
+      try {
+         return in.skip(n);
+      } finally {
+         nanos += System.nanoTime() - start;
+      }
+   }
+
+   /**
+    * Returns the time spent in the reads so far.
+    */
+   public long getNanos() {
+      return nanos;
+   }
+
+}
@@ -23,6 +23,140 @@ public final class JdbcConstants {
 
     public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
 
+    /**
+     * Largest chunk size that can be stored.
+     */
+    public static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Number of chunks a blob of known length is split in before a larger chunk size is used.
+     */
+    public static final int ADAPTIVE_CHUNK_COUNT = 64;
+
+    /**
+     * Size in bytes of the chunks blobs are split in, at most {@link #MAX_CHUNK_SIZE}. A blob of
+     * known length smaller than a chunk is stored in a single chunk of its own size. The chunk size
+     * of a blob is recorded in its payload, so changing it does not affect the stored blobs.
+     */
+    public static final String PROPERTY_CHUNK_SIZE = "jclouds.jdbc.chunk-size";
+
+    /**
+     * Largest chunk size used for big blobs of known length. Their chunk size is doubled, up to
+     * this size, until they fit in {@link #ADAPTIVE_CHUNK_COUNT} chunks. Setting it to the chunk
+     * size disables the adaptive chunk size.
+     */
+    public static final String PROPERTY_MAX_CHUNK_SIZE = "jclouds.jdbc.max-chunk-size";
+
+    public static final int DEFAULT_MAX_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Largest inline threshold that can be stored.
+     */
+    public static final int MAX_INLINE_SIZE = 64 * 1024;
+
+    /**
+     * Blobs of at most this many bytes are stored in their payload row instead of in chunks, at
+     * most {@link #MAX_INLINE_SIZE}. They are read and written without touching the chunk tables.
+     * A value of 0 stores every blob in chunks.
+     */
+    public static final String PROPERTY_INLINE_THRESHOLD = "jclouds.jdbc.inline-threshold";
+
+    public static final int DEFAULT_INLINE_THRESHOLD = 16 * 1024;
+
+    /**
+     * Number of chunks fetched in a single query when a blob is read.
+     */
+    public static final String PROPERTY_CHUNK_READ_AHEAD = "jclouds.jdbc.chunk-read-ahead";
+
+    public static final int DEFAULT_CHUNK_READ_AHEAD = 4;
+
+    /**
+     * Codec encoding the chunks of the blobs written, NONE or DEFLATE. The codec of a blob is
+     * recorded in its payload, so blobs written with different codecs stay readable.
+     */
+    public static final String PROPERTY_CHUNK_CODEC = "jclouds.jdbc.chunk-codec";
+
+    public static final String DEFAULT_CHUNK_CODEC = "NONE";
+
+    /**
+     * Number of chunks written before the persistence context is flushed and cleared during an
+     * upload. It is also the number of chunk buffers kept in memory by a single upload.
+     */
+    public static final String PROPERTY_CHUNK_FLUSH_INTERVAL = "jclouds.jdbc.chunk-flush-interval";
+
+    public static final int DEFAULT_CHUNK_FLUSH_INTERVAL = 4;
+
+    /**
+     * Number of threads used to insert the chunks of a blob concurrently. Each thread uses its own
+     * connection. A value of 0 stores the chunks sequentially in the caller's transaction.
+     */
+    public static final String PROPERTY_CHUNK_WRITER_THREADS = "jclouds.jdbc.chunk-writer-threads";
+
+    public static final int DEFAULT_CHUNK_WRITER_THREADS = 0;
+
+    /**
+     * Maximum number of blobs deleted in a single transaction when a container or a directory is
+     * cleared. The payload ids of a batch are held in memory while it is deleted. A value of 0
+     * deletes all the blobs in one transaction, holding the payload ids of all of them.
+     */
+    public static final String PROPERTY_DELETE_BATCH_SIZE = "jclouds.jdbc.delete-batch-size";
+
+    public static final int DEFAULT_DELETE_BATCH_SIZE = 1000;
+
+    /**
+     * Whether chunks are keyed by their SHA-256 hash so identical chunks are stored only once and
+     * shared by every payload holding them.
+     */
+    public static final String PROPERTY_CHUNK_DEDUP = "jclouds.jdbc.chunk-dedup";
+
+    public static final boolean DEFAULT_CHUNK_DEDUP = false;
+
+    /**
+     * Maximum number of container ids kept in memory to avoid looking containers up by name.
+     */
+    public static final String PROPERTY_CONTAINER_CACHE_SIZE = "jclouds.jdbc.container-cache-size";
+
+    public static final long DEFAULT_CONTAINER_CACHE_SIZE = 1000;
+
+    /**
+     * Number of seconds a cached container id is trusted, bounding how long containers deleted by
+     * other processes sharing the database can be seen.
+     */
+    public static final String PROPERTY_CONTAINER_CACHE_EXPIRY = "jclouds.jdbc.container-cache-expiry";
+
+    public static final long DEFAULT_CONTAINER_CACHE_EXPIRY = 300;
+
+    /**
+     * Maximum number of bytes of chunk data kept in memory, so that reading the same blobs again
+     * does not fetch their chunks from the database. A value of 0 disables the cache.
+     */
+    public static final String PROPERTY_CHUNK_CACHE_SIZE = "jclouds.jdbc.chunk-cache-size";
+
+    public static final long DEFAULT_CHUNK_CACHE_SIZE = 0;
+
+    /**
+     * Where the cached chunks are kept, HEAP or DIRECT for direct buffers outside of the heap.
+     */
+    public static final String PROPERTY_CHUNK_CACHE_STORAGE = "jclouds.jdbc.chunk-cache-storage";
+
+    public static final String DEFAULT_CHUNK_CACHE_STORAGE = "HEAP";
+
+    /**
+     * Operations of the JDBC service taking at least this many milliseconds are logged with the
+     * number of statements they prepared. A value of 0 disables the log.
+     */
+    public static final String PROPERTY_SLOW_OPERATION_THRESHOLD = "jclouds.jdbc.slow-operation-threshold";
+
+    public static final long DEFAULT_SLOW_OPERATION_THRESHOLD = 0;
+
+    /**
+     * Class path directory holding the versioned migration scripts of the schema, named
+     * {@code V1.sql}, {@code V2.sql}... Scripts newer than the version recorded in the database are
+     * applied in order when the context starts. When unset the schema is left to the persistence
+     * provider.
+     */
+    public static final String PROPERTY_SCHEMA_LOCATION = "jclouds.jdbc.schema-location";
+
     private JdbcConstants() {
         throw new AssertionError("Intentionally Unimplemented");
     }
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.repository;
+
+import org.jclouds.jdbc.entity.ContainerEntity;
+
+import javax.persistence.Query;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Selects a set of blobs inside a container, so bulk statements can be written once and applied
+ * either as JPQL or as native SQL on the tables that JPQL cannot reach.
+ */
+public final class BlobFilter {
+
+   private static final char LIKE_ESCAPE = '!';
+
+   private final ContainerEntity container;
+   private final String key;
+   private final String keyPattern;
+   private final boolean escaped;
+   private final String excludedKey;
+   private final String excludedPattern;
+   private final boolean includeDirectories;
+   private final String minKey;
+   private final String maxKey;
+
+   private BlobFilter(ContainerEntity container, String key, String keyPattern, boolean escaped, String excludedKey,
+         String excludedPattern, boolean includeDirectories, String minKey, String maxKey) {
+      this.container = checkNotNull(container, "container");
+      this.key = key;
+      this.keyPattern = keyPattern;
+      this.escaped = escaped;
+      this.excludedKey = excludedKey;
+      this.excludedPattern = excludedPattern;
+      this.includeDirectories = includeDirectories;
+      this.minKey = minKey;
+      this.maxKey = maxKey;
+   }
+
+   /**
+    * Selects all the blobs in a container.
+    */
+   public static BlobFilter inContainer(ContainerEntity container) {
+      return new BlobFilter(container, null, null, false, null, null, true, null, null);
+   }
+
+   /**
+    * Selects the blob with the given key.
+    */
+   public BlobFilter withKey(String blobKey) {
+      return new BlobFilter(container, blobKey, keyPattern, escaped, excludedKey, excludedPattern, includeDirectories,
+            minKey, maxKey);
+   }
+
+   /**
+    * Selects the blobs whose key starts with the given prefix. Wildcards in the prefix are
+    * matched literally.
+    */
+   public BlobFilter keyStartingWith(String prefix) {
+      return new BlobFilter(container, key, escape(prefix) + '%', true, excludedKey, excludedPattern, includeDirectories,
+            minKey, maxKey);
+   }
+
+   /**
+    * Selects the blobs inside a directory, but not the directory blob itself. Unless the
+    * selection is recursive, the blobs inside the subdirectories are left out.
+    */
+   public BlobFilter inDirectory(String directory, boolean recursive) {
+      String prefix = directory.endsWith("/") ? directory : directory + "/";
+      String nestedPattern = recursive ? null : escape(prefix) + "%/_%";
+      return new BlobFilter(container, key, escape(prefix) + '%', true, prefix, nestedPattern, includeDirectories,
+            minKey, maxKey);
+   }
+
+   public BlobFilter excludingKey(String excluded) {
+      return new BlobFilter(container, key, keyPattern, escaped, excluded, excludedPattern, includeDirectories, minKey,
+            maxKey);
+   }
+
+   public BlobFilter includingDirectories(boolean include) {
+      return new BlobFilter(container, key, keyPattern, escaped, excludedKey, excludedPattern, include, minKey, maxKey);
+   }
+
+   /**
+    * Restricts the selection to the keys greater than the given one.
+    */
+   public BlobFilter after(String marker) {
+      return new BlobFilter(container, key, keyPattern, escaped, excludedKey, excludedPattern, includeDirectories, marker,
+            maxKey);
+   }
+
+   /**
+    * Restricts the selection to the keys lower than or equal to the given one.
+    */
+   public BlobFilter upTo(String last) {
+      return new BlobFilter(container, key, keyPattern, escaped, excludedKey, excludedPattern, includeDirectories, minKey,
+            last);
+   }
+
+   public ContainerEntity getContainer() {
+      return container;
+   }
+
+   /**
+    * Returns the JPQL condition on {@code BlobEntity} for the given identification variable.
+    * The condition uses named parameters that must be bound with {@link #bind(Query)}.
+    */
+   public String jpql(String alias) {
+      StringBuilder jpql = new StringBuilder(alias).append(".containerEntity = :container");
+      if (key != null) {
+         jpql.append(" AND ").append(alias).append(".key = :key");
+      }
+      if (keyPattern != null) {
+         jpql.append(" AND ").append(alias).append(".key LIKE :keyPattern").append(escapeClause());
+      }
+      if (excludedKey != null) {
+         jpql.append(" AND ").append(alias).append(".key <> :excludedKey");
+      }
+      if (excludedPattern != null) {
+         jpql.append(" AND ").append(alias).append(".key NOT LIKE :excludedPattern").append(escapeClause());
+      }
+      if (!includeDirectories) {
+         jpql.append(" AND ").append(alias).append(".directory = :directory");
+      }
+      if (minKey != null) {
+         jpql.append(" AND ").append(alias).append(".key > :minKey");
+      }
+      if (maxKey != null) {
+         jpql.append(" AND ").append(alias).append(".key <= :maxKey");
+      }
+      return jpql.toString();
+   }
+
+   public <Q extends Query> Q bind(Q query) {
+      query.setParameter("container", container);
+      if (key != null) {
+         query.setParameter("key", key);
+      }
+      if (keyPattern != null) {
+         query.setParameter("keyPattern", keyPattern);
+      }
+      if (excludedKey != null) {
+         query.setParameter("excludedKey", excludedKey);
+      }
+      if (excludedPattern != null) {
+         query.setParameter("excludedPattern", excludedPattern);
+      }
+      if (!includeDirectories) {
+         query.setParameter("directory", false);
+      }
+      if (minKey != null) {
+         query.setParameter("minKey", minKey);
+      }
+      if (maxKey != null) {
+         query.setParameter("maxKey", maxKey);
+      }
+      return query;
+   }
+
+   /**
+    * Returns the SQL condition on the {@code BlobEntity} table. The container id is always the
+    * first positional parameter, so statements can reuse {@code ?1}. The parameters must be bound
+    * with {@link #bindNative(Query)}.
+    */
+   public String sql() {
+      StringBuilder sql = new StringBuilder("id = ?1");
+      int parameter = 2;
+      if (key != null) {
+         sql.append(" AND key = ?").append(parameter++);
+      }
+      if (keyPattern != null) {
+         sql.append(" AND key LIKE ?").append(parameter++).append(escapeClause());
+      }
+      if (excludedKey != null) {
+         sql.append(" AND key <> ?").append(parameter++);
+      }
+      if (excludedPattern != null) {
+         sql.append(" AND key NOT LIKE ?").append(parameter++).append(escapeClause());
+      }
+      if (!includeDirectories) {
+         sql.append(" AND directory = ?").append(parameter++);
+      }
+      if (minKey != null) {
+         sql.append(" AND key > ?").append(parameter++);
+      }
+      if (maxKey != null) {
+         sql.append(" AND key <= ?").append(parameter++);
+      }
+      return sql.toString();
+   }
+
+   public <Q extends Query> Q bindNative(Q query) {
+      query.setParameter(1, container.getId());
+      int parameter = 2;
+      if (key != null) {
+         query.setParameter(parameter++, key);
+      }
+      if (keyPattern != null) {
+         query.setParameter(parameter++, keyPattern);
+      }
+      if (excludedKey != null) {
+         query.setParameter(parameter++, excludedKey);
+      }
+      if (excludedPattern != null) {
+         query.setParameter(parameter++, excludedPattern);
+      }
+      if (!includeDirectories) {
+         query.setParameter(parameter++, false);
+      }
+      if (minKey != null) {
+         query.setParameter(parameter++, minKey);
+      }
+      if (maxKey != null) {
+         query.setParameter(parameter++, maxKey);
+      }
+      return query;
+   }
+
+   private static String escape(String value) {
+      StringBuilder escaped = new StringBuilder(value.length() + 1);
+      for (char c : value.toCharArray()) {
+         if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+            escaped.append(LIKE_ESCAPE);
+         }
+         escaped.append(c);
+      }
+      return escaped.toString();
+   }
+
+   private String escapeClause() {
+      return escaped ? " ESCAPE '" + LIKE_ESCAPE + "'" : "";
+   }
+
+}
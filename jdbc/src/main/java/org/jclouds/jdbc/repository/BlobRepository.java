@@ -16,39 +16,253 @@
  */
 package org.jclouds.jdbc.repository;
 
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.BlobEntityPK;
-import org.jclouds.jdbc.entity.ContainerEntity;
+import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.entity.PayloadEntity;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @Singleton
 public class BlobRepository extends GenericRepository<BlobEntity, BlobEntityPK> {
 
+   // Bounds the size of the statements deleting rows by id
+   private static final int MAX_IN_PARAMETERS = 1000;
+
    @Inject
    private BlobRepository(Provider<EntityManager> entityManager) {
       super(entityManager);
    }
 
-    public List<BlobEntity> findBlobsByContainer(ContainerEntity containerEntity) {
-        return entityManager.get().createQuery("SELECT b FROM " + entityClass.getName() + " b "
-              + "WHERE"
-              + " b.containerEntity = :containerEntity", entityClass)
-                .setParameter("containerEntity", containerEntity)
-                .getResultList();
-    }
-
-   public List<BlobEntity> findBlobsByDirectory(ContainerEntity containerEntity, String directory) {
-      return entityManager.get().createQuery("SELECT b FROM " + entityClass.getName() + " b "
-            + "WHERE b.containerEntity = :containerEntity AND b.key != :directoryName AND b.key LIKE :directoryLike ", entityClass)
-            .setParameter("containerEntity", containerEntity)
-            .setParameter("directoryName", directory)
-            .setParameter("directoryLike", directory + "%")
+   /**
+    * Returns the number of selected blobs.
+    */
+   public long countBlobs(BlobFilter filter) {
+      return filter.bind(entityManager.get().createQuery("SELECT COUNT(b) FROM " + entityClass.getName() + " b "
+            + "WHERE " + filter.jpql("b"), Long.class))
+            .getSingleResult();
+   }
+
+   /**
+    * Returns the keys of the selected blobs in ascending order.
+    *
+    * @param limit maximum number of keys to return, or 0 to return all of them
+    */
+   public List<String> findBlobKeys(BlobFilter filter, int limit) {
+      TypedQuery<String> query = filter.bind(entityManager.get().createQuery("SELECT b.key FROM " + entityClass.getName()
+            + " b WHERE " + filter.jpql("b") + " ORDER BY b.key", String.class));
+      if (limit > 0) {
+         query.setMaxResults(limit);
+      }
+      return query.getResultList();
+   }
+
+   /**
+    * Returns the metadata of the selected blobs in ascending key order, reading only the blob and
+    * payload rows. The user metadata is not loaded, see {@link #findUserMetadata(BlobFilter)}.
+    *
+    * @param limit maximum number of blobs to return, or 0 to return all of them
+    */
+   public List<BlobSummary> findBlobSummaries(BlobFilter filter, int limit) {
+      TypedQuery<BlobSummary> query = filter.bind(entityManager.get().createQuery("SELECT NEW " + BlobSummary.class.getName()
+            + "(b.key, b.directory, b.size, b.etag, b.creationDate, b.lastModified, b.tier, p.cacheControl, p.contentType, "
+            + "p.contentLength, p.contentMD5, p.contentDisposition, p.contentLanguage, p.contentEncoding, p.expires) "
+            + "FROM " + entityClass.getName() + " b JOIN b.payload p WHERE " + filter.jpql("b") + " ORDER BY b.key",
+            BlobSummary.class));
+      if (limit > 0) {
+         query.setMaxResults(limit);
+      }
+      return query.getResultList();
+   }
+
+   /**
+    * Returns the metadata of the selected blobs in ascending key order, like
+    * {@link #findBlobSummaries(BlobFilter, int)}, but the keys holding the delimiter after the given
+    * prefix are grouped under their common prefix, up to and including the delimiter. A common
+    * prefix takes a single entry whatever the number of blobs it groups, see
+    * {@link BlobSummary#isCommonPrefix()}.
+    * <p>
+    * The keys are read in pages, and the page following a common prefix starts after the last key
+    * the prefix can group, so the grouped blobs are never read.
+    *
+    * @param prefix prefix of all the selected keys, the delimiter is only looked for after it
+    * @param marker key or common prefix after which the listing starts, or null to start from the
+    *           first blob
+    * @param limit maximum number of entries to return
+    */
+   public List<BlobSummary> findBlobSummaries(BlobFilter filter, String prefix, String delimiter, String marker,
+         int limit) {
+      List<BlobSummary> result = new ArrayList<BlobSummary>();
+      String after = marker == null ? null : skipCommonPrefix(marker, prefix, delimiter);
+      while (result.size() < limit) {
+         int pageSize = limit - result.size();
+         List<BlobSummary> page = findBlobSummaries(after == null ? filter : filter.after(after), pageSize);
+         boolean grouped = false;
+         for (BlobSummary summary : page) {
+            String commonPrefix = commonPrefix(summary.getKey(), prefix, delimiter);
+            if (commonPrefix != null) {
+               result.add(BlobSummary.commonPrefix(commonPrefix));
+               after = commonPrefix + Character.MAX_VALUE;
+               grouped = true;
+               break;
+            }
+            result.add(summary);
+            after = summary.getKey();
+         }
+         if (!grouped && page.size() < pageSize) {
+            break;
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Returns the key after which a grouped listing resumes from the given marker. A marker inside
+    * a common prefix resumes after the last key the prefix can group.
+    */
+   private static String skipCommonPrefix(String marker, String prefix, String delimiter) {
+      String commonPrefix = marker.startsWith(prefix) ? commonPrefix(marker, prefix, delimiter) : null;
+      return commonPrefix == null ? marker : commonPrefix + Character.MAX_VALUE;
+   }
+
+   private static String commonPrefix(String key, String prefix, String delimiter) {
+      int index = key.indexOf(delimiter, prefix.length());
+      return index < 0 ? null : key.substring(0, index + delimiter.length());
+   }
+
+   /**
+    * Returns the user metadata entries of the selected blobs as (blob key, metadata key, metadata
+    * value) rows.
+    */
+   public List<Object[]> findUserMetadata(BlobFilter filter) {
+      return filter.bind(entityManager.get().createQuery("SELECT b.key, KEY(m), m FROM " + entityClass.getName()
+            + " b JOIN b.userMetadata m WHERE " + filter.jpql("b"), Object[].class))
+            .getResultList();
+   }
+
+   /**
+    * Returns the user metadata entries of the selected blobs that have one of the given keys.
+    *
+    * @see #findUserMetadata(BlobFilter)
+    */
+   public List<Object[]> findUserMetadata(BlobFilter filter, Collection<String> keys) {
+      return filter.bind(entityManager.get().createQuery("SELECT b.key, KEY(m), m FROM " + entityClass.getName()
+            + " b JOIN b.userMetadata m WHERE " + filter.jpql("b") + " AND b.key IN :keys", Object[].class))
+            .setParameter("keys", keys)
             .getResultList();
    }
 
+   /**
+    * Returns the key found at the given position when the selected blobs are sorted by key, or
+    * null if fewer blobs are selected.
+    */
+   public String findKeyAt(BlobFilter filter, int position) {
+      List<String> keys = filter.bind(entityManager.get().createQuery("SELECT b.key FROM " + entityClass.getName() + " b "
+            + "WHERE " + filter.jpql("b") + " ORDER BY b.key", String.class))
+            .setFirstResult(position)
+            .setMaxResults(1)
+            .getResultList();
+      return keys.isEmpty() ? null : keys.get(0);
+   }
+
+   /**
+    * Returns the ids of the chunks referenced by the payloads of the selected blobs.
+    */
+   public List<Long> findChunkIds(BlobFilter filter) {
+      return filter.bind(entityManager.get().createQuery("SELECT c FROM " + entityClass.getName()
+            + " b JOIN b.payload p JOIN p.chunks c WHERE " + filter.jpql("b"), Long.class))
+            .getResultList();
+   }
+
+   /**
+    * Deletes the selected blobs along with their payloads, chunks and user metadata. The payloads
+    * are deleted by id, {@value #MAX_IN_PARAMETERS} at a time, the rest uses a fixed number of
+    * statements whatever the number of blobs. Chunks still referenced by payloads of other blobs
+    * are kept.
+    *
+    * @return the number of deleted blobs
+    */
+   public int deleteBlobs(BlobFilter filter) {
+      EntityManager em = entityManager.get();
+      String blobs = entityClass.getName();
+      String payloads = "SELECT payload_id FROM BlobEntity WHERE " + filter.sql();
+      List<Long> payloadIds = filter.bind(em.createQuery("SELECT p.id FROM " + blobs + " b JOIN b.payload p "
+            + "WHERE " + filter.jpql("b"), Long.class))
+            .getResultList();
+      // Element collection tables can not be reached by JPQL bulk statements
+      filter.bindNative(em.createNativeQuery(lockChunks(PayloadEntity.CHUNKS_JOIN_COLUMN + " IN (" + payloads + ")")))
+            .executeUpdate();
+      filter.bindNative(em.createNativeQuery("DELETE FROM " + ChunkEntity.TABLE + " WHERE id IN (SELECT "
+            + PayloadEntity.CHUNKS_COLUMN + " FROM " + PayloadEntity.CHUNKS_TABLE + " WHERE "
+            + PayloadEntity.CHUNKS_JOIN_COLUMN + " IN (" + payloads + ")) AND " + notReferenced(
+            PayloadEntity.CHUNKS_JOIN_COLUMN + " NOT IN (" + payloads + ")")))
+            .executeUpdate();
+      filter.bindNative(em.createNativeQuery("DELETE FROM " + PayloadEntity.CHUNKS_TABLE + " WHERE "
+            + PayloadEntity.CHUNKS_JOIN_COLUMN + " IN (" + payloads + ")"))
+            .executeUpdate();
+      filter.bindNative(em.createNativeQuery("DELETE FROM " + BlobEntity.USER_METADATA_TABLE + " WHERE BlobEntity_id = ?1 "
+            + "AND BlobEntity_key IN (SELECT key FROM BlobEntity WHERE " + filter.sql() + ")"))
+            .executeUpdate();
+      int deleted = filter.bind(em.createQuery("DELETE FROM " + blobs + " b WHERE " + filter.jpql("b")))
+            .executeUpdate();
+      // Payloads can only be deleted once their blobs are, so they are selected by id
+      for (List<Long> ids : Lists.partition(payloadIds, MAX_IN_PARAMETERS)) {
+         em.createQuery("DELETE FROM " + PayloadEntity.class.getName() + " p WHERE p.id IN :ids")
+               .setParameter("ids", ids)
+               .executeUpdate();
+      }
+      return deleted;
+   }
+
+   /**
+    * Deletes a payload that is no longer referenced by any blob, along with the chunks that no
+    * other payload references.
+    */
+   public void deletePayload(Long payloadId) {
+      EntityManager em = entityManager.get();
+      em.createNativeQuery(lockChunks(PayloadEntity.CHUNKS_JOIN_COLUMN + " = ?1"))
+            .setParameter(1, payloadId)
+            .executeUpdate();
+      em.createNativeQuery("DELETE FROM " + ChunkEntity.TABLE + " WHERE id IN (SELECT " + PayloadEntity.CHUNKS_COLUMN
+            + " FROM " + PayloadEntity.CHUNKS_TABLE + " WHERE " + PayloadEntity.CHUNKS_JOIN_COLUMN + " = ?1) AND "
+            + notReferenced(PayloadEntity.CHUNKS_JOIN_COLUMN + " <> ?1"))
+            .setParameter(1, payloadId)
+            .executeUpdate();
+      em.createNativeQuery("DELETE FROM " + PayloadEntity.CHUNKS_TABLE + " WHERE " + PayloadEntity.CHUNKS_JOIN_COLUMN
+            + " = ?1")
+            .setParameter(1, payloadId)
+            .executeUpdate();
+      em.createQuery("DELETE FROM " + PayloadEntity.class.getName() + " p WHERE p.id = :id")
+            .setParameter("id", payloadId)
+            .executeUpdate();
+   }
+
+   /**
+    * Returns the SQL statement locking the chunks referenced by the payloads matching the given
+    * condition, see {@link ChunkRepository#lockChunks}. Run before checking which chunks are still
+    * referenced, so that a payload being saved with one of them is either committed first and
+    * seen by the check, or finds the chunk deleted.
+    */
+   private static String lockChunks(String payloadCondition) {
+      return "UPDATE " + ChunkEntity.TABLE + " SET size = size WHERE id IN (SELECT " + PayloadEntity.CHUNKS_COLUMN
+            + " FROM " + PayloadEntity.CHUNKS_TABLE + " WHERE " + payloadCondition + ")";
+   }
+
+   /**
+    * Returns the SQL condition, on the chunk table, that no payload matching the given condition
+    * references the chunk.
+    */
+   private static String notReferenced(String payloadCondition) {
+      return "NOT EXISTS (SELECT 1 FROM " + PayloadEntity.CHUNKS_TABLE + " r WHERE r." + PayloadEntity.CHUNKS_COLUMN
+            + " = " + ChunkEntity.TABLE + ".id AND r." + payloadCondition + ")";
+   }
+
 }
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.repository;
+
+import com.google.common.collect.ImmutableMap;
+import org.jclouds.blobstore.domain.Tier;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Metadata of a blob read by projection queries, without loading the blob entity, its payload
+ * entity or its chunks.
+ */
+public class BlobSummary {
+
+   private final String key;
+   private final boolean directory;
+   private final Long size;
+   private final String etag;
+   private final Date creationDate;
+   private final Date lastModified;
+   private final Tier tier;
+   private final String cacheControl;
+   private final String contentType;
+   private final Long contentLength;
+   private final byte[] contentMD5;
+   private final String contentDisposition;
+   private final String contentLanguage;
+   private final String contentEncoding;
+   private final Date expires;
+   private Map<String, String> userMetadata = ImmutableMap.of();
+   private boolean commonPrefix;
+
+   public BlobSummary(String key, Boolean directory, Long size, String etag, Date creationDate, Date lastModified,
+         Tier tier, String cacheControl, String contentType, Long contentLength, byte[] contentMD5,
+         String contentDisposition, String contentLanguage, String contentEncoding, Date expires) {
+      this.key = key;
+      this.directory = directory != null && directory;
+      this.size = size;
+      this.etag = etag;
+      this.creationDate = creationDate;
+      this.lastModified = lastModified;
+      this.tier = tier;
+      this.cacheControl = cacheControl;
+      this.contentType = contentType;
+      this.contentLength = contentLength;
+      this.contentMD5 = contentMD5;
+      this.contentDisposition = contentDisposition;
+      this.contentLanguage = contentLanguage;
+      this.contentEncoding = contentEncoding;
+      this.expires = expires;
+   }
+
+   /**
+    * Returns the entry standing for the blobs grouped under a common prefix by a delimited listing.
+    */
+   public static BlobSummary commonPrefix(String prefix) {
+      BlobSummary summary = new BlobSummary(prefix, false, null, null, null, null, null, null, null, null, null, null,
+            null, null, null);
+      summary.commonPrefix = true;
+      return summary;
+   }
+
+   public String getKey() {
+      return key;
+   }
+
+   public boolean isDirectory() {
+      return directory;
+   }
+
+   public Long getSize() {
+      return size;
+   }
+
+   public String getEtag() {
+      return etag;
+   }
+
+   public Date getCreationDate() {
+      return creationDate;
+   }
+
+   public Date getLastModified() {
+      return lastModified;
+   }
+
+   public Tier getTier() {
+      return tier;
+   }
+
+   public String getCacheControl() {
+      return cacheControl;
+   }
+
+   public String getContentType() {
+      return contentType;
+   }
+
+   public Long getContentLength() {
+      return contentLength;
+   }
+
+   public byte[] getContentMD5() {
+      return contentMD5;
+   }
+
+   public String getContentDisposition() {
+      return contentDisposition;
+   }
+
+   public String getContentLanguage() {
+      return contentLanguage;
+   }
+
+   public String getContentEncoding() {
+      return contentEncoding;
+   }
+
+   public Date getExpires() {
+      return expires;
+   }
+
+   public boolean isCommonPrefix() {
+      return commonPrefix;
+   }
+
+   public Map<String, String> getUserMetadata() {
+      return userMetadata;
+   }
+
+   public void setUserMetadata(Map<String, String> userMetadata) {
+      this.userMetadata = userMetadata;
+   }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.repository;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.reference.JdbcConstants;
+
+import javax.inject.Named;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Least recently used chunks, bounded by the number of bytes of their stored data. Chunks are
+ * never modified once stored, so a cached chunk stays valid until it is deleted; the entries of
+ * deleted chunks are invalidated to give their room back. The data is kept either on the heap or
+ * in direct buffers, outside of the heap, see {@link Storage}.
+ */
+@Singleton
+public class ChunkCache {
+
+   /**
+    * Where the data of the cached chunks is kept.
+    */
+   public enum Storage {
+      /**
+       * The data arrays of the chunks are kept as is, hits do not copy them.
+       */
+      HEAP,
+      /**
+       * The data is copied in direct buffers, which do not weigh on the garbage collector but
+       * are copied back to the heap on every hit.
+       */
+      DIRECT
+   }
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CHUNK_CACHE_SIZE)
+   private long maximumSize = JdbcConstants.DEFAULT_CHUNK_CACHE_SIZE;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CHUNK_CACHE_STORAGE)
+   private Storage storage = Storage.HEAP;
+
+   // Built on first use, once the optional settings have been injected
+   private final Supplier<Cache<Long, CachedChunk>> chunks = Suppliers.memoize(
+         new Supplier<Cache<Long, CachedChunk>>() {
+            @Override
+            public Cache<Long, CachedChunk> get() {
+               // A single segment, each segment would otherwise only hold its share of the weight and
+               // could be too small for the largest chunks
+               return CacheBuilder.newBuilder()
+                     .concurrencyLevel(1)
+                     .maximumWeight(Math.max(maximumSize, 0))
+                     .weigher(new Weigher<Long, CachedChunk>() {
+                        @Override
+                        public int weigh(Long id, CachedChunk chunk) {
+                           return chunk.data.capacity();
+                        }
+                     })
+                     .recordStats()
+                     .build();
+            }
+         });
+
+   /**
+    * Returns whether chunks are cached at all, when it is not there is no point in looking them up.
+    */
+   public boolean isEnabled() {
+      return maximumSize > 0;
+   }
+
+   /**
+    * Returns the cached chunk with the given id, or null if it is not cached. Every call returns a
+    * new entity.
+    */
+   public ChunkEntity get(Long id) {
+      CachedChunk cached = chunks.get().getIfPresent(id);
+      if (cached == null) {
+         return null;
+      }
+      byte[] data;
+      if (cached.data.hasArray()) {
+         data = cached.data.array();
+      } else {
+         data = new byte[cached.data.capacity()];
+         cached.data.duplicate().get(data);
+      }
+      ChunkEntity chunk = new ChunkEntity(data, cached.size, cached.hash);
+      chunk.setId(id);
+      return chunk;
+   }
+
+   public void put(ChunkEntity chunk) {
+      if (!isEnabled() || chunk.getData().length > maximumSize) {
+         return;
+      }
+      ByteBuffer data;
+      if (storage == Storage.DIRECT) {
+         data = ByteBuffer.allocateDirect(chunk.getData().length);
+         data.put(chunk.getData());
+         data.flip();
+      } else {
+         data = ByteBuffer.wrap(chunk.getData());
+      }
+      chunks.get().put(chunk.getId(), new CachedChunk(data, chunk.getSize(), chunk.getHash()));
+   }
+
+   public void invalidateAll(Collection<Long> ids) {
+      chunks.get().invalidateAll(ids);
+   }
+
+   public void invalidateAll() {
+      chunks.get().invalidateAll();
+   }
+
+   /**
+    * Returns the hit, miss and eviction counts of the cache, to help sizing it.
+    */
+   public CacheStats stats() {
+      return chunks.get().stats();
+   }
+
+   /**
+    * Returns the number of cached chunks.
+    */
+   public long size() {
+      return chunks.get().size();
+   }
+
+   private static final class CachedChunk {
+      private final ByteBuffer data;
+      private final int size;
+      private final String hash;
+
+      private CachedChunk(ByteBuffer data, int size, String hash) {
+         this.data = data;
+         this.size = size;
+         this.hash = hash;
+      }
+   }
+
+}
@@ -20,8 +20,12 @@ import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.entity.PayloadEntity;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 @Singleton
 public class ChunkRepository extends GenericRepository<ChunkEntity, Long> {
@@ -31,4 +35,71 @@ public class ChunkRepository extends GenericRepository<ChunkEntity, Long> {
       super(entityManager);
    }
 
+   public List<ChunkEntity> findChunksByIds(List<Long> ids) {
+      return entityManager.get().createQuery("SELECT c FROM " + entityClass.getName() + " c WHERE c.id IN :ids", entityClass)
+            .setParameter("ids", ids)
+            .getResultList();
+   }
+
+   /**
+    * Returns the ids of the chunks of a payload, in order, without loading the payload.
+    */
+   public List<Long> findChunkIdsByPayload(Long payloadId) {
+      return entityManager.get().createQuery("SELECT c FROM " + PayloadEntity.class.getName() + " p JOIN p.chunks c "
+            + "WHERE p.id = :payloadId ORDER BY INDEX(c)", Long.class)
+            .setParameter("payloadId", payloadId)
+            .getResultList();
+   }
+
+   /**
+    * Returns the id of a stored chunk with the given hash and size, or null if there is none.
+    */
+   public Long findChunkIdByHash(String hash, int size) {
+      List<Long> ids = entityManager.get().createQuery("SELECT c.id FROM " + entityClass.getName() + " c "
+            + "WHERE c.hash = :hash AND c.size = :size", Long.class)
+            .setParameter("hash", hash)
+            .setParameter("size", size)
+            .setMaxResults(1)
+            .getResultList();
+      return ids.isEmpty() ? null : ids.get(0);
+   }
+
+   /**
+    * Locks the given chunks until the end of the transaction, without loading them.
+    * <p>
+    * A payload referencing chunks it did not write, because they are deduplicated, copied or
+    * joined, locks them before it is saved, and deletes lock the chunks before checking that no
+    * payload references them. So a delete either waits for the new payload and keeps the chunks,
+    * or deletes them first and the new payload finds them missing.
+    *
+    * @return the number of chunks found, and locked
+    */
+   public int lockChunks(Collection<Long> ids) {
+      return entityManager.get().createQuery("UPDATE " + entityClass.getName() + " c SET c.size = c.size "
+            + "WHERE c.id IN :ids")
+            .setParameter("ids", ids)
+            .executeUpdate();
+   }
+
+   /**
+    * Deletes the given chunks except those still referenced by a payload.
+    *
+    * @return the number of deleted chunks
+    */
+   public int deleteUnreferencedChunks(List<Long> ids) {
+      lockChunks(ids);
+      List<Long> orphans = new ArrayList<Long>(ids);
+      orphans.removeAll(entityManager.get().createQuery("SELECT DISTINCT c FROM " + PayloadEntity.class.getName()
+            + " p JOIN p.chunks c WHERE c IN :ids", Long.class)
+            .setParameter("ids", ids)
+            .getResultList());
+      return orphans.isEmpty() ? 0 : deleteChunksByIds(orphans);
+   }
+
+   public int deleteChunksByIds(List<Long> ids) {
+      return entityManager.get().createQuery("DELETE FROM " + entityClass.getName() + " c WHERE c.id IN :ids")
+            .setParameter("ids", ids)
+            .executeUpdate();
+   }
+
 }
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.repository;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jclouds.jdbc.reference.JdbcConstants;
+
+import javax.inject.Named;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of container ids by container name. Only existing containers are cached, and the
+ * entries are invalidated whenever a container is created or deleted, once the change is
+ * committed.
+ * <p>
+ * An id read from the database is only cached if no invalidation happened since the read started,
+ * see {@link #token()}, so that an id read before a change is committed is not cached after the
+ * invalidation of the change.
+ */
+@Singleton
+public class ContainerIdCache {
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CONTAINER_CACHE_SIZE)
+   private long maximumSize = JdbcConstants.DEFAULT_CONTAINER_CACHE_SIZE;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CONTAINER_CACHE_EXPIRY)
+   private long expiry = JdbcConstants.DEFAULT_CONTAINER_CACHE_EXPIRY;
+
+   // Built on first use, once the optional settings have been injected
+   private final Supplier<Cache<String, Long>> ids = Suppliers.memoize(new Supplier<Cache<String, Long>>() {
+      @Override
+      public Cache<String, Long> get() {
+         return CacheBuilder.newBuilder()
+               .maximumSize(maximumSize)
+               .expireAfterWrite(expiry, TimeUnit.SECONDS)
+               .recordStats()
+               .build();
+      }
+   });
+
+   private long invalidations;
+
+   public Long get(String containerName) {
+      return ids.get().getIfPresent(containerName);
+   }
+
+   /**
+    * Returns the token to pass to {@link #put(String, Long, long)}, taken before reading the id
+    * from the database.
+    */
+   public synchronized long token() {
+      return invalidations;
+   }
+
+   /**
+    * Caches an id read from the database, unless an entry was invalidated since the token was
+    * taken.
+    */
+   public synchronized void put(String containerName, Long id, long token) {
+      if (token == invalidations) {
+         ids.get().put(containerName, id);
+      }
+   }
+
+   public synchronized void invalidate(String containerName) {
+      invalidations++;
+      ids.get().invalidate(containerName);
+   }
+
+   public synchronized void invalidateAll() {
+      invalidations++;
+      ids.get().invalidateAll();
+   }
+
+   /**
+    * Returns the hit, miss and eviction counts of the cache, to help sizing it.
+    */
+   public CacheStats stats() {
+      return ids.get().stats();
+   }
+
+   public long size() {
+      return ids.get().size();
+   }
+
+}
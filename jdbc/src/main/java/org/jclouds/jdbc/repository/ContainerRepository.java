@@ -25,15 +25,71 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import java.util.List;
 
+/**
+ * Container entities, with their ids cached by name. Creating or deleting a container does not
+ * invalidate the cache, since a concurrent reader could cache the id again before the change is
+ * committed. Callers invalidate it once the transaction is over, see {@link ContainerIdCache}.
+ */
 @Singleton
 public class ContainerRepository extends GenericRepository<ContainerEntity, Long> {
 
+   private final ContainerIdCache containerIds;
+
    @Inject
-   private ContainerRepository(Provider<EntityManager> entityManager) {
+   private ContainerRepository(Provider<EntityManager> entityManager, ContainerIdCache containerIds) {
       super(entityManager);
+      this.containerIds = containerIds;
    }
 
+   /**
+    * Returns the container with the given name, or null if there is no such container. The cached
+    * id, if any, is checked against the loaded container.
+    */
    public ContainerEntity findContainerByName(String name) {
+      Long id = containerIds.get(name);
+      if (id != null) {
+         ContainerEntity containerEntity = find(id);
+         if (containerEntity != null && name.equals(containerEntity.getName())) {
+            return containerEntity;
+         }
+         containerIds.invalidate(name);
+      }
+      long token = containerIds.token();
+      ContainerEntity containerEntity = queryContainerByName(name);
+      if (containerEntity != null) {
+         containerIds.put(name, containerEntity.getId(), token);
+      }
+      return containerEntity;
+   }
+
+   /**
+    * Returns the id of the container with the given name, or null if there is no such container.
+    * Cached ids are returned without querying the database.
+    */
+   public Long findContainerIdByName(String name) {
+      Long id = containerIds.get(name);
+      if (id == null) {
+         long token = containerIds.token();
+         ContainerEntity containerEntity = queryContainerByName(name);
+         if (containerEntity == null) {
+            return null;
+         }
+         id = containerEntity.getId();
+         containerIds.put(name, id, token);
+      }
+      return id;
+   }
+
+   /**
+    * Returns a reference to the container with the given name that can be used in queries and
+    * associations without loading the container, or null if there is no such container.
+    */
+   public ContainerEntity getContainerReference(String name) {
+      Long id = findContainerIdByName(name);
+      return id == null ? null : getReference(id);
+   }
+
+   private ContainerEntity queryContainerByName(String name) {
       try {
          return entityManager.get().createQuery("SELECT c FROM " + entityClass.getName() + " c WHERE c.name = :name", entityClass)
                .setParameter("name", name)
@@ -22,6 +22,7 @@ import com.google.inject.Provider;
 import javax.persistence.EntityManager;
 import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
+import java.util.Collection;
 
 public abstract class GenericRepository<T, PK extends Serializable> {
 
@@ -44,6 +45,14 @@ public abstract class GenericRepository<T, PK extends Serializable> {
       return entityManager.get().find(entityClass, id);
    }
 
+   /**
+    * Returns an entity whose state may be lazily fetched, so it can be used in associations and
+    * query parameters without loading it.
+    */
+   public T getReference(PK id) {
+      return entityManager.get().getReference(entityClass, id);
+   }
+
    public T save(T entity) {
       return entityManager.get().merge(entity);
    }
@@ -52,4 +61,22 @@ public abstract class GenericRepository<T, PK extends Serializable> {
       entityManager.get().remove(entity);
    }
 
+   /**
+    * Writes the pending changes to the database, so native statements see them.
+    */
+   public void flush() {
+      entityManager.get().flush();
+   }
+
+   /**
+    * Writes the pending changes to the database and detaches the given entities, so the memory
+    * they hold can be reclaimed before the transaction ends. Other managed entities stay managed.
+    */
+   public void flushAndDetach(Collection<T> entities) {
+      entityManager.get().flush();
+      for (T entity : entities) {
+         entityManager.get().detach(entity);
+      }
+   }
+
 }
@@ -17,34 +17,56 @@
 package org.jclouds.jdbc.service;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashingInputStream;
 import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.persist.Transactional;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.io.ContentMetadata;
 import org.jclouds.jdbc.conversion.BlobToBlobEntity;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.BlobEntityPK;
 import org.jclouds.jdbc.entity.ChunkEntity;
 import org.jclouds.jdbc.entity.ContainerEntity;
 import org.jclouds.jdbc.entity.PayloadEntity;
+import org.jclouds.jdbc.metrics.JdbcMetrics;
+import org.jclouds.jdbc.metrics.TimedInputStream;
 import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.repository.BlobFilter;
 import org.jclouds.jdbc.repository.BlobRepository;
+import org.jclouds.jdbc.repository.BlobSummary;
+import org.jclouds.jdbc.repository.ChunkCache;
 import org.jclouds.jdbc.repository.ChunkRepository;
+import org.jclouds.jdbc.repository.ContainerIdCache;
 import org.jclouds.jdbc.repository.ContainerRepository;
+import org.jclouds.jdbc.util.ChunkCodec;
 import org.jclouds.util.Closeables2;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import javax.inject.Named;
+
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.io.BaseEncoding.base16;
 
 @Singleton
@@ -56,26 +78,75 @@ public class JdbcService {
    private final BlobRepository blobRepository;
    private final ChunkRepository chunkRepository;
    private final BlobToBlobEntity blobToBlobEntity;
+   private final ParallelChunkWriter parallelChunkWriter;
+   private final JdbcMetrics metrics;
+   private final ChunkCache chunkCache;
+   private final ContainerIdCache containerIds;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CHUNK_SIZE)
+   private int chunkSize = JdbcConstants.DEFAULT_CHUNK_SIZE;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_MAX_CHUNK_SIZE)
+   private int maxChunkSize = JdbcConstants.DEFAULT_MAX_CHUNK_SIZE;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CHUNK_CODEC)
+   private ChunkCodec chunkCodec = ChunkCodec.NONE;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_INLINE_THRESHOLD)
+   private int inlineThreshold = JdbcConstants.DEFAULT_INLINE_THRESHOLD;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CHUNK_FLUSH_INTERVAL)
+   private int chunkFlushInterval = JdbcConstants.DEFAULT_CHUNK_FLUSH_INTERVAL;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_DELETE_BATCH_SIZE)
+   private int deleteBatchSize = JdbcConstants.DEFAULT_DELETE_BATCH_SIZE;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CHUNK_DEDUP)
+   private boolean chunkDedup = JdbcConstants.DEFAULT_CHUNK_DEDUP;
 
    @Inject
    JdbcService(ContainerRepository containerRepository, BlobRepository blobRepository, ChunkRepository chunkRepository,
-         BlobToBlobEntity blobToBlobEntity) {
+         BlobToBlobEntity blobToBlobEntity, ParallelChunkWriter parallelChunkWriter, JdbcMetrics metrics,
+         ChunkCache chunkCache, ContainerIdCache containerIds) {
       this.containerRepository = containerRepository;
       this.blobRepository = blobRepository;
       this.chunkRepository = chunkRepository;
       this.blobToBlobEntity = blobToBlobEntity;
+      this.parallelChunkWriter = parallelChunkWriter;
+      this.metrics = metrics;
+      this.chunkCache = chunkCache;
+      this.containerIds = containerIds;
    }
 
-   @Transactional
    public void createContainer(String containerName, ContainerAccess access) {
-      containerRepository.create(ContainerEntity.builder().name(containerName).containerAccess(access).build());
+      try {
+         insertContainer(containerName, access);
+      } finally {
+         containerIds.invalidate(containerName);
+      }
    }
 
-   @Transactional
    public void createContainer(String containerName) {
       createContainer(containerName, null);
    }
 
+   /**
+    * Container changes run in their own transaction, and the public methods invalidate the cached
+    * id of the container once it is committed or rolled back. Otherwise a concurrent reader could
+    * cache the id it read before the change for the whole cache expiry.
+    */
+   @Transactional
+   protected void insertContainer(String containerName, ContainerAccess access) {
+      containerRepository.create(ContainerEntity.builder().name(containerName).containerAccess(access).build());
+   }
+
    @Transactional
    public List<ContainerEntity> findAllContainers() {
       return containerRepository.findAllContainers();
@@ -86,8 +157,16 @@ public class JdbcService {
       return containerRepository.findContainerByName(containerName);
    }
 
-   @Transactional
    public void deleteContainerByName(String containerName) {
+      try {
+         removeContainer(containerName);
+      } finally {
+         containerIds.invalidate(containerName);
+      }
+   }
+
+   @Transactional
+   protected void removeContainer(String containerName) {
       containerRepository.deleteContainerByName(containerName);
    }
 
@@ -98,21 +177,156 @@ public class JdbcService {
       containerRepository.save(containerEntity);
    }
 
+   /**
+    * Checks if a container exists, without querying the database when its id is cached.
+    */
+   @Transactional
+   public boolean containerExists(String containerName) {
+      return containerRepository.findContainerIdByName(containerName) != null;
+   }
+
    @Transactional
    public boolean blobExists(String containerName, String key) {
-      return findBlobById(containerName, key) != null;
+      ContainerEntity containerEntity = containerRepository.getContainerReference(containerName);
+      return containerEntity != null
+            && blobRepository.countBlobs(BlobFilter.inContainer(containerEntity).withKey(key)) > 0;
    }
 
-   @Transactional(rollbackOn = IOException.class)
    public BlobEntity createOrModifyBlob(String containerName, Blob blob, BlobAccess blobAccess) throws IOException {
-      List<Long> chunks;
-      HashingInputStream his = new HashingInputStream(Hashing.md5(), blob.getPayload().openStream());
+      Long contentLength = blob.getPayload().getContentMetadata().getContentLength();
+      return storeBlob(containerName, blob, blobAccess, chunkSize(contentLength), inlineThreshold());
+   }
+
+   /**
+    * Stores a part of a multipart upload as a blob. Parts are never stored inline and always use
+    * the configured chunk size, so that {@link #completeMultipartUpload} can join them. Each part
+    * is stored in its own transaction, so parts uploaded by different threads are written
+    * concurrently over separate connections.
+    */
+   public BlobEntity createMultipartPart(String containerName, Blob blob) throws IOException {
+      return storeBlob(containerName, blob, BlobAccess.PRIVATE, chunkSize(null), 0);
+   }
+
+   /**
+    * Stores a blob in its own transaction. Chunks stored by the parallel chunk writer are committed
+    * independently, so they are discarded when the transaction fails, including when it fails to
+    * commit. The transaction has rolled back by then, so it no longer holds locks on them.
+    */
+   private BlobEntity storeBlob(String containerName, Blob blob, BlobAccess blobAccess, int chunkSize,
+         int inlineThreshold) throws IOException {
+      List<Long> parallelChunks = new ArrayList<Long>();
+      try {
+         return insertBlob(containerName, blob, blobAccess, chunkSize, inlineThreshold, parallelChunks);
+      } catch (IOException e) {
+         parallelChunkWriter.discard(parallelChunks, e);
+         throw e;
+      } catch (RuntimeException e) {
+         parallelChunkWriter.discard(parallelChunks, e);
+         throw e;
+      }
+   }
+
+   /**
+    * @param parallelChunks receives the chunks stored by the parallel chunk writer
+    */
+   @Transactional(rollbackOn = IOException.class)
+   protected BlobEntity insertBlob(String containerName, Blob blob, BlobAccess blobAccess, int chunkSize,
+         int inlineThreshold, List<Long> parallelChunks) throws IOException {
+      Long contentLength = blob.getPayload().getContentMetadata().getContentLength();
+      boolean parallel = parallelChunkWriter.isEnabled();
+      List<Long> chunks = ImmutableList.of();
+      byte[] inlineData = null;
+      // When measured, the time spent reading the payload and hashing it is told apart from the rest
+      boolean measured = metrics.isEnabled();
+      InputStream payload = blob.getPayload().openStream();
+      TimedInputStream payloadReads = measured ? new TimedInputStream(payload) : null;
+      CountingInputStream counter = new CountingInputStream(measured ? payloadReads : payload);
+      HashingInputStream his = new HashingInputStream(Hashing.md5(), counter);
+      TimedInputStream hashedReads = measured ? new TimedInputStream(his) : null;
       try {
-         chunks = storeData(his);
+         InputStream data = measured ? hashedReads : his;
+         if (inlineThreshold > 0 && (contentLength == null || contentLength <= inlineThreshold)) {
+            PushbackInputStream in = new PushbackInputStream(data, inlineThreshold + 1);
+            inlineData = readInline(in, inlineThreshold);
+            data = in;
+         }
+         if (inlineData == null) {
+            long start = measured ? System.nanoTime() : 0;
+            long queries = measured ? metrics.queries() : 0;
+            if (parallel) {
+               chunks = parallelChunkWriter.storeData(data, chunkSize, chunkCodec);
+               parallelChunks.addAll(chunks);
+            } else {
+               chunks = storeData(data, chunkSize, chunkCodec);
+            }
+            if (measured) {
+               recordPhase("storeData", containerName, blob, System.nanoTime() - start, metrics.queries() - queries);
+            }
+         }
       } finally {
          Closeables2.closeQuietly(his);
       }
-      HashCode actualHashCode = his.hash();
+      if (measured) {
+         recordPhase("readPayload", containerName, blob, payloadReads.getNanos(), 0);
+         recordPhase("hashPayload", containerName, blob, hashedReads.getNanos() - payloadReads.getNanos(), 0);
+      }
+      return saveBlob(containerName, blob, blobAccess, chunks, inlineData == null ? chunkSize : null, inlineData,
+            counter.getCount(), his.hash());
+   }
+
+   private void recordPhase(String phase, String containerName, Blob blob, long nanos, long queries) {
+      metrics.operationCompleted(phase, new Object[] { containerName, blob.getMetadata().getName() }, nanos, queries,
+            false);
+   }
+
+   private int inlineThreshold() {
+      checkState(inlineThreshold >= 0 && inlineThreshold <= JdbcConstants.MAX_INLINE_SIZE,
+            "%s must be between 0 and %s: %s", JdbcConstants.PROPERTY_INLINE_THRESHOLD, JdbcConstants.MAX_INLINE_SIZE,
+            inlineThreshold);
+      return inlineThreshold;
+   }
+
+   /**
+    * Reads the data when it fits in the inline threshold. Otherwise the bytes read are pushed back
+    * so the data can be stored in chunks.
+    *
+    * @return the data, or null if it is larger than the inline threshold
+    */
+   private static byte[] readInline(PushbackInputStream in, int inlineThreshold) throws IOException {
+      byte[] head = new byte[inlineThreshold + 1];
+      int bytes = ByteStreams.read(in, head, 0, head.length);
+      if (bytes <= inlineThreshold) {
+         return Arrays.copyOf(head, bytes);
+      }
+      in.unread(head, 0, bytes);
+      return null;
+   }
+
+   /**
+    * Picks the chunk size of a blob. A blob smaller than a chunk gets a single chunk of its own
+    * size, and the chunk size of a large blob is doubled, up to the maximum chunk size, until the
+    * blob fits in {@link JdbcConstants#ADAPTIVE_CHUNK_COUNT} chunks.
+    *
+    * @param contentLength length of the blob, or null if unknown
+    */
+   int chunkSize(Long contentLength) {
+      checkState(chunkSize > 0 && chunkSize <= JdbcConstants.MAX_CHUNK_SIZE, "%s must be between 1 and %s: %s",
+            JdbcConstants.PROPERTY_CHUNK_SIZE, JdbcConstants.MAX_CHUNK_SIZE, chunkSize);
+      if (contentLength == null) {
+         return chunkSize;
+      } else if (contentLength < chunkSize) {
+         return (int) Math.max(contentLength, 1);
+      }
+      int limit = Math.min(Math.max(maxChunkSize, chunkSize), JdbcConstants.MAX_CHUNK_SIZE);
+      int size = chunkSize;
+      while (size <= limit / 2 && contentLength > (long) size * JdbcConstants.ADAPTIVE_CHUNK_COUNT) {
+         size *= 2;
+      }
+      return size;
+   }
+
+   private BlobEntity saveBlob(String containerName, Blob blob, BlobAccess blobAccess, List<Long> chunks,
+         Integer chunkSize, byte[] inlineData, long bytesRead, HashCode actualHashCode) throws IOException {
       HashCode expectedHashCode = blob.getPayload().getContentMetadata().getContentMD5AsHashCode();
       if (expectedHashCode != null && !actualHashCode.equals(expectedHashCode)) {
          throw new IOException("MD5 hash code mismatch, actual: " + actualHashCode +
@@ -121,13 +335,23 @@ public class JdbcService {
 
       String key = blob.getMetadata().getName();
       Date creationDate = null;
+      Long oldPayloadId = null;
       BlobEntity oldBlobEntity = findBlobById(containerName, key);
       if (oldBlobEntity != null) {
          creationDate = oldBlobEntity.getCreationDate();
+         oldPayloadId = oldBlobEntity.getPayload().getId();
       }
       BlobEntity blobEntity = blobToBlobEntity.apply(blob);
+      if (blobEntity.getPayload().getContentLength() == null) {
+         // Record the length read when the payload did not declare one, parts need it to be joined
+         blobEntity.getPayload().setContentLength(bytesRead);
+         blobEntity.setSize(bytesRead);
+      }
       blobEntity.getPayload().setChunks(chunks);
-      blobEntity.setContainerEntity(containerRepository.findContainerByName(containerName));
+      blobEntity.getPayload().setChunkSize(chunkSize);
+      blobEntity.getPayload().setCodec(inlineData == null ? chunkCodec : null);
+      blobEntity.getPayload().setInlineData(inlineData);
+      blobEntity.setContainerEntity(containerRepository.getContainerReference(containerName));
       blobEntity.setKey(key);
       blobEntity.setBlobAccess(blobAccess);
       blobEntity.setTier(blob.getMetadata().getTier());
@@ -136,10 +360,188 @@ public class JdbcService {
       blobEntity.setEtag(base16().lowerCase().encode(actualHashCode.asBytes()));
       blobEntity.getPayload().setContentMD5(actualHashCode.asBytes());
 
+      // Chunks reused by the chunk writer threads were only locked until their own transaction ended.
+      // If the save fails they are discarded once this transaction has rolled back and released them.
+      if (chunkDedup && parallelChunkWriter.isEnabled() && !lockChunks(chunks)) {
+         throw new IOException("Stored chunks were deleted concurrently");
+      }
+      BlobEntity result = blobRepository.save(blobEntity);
+      releasePayload(oldPayloadId);
+      return result;
+   }
+
+   /**
+    * Copies a blob without reading or writing its content. The copy gets a new payload that
+    * references the chunks, or holds the inline data, of the source payload, and keeps its MD5 and
+    * ETag. Stored chunks are never modified and are only deleted once no payload references them,
+    * so they can be shared.
+    *
+    * @param contentMetadata content metadata replacing the one of the source, or null to keep it
+    * @param userMetadata user metadata replacing the one of the source, or null to keep it
+    * @return the copy, or null if the source blob does not exist
+    */
+   @Transactional
+   public BlobEntity copyBlob(String fromContainer, String fromName, String toContainer, String toName,
+         ContentMetadata contentMetadata, Map<String, String> userMetadata) {
+      BlobEntity source = findBlobById(fromContainer, fromName);
+      if (source == null) {
+         return null;
+      }
+      PayloadEntity sourcePayload = source.getPayload();
+      List<Long> chunks = chunkRepository.findChunkIdsByPayload(sourcePayload.getId());
+      if (!lockChunks(chunks)) {
+         // The source was deleted concurrently
+         return null;
+      }
+      PayloadEntity.Builder builder = PayloadEntity.builder()
+            .chunks(chunks)
+            .contentLength(sourcePayload.getContentLength())
+            .contentMD5(sourcePayload.getContentMD5());
+      if (contentMetadata == null) {
+         builder.cacheControl(sourcePayload.getCacheControl())
+               .contentDisposition(sourcePayload.getContentDisposition())
+               .contentEncoding(sourcePayload.getContentEncoding())
+               .contentLanguage(sourcePayload.getContentLanguage())
+               .contentType(sourcePayload.getContentType())
+               .expires(sourcePayload.getExpires());
+      } else {
+         builder.cacheControl(contentMetadata.getCacheControl())
+               .contentDisposition(contentMetadata.getContentDisposition())
+               .contentEncoding(contentMetadata.getContentEncoding())
+               .contentLanguage(contentMetadata.getContentLanguage())
+               .contentType(contentMetadata.getContentType())
+               .expires(contentMetadata.getExpires());
+      }
+      PayloadEntity payload = builder.build();
+      payload.setChunkSize(sourcePayload.getChunkSize());
+      payload.setCodec(sourcePayload.getCodec());
+      payload.setInlineData(sourcePayload.getInlineData());
+
+      // Copied before saving, the source may be the blob being overwritten
+      Map<String, String> copyUserMetadata = new HashMap<String, String>(
+            userMetadata == null ? source.getUserMetadata() : userMetadata);
+      Date creationDate = null;
+      Long oldPayloadId = null;
+      BlobEntity oldBlobEntity = findBlobById(toContainer, toName);
+      if (oldBlobEntity != null) {
+         creationDate = oldBlobEntity.getCreationDate();
+         oldPayloadId = oldBlobEntity.getPayload().getId();
+      }
+      BlobEntity blobEntity = BlobEntity.builder(containerRepository.getContainerReference(toContainer), toName)
+            .payload(payload)
+            .userMetadata(copyUserMetadata)
+            .size(source.getSize())
+            .etag(source.getEtag())
+            .directory(source.isDirectory())
+            .build();
+      blobEntity.setCreationDate(creationDate);
+      blobEntity.setLastModified(new Date());
+
+      BlobEntity result = blobRepository.save(blobEntity);
+      releasePayload(oldPayloadId);
+      return result;
+   }
+
+   /**
+    * Completes a multipart upload without reading or writing its content. The payload of the
+    * final blob references the chunks of the parts one after the other, then the blobs whose key
+    * starts with the upload prefix, the parts and the upload marker, are deleted. The chunks are
+    * kept since the final payload references them. The ETag is computed from the ETags of the
+    * parts, the MD5 of the whole content is not known.
+    *
+    * <p>The chunks can only be joined when the parts share the same chunk size and codec, and
+    * every part but the last one holds a whole number of chunks.
+    *
+    * @param uploadPrefix key prefix of the blobs created by the upload
+    * @param partKeys keys of the parts, in the order of the final content
+    * @return the final blob, or null if a part is missing or the parts can not be joined
+    */
+   @Transactional
+   public BlobEntity completeMultipartUpload(String containerName, String key, String uploadPrefix,
+         List<String> partKeys, BlobMetadata metadata, BlobAccess blobAccess) {
+      List<PayloadEntity> parts = new ArrayList<PayloadEntity>(partKeys.size());
+      Hasher eTagHasher = Hashing.md5().newHasher();
+      for (String partKey : partKeys) {
+         BlobEntity part = findBlobById(containerName, partKey);
+         if (part == null) {
+            return null;
+         }
+         parts.add(part.getPayload());
+         eTagHasher.putBytes(base16().lowerCase().decode(part.getEtag()));
+      }
+      List<Long> chunks = new ArrayList<Long>();
+      long contentLength = 0;
+      Integer partChunkSize = parts.isEmpty() ? chunkSize(null) : parts.get(0).getChunkSize();
+      ChunkCodec partCodec = parts.isEmpty() ? chunkCodec : parts.get(0).getCodec();
+      for (int i = 0; i < parts.size(); i++) {
+         PayloadEntity part = parts.get(i);
+         if (part.getInlineData() != null || part.getContentLength() == null || part.getChunkSize() == null
+               || !part.getChunkSize().equals(partChunkSize) || part.getCodec() != partCodec
+               || (i < parts.size() - 1 && part.getContentLength() % partChunkSize != 0)) {
+            return null;
+         }
+         chunks.addAll(chunkRepository.findChunkIdsByPayload(part.getId()));
+         contentLength += part.getContentLength();
+      }
+      if (!lockChunks(chunks)) {
+         // A part was deleted concurrently
+         return null;
+      }
+
+      ContentMetadata contentMetadata = metadata.getContentMetadata();
+      PayloadEntity payload = PayloadEntity.builder()
+            .chunks(chunks)
+            .cacheControl(contentMetadata.getCacheControl())
+            .contentDisposition(contentMetadata.getContentDisposition())
+            .contentEncoding(contentMetadata.getContentEncoding())
+            .contentLanguage(contentMetadata.getContentLanguage())
+            .contentLength(contentLength)
+            .contentType(contentMetadata.getContentType())
+            .expires(contentMetadata.getExpires())
+            .build();
+      payload.setChunkSize(partChunkSize);
+      payload.setCodec(partCodec);
+
+      Date creationDate = null;
+      Long oldPayloadId = null;
+      BlobEntity oldBlobEntity = findBlobById(containerName, key);
+      if (oldBlobEntity != null) {
+         creationDate = oldBlobEntity.getCreationDate();
+         oldPayloadId = oldBlobEntity.getPayload().getId();
+      }
+      BlobEntity blobEntity = BlobEntity.builder(containerRepository.getContainerReference(containerName), key)
+            .payload(payload)
+            .userMetadata(new HashMap<String, String>(metadata.getUserMetadata()))
+            .size(contentLength)
+            .etag(eTagHasher.hash() + "-" + partKeys.size())
+            .build();
+      blobEntity.setBlobAccess(blobAccess);
+      blobEntity.setTier(metadata.getTier());
+      blobEntity.setCreationDate(creationDate);
+      blobEntity.setLastModified(new Date());
+
       BlobEntity result = blobRepository.save(blobEntity);
+      releasePayload(oldPayloadId);
+      deleteMultipartUpload(containerName, uploadPrefix);
       return result;
    }
 
+   /**
+    * Deletes the blobs created by a multipart upload, the parts and the upload marker, with a
+    * fixed number of statements whatever the number of parts.
+    *
+    * @param uploadPrefix key prefix of the blobs created by the upload
+    */
+   @Transactional
+   public void deleteMultipartUpload(String containerName, String uploadPrefix) {
+      ContainerEntity containerEntity = containerRepository.getContainerReference(containerName);
+      if (containerEntity != null) {
+         // The final payload, if any, must reference the chunks before the parts release them
+         blobRepository.flush();
+         removeBlobs(BlobFilter.inContainer(containerEntity).keyStartingWith(uploadPrefix));
+      }
+   }
+
    @Transactional
    public BlobEntity createDirectoryBlob(String containerName, Blob blob, BlobAccess blobAccess) {
       BlobEntity blobEntity = BlobEntity.builder(null, null)
@@ -147,11 +549,56 @@ public class JdbcService {
             .directory(true)
             .payload(PayloadEntity.builder().contentType("application/directory").build())
             .build();
-      blobEntity.setContainerEntity(containerRepository.findContainerByName(containerName));
+      blobEntity.setContainerEntity(containerRepository.getContainerReference(containerName));
       blobEntity.setKey(blob.getMetadata().getName());
       blobEntity.setBlobAccess(blobAccess);
       blobEntity.setEtag(DIRECTORY_MD5);
-      return blobRepository.save(blobEntity);
+      BlobEntity oldBlobEntity = findBlobById(containerName, blobEntity.getKey());
+      BlobEntity result = blobRepository.save(blobEntity);
+      releasePayload(oldBlobEntity == null ? null : oldBlobEntity.getPayload().getId());
+      return result;
+   }
+
+   /**
+    * Deletes the payload a blob referenced before being overwritten, along with the chunks that
+    * are not shared with other payloads.
+    */
+   private void releasePayload(Long payloadId) {
+      if (payloadId != null) {
+         // The new payload must reference its chunks before the old one releases them
+         blobRepository.flush();
+         List<Long> chunkIds = chunkCache.isEnabled() ? chunkRepository.findChunkIdsByPayload(payloadId) : null;
+         blobRepository.deletePayload(payloadId);
+         if (chunkIds != null) {
+            chunkCache.invalidateAll(chunkIds);
+         }
+      }
+   }
+
+   /**
+    * Locks the stored chunks a new payload references, so they can not be deleted until the
+    * payload is saved, see {@link ChunkRepository#lockChunks}.
+    *
+    * @return false if some of the chunks were deleted in the meantime
+    */
+   private boolean lockChunks(List<Long> chunks) {
+      if (chunks.isEmpty()) {
+         return true;
+      }
+      Set<Long> distinct = ImmutableSet.copyOf(chunks);
+      return chunkRepository.lockChunks(distinct) == distinct.size();
+   }
+
+   /**
+    * Deletes the selected blobs, then drops the chunks of their payloads from the cache. Shared
+    * chunks that are kept are dropped too, they are simply fetched again when read.
+    */
+   private void removeBlobs(BlobFilter filter) {
+      List<Long> chunkIds = chunkCache.isEnabled() ? blobRepository.findChunkIds(filter) : null;
+      blobRepository.deleteBlobs(filter);
+      if (chunkIds != null) {
+         chunkCache.invalidateAll(chunkIds);
+      }
    }
 
    @Transactional
@@ -159,73 +606,217 @@ public class JdbcService {
       return createDirectoryBlob(containerName, blob, null);
    }
 
-   @Transactional(rollbackOn = IOException.class)
    public BlobEntity createOrModifyBlob(String containerName, Blob blob) throws IOException {
       return createOrModifyBlob(containerName, blob, null);
    }
 
    @Transactional
    public BlobEntity findBlobById(String containerName, String key) {
-      ContainerEntity containerEntity = containerRepository.findContainerByName(containerName);
-      return containerEntity == null ? null : blobRepository.find(new BlobEntityPK(containerEntity.getId(), key));
+      Long containerId = containerRepository.findContainerIdByName(containerName);
+      return containerId == null ? null : blobRepository.find(new BlobEntityPK(containerId, key));
+   }
+
+   /**
+    * Reads the metadata of a blob, including its user metadata, without loading its payload or
+    * its chunk list.
+    *
+    * @return the blob metadata, or null if the blob does not exist
+    */
+   @Transactional
+   public BlobSummary findBlobMetadata(String containerName, String key) {
+      ContainerEntity containerEntity = containerRepository.getContainerReference(containerName);
+      if (containerEntity == null) {
+         return null;
+      }
+      BlobFilter filter = BlobFilter.inContainer(containerEntity).withKey(key);
+      List<BlobSummary> summaries = blobRepository.findBlobSummaries(filter, 1);
+      if (summaries.isEmpty()) {
+         return null;
+      }
+      addUserMetadata(summaries, blobRepository.findUserMetadata(filter));
+      return summaries.get(0);
    }
 
+   @Transactional
+   public List<Long> findChunkIdsByPayload(Long payloadId) {
+      return chunkRepository.findChunkIdsByPayload(payloadId);
+   }
+
+   /**
+    * Reads a chunk from the database and adds it to the chunk cache, see {@link ChunkCache}.
+    */
    @Transactional
    public ChunkEntity findChunkById(Long id) {
-      return chunkRepository.find(id);
+      ChunkEntity chunk = chunkRepository.find(id);
+      if (chunk != null) {
+         if (metrics.isEnabled()) {
+            metrics.chunksRead(1, chunk.getData().length);
+         }
+         chunkCache.put(chunk);
+      }
+      return chunk;
+   }
+
+   /**
+    * Reads chunks from the database and adds them to the chunk cache, see {@link ChunkCache}.
+    */
+   @Transactional
+   public List<ChunkEntity> findChunksByIds(List<Long> ids) {
+      List<ChunkEntity> chunks = chunkRepository.findChunksByIds(ids);
+      long bytes = 0;
+      for (ChunkEntity chunk : chunks) {
+         bytes += chunk.getData().length;
+         chunkCache.put(chunk);
+      }
+      if (metrics.isEnabled()) {
+         metrics.chunksRead(chunks.size(), bytes);
+      }
+      return chunks;
    }
 
    @Transactional
-   public List<BlobEntity> findBlobsByContainer(String containerName) {
-      return blobRepository.findBlobsByContainer(containerRepository.findContainerByName(containerName));
+   public List<String> findBlobKeysByContainer(String containerName) {
+      ContainerEntity containerEntity = containerRepository.getContainerReference(containerName);
+      return containerEntity == null ? ImmutableList.<String>of()
+            : blobRepository.findBlobKeys(BlobFilter.inContainer(containerEntity), 0);
    }
 
+   /**
+    * Lists the metadata of the blobs whose key starts with the given prefix and sorts after the
+    * given marker, in ascending key order.
+    *
+    * @param directoryName only list the blobs inside this directory, or null to list every blob
+    * @param prefix key prefix, or null to list every blob
+    * @param delimiter group the keys holding this delimiter after the directory or prefix under
+    *           their common prefix, or null to list every blob on its own
+    * @param marker key after which the listing starts, or null to start from the first blob
+    * @param limit maximum number of blobs, or common prefixes, to return
+    * @param withUserMetadata whether to load the user metadata of the returned blobs
+    * @return the blob metadata, or null if the container does not exist
+    */
    @Transactional
-   public List<BlobEntity> findBlobsByDirectory(String containerName, String directoryName, boolean recursive) {
-      ImmutableList.Builder<BlobEntity> result = ImmutableList.builder();
-      List<BlobEntity> blobEntities = blobRepository
-            .findBlobsByDirectory(containerRepository.findContainerByName(containerName), directoryName);
-      result.addAll(blobEntities);
-      if (recursive) {
-         for (BlobEntity blobEntity : blobEntities) {
-            if (blobEntity.isDirectory()) {
-               result.addAll(findBlobsByDirectory(containerName, blobEntity.getKey(), true));
+   public List<BlobSummary> listBlobs(String containerName, String directoryName, String prefix, String delimiter,
+         String marker, int limit, boolean withUserMetadata) {
+      ContainerEntity containerEntity = containerRepository.getContainerReference(containerName);
+      if (containerEntity == null) {
+         return null;
+      }
+      BlobFilter filter = BlobFilter.inContainer(containerEntity);
+      String keyPrefix = prefix == null ? "" : prefix;
+      if (directoryName != null) {
+         filter = filter.inDirectory(directoryName, true);
+         keyPrefix = directoryName.endsWith("/") ? directoryName : directoryName + "/";
+      }
+      if (prefix != null) {
+         filter = filter.keyStartingWith(prefix);
+      }
+      if (delimiter != null) {
+         List<BlobSummary> summaries = blobRepository.findBlobSummaries(filter, keyPrefix, delimiter, marker, limit);
+         List<String> keys = new ArrayList<String>(summaries.size());
+         for (BlobSummary summary : summaries) {
+            if (!summary.isCommonPrefix()) {
+               keys.add(summary.getKey());
             }
          }
+         if (withUserMetadata && !keys.isEmpty()) {
+            addUserMetadata(summaries, blobRepository.findUserMetadata(filter, keys));
+         }
+         return summaries;
+      }
+      if (marker != null) {
+         filter = filter.after(marker);
+      }
+      List<BlobSummary> summaries = blobRepository.findBlobSummaries(filter, limit);
+      if (withUserMetadata && !summaries.isEmpty()) {
+         addUserMetadata(summaries,
+               blobRepository.findUserMetadata(filter.upTo(summaries.get(summaries.size() - 1).getKey())));
+      }
+      return summaries;
+   }
+
+   /**
+    * Attaches (blob key, metadata key, metadata value) rows to the matching blob summaries.
+    */
+   private static void addUserMetadata(List<BlobSummary> summaries, List<Object[]> rows) {
+      Map<String, Map<String, String>> userMetadata = new HashMap<String, Map<String, String>>();
+      for (Object[] row : rows) {
+         Map<String, String> entries = userMetadata.get(row[0]);
+         if (entries == null) {
+            entries = new HashMap<String, String>();
+            userMetadata.put((String) row[0], entries);
+         }
+         entries.put((String) row[1], (String) row[2]);
+      }
+      for (BlobSummary summary : summaries) {
+         Map<String, String> entries = userMetadata.get(summary.getKey());
+         if (entries != null) {
+            summary.setUserMetadata(entries);
+         }
       }
-      return result.build();
    }
 
+   /**
+    * Counts the blobs in a container, or only those inside a directory when one is given.
+    *
+    * @return the number of blobs, or 0 if the container does not exist
+    */
    @Transactional
+   public long countBlobs(String containerName, String directoryName, boolean recursive) {
+      ContainerEntity containerEntity = containerRepository.getContainerReference(containerName);
+      if (containerEntity == null) {
+         return 0;
+      }
+      BlobFilter filter = BlobFilter.inContainer(containerEntity);
+      return blobRepository.countBlobs(directoryName == null ? filter : filter.inDirectory(directoryName, recursive));
+   }
+
    public void deleteBlobsByContainer(String containerName) {
-      List<BlobEntity> blobs = findBlobsByContainer(containerName);
-      for (BlobEntity blob : blobs) {
-         deleteBlob(containerName, blob.getKey());
+      ContainerEntity containerEntity = findContainerByName(containerName);
+      if (containerEntity != null) {
+         deleteBlobs(BlobFilter.inContainer(containerEntity));
       }
    }
 
-   @Transactional
+   /**
+    * Deletes the blobs inside a directory, and its subdirectories along with their content when
+    * recursive. Otherwise the subdirectory blobs are kept, so their content is still reachable.
+    * The directory blob itself is kept.
+    */
    public void deleteBlobsByDirectory(String containerName, String directoryName, boolean recursive) {
-      List<BlobEntity> blobs = findBlobsByDirectory(containerName, directoryName, false);
-      for (BlobEntity blob : blobs) {
-         if (!blob.isDirectory()) {
-            deleteBlob(containerName, blob.getKey());
-         }
-         else {
-            if (recursive) {
-               deleteBlobsByDirectory(containerName, blob.getKey(), true);
-               deleteBlob(containerName, blob.getKey());
-            }
-         }
+      ContainerEntity containerEntity = findContainerByName(containerName);
+      if (containerEntity != null) {
+         deleteBlobs(BlobFilter.inContainer(containerEntity).inDirectory(directoryName, recursive)
+               .includingDirectories(recursive));
+      }
+   }
+
+   /**
+    * Deletes the selected blobs in batches of {@link JdbcConstants#PROPERTY_DELETE_BATCH_SIZE}
+    * blobs. Each batch runs in its own transaction unless the caller already started one.
+    */
+   private void deleteBlobs(BlobFilter filter) {
+      while (deleteBlobBatch(filter)) {
+         // Keep going until the last batch has been deleted
       }
    }
 
+   /**
+    * Deletes the first batch of selected blobs.
+    *
+    * @return true if there may be more blobs to delete
+    */
+   @Transactional
+   protected boolean deleteBlobBatch(BlobFilter filter) {
+      String lastKey = deleteBatchSize > 0 ? blobRepository.findKeyAt(filter, deleteBatchSize - 1) : null;
+      removeBlobs(lastKey == null ? filter : filter.upTo(lastKey));
+      return lastKey != null;
+   }
+
    @Transactional
    public void deleteBlob(String containerName, String key) {
-      BlobEntity blobEntity = findBlobById(containerName, key);
-      if (blobEntity != null) {
-         deleteChunks(blobEntity.getPayload().getChunks());
-         blobRepository.delete(blobEntity);
+      ContainerEntity containerEntity = containerRepository.getContainerReference(containerName);
+      if (containerEntity != null) {
+         removeBlobs(BlobFilter.inContainer(containerEntity).withKey(key));
       }
    }
 
@@ -236,25 +827,53 @@ public class JdbcService {
       blobRepository.save(blobEntity);
    }
 
-   @Transactional
-   private void deleteChunks(List<Long> chunkIds) {
-      for (Long chunkId : chunkIds) {
-         chunkRepository.delete(chunkRepository.find(chunkId));
-      }
-   }
-
-   @Transactional(rollbackOn = IOException.class)
-   private List<Long> storeData(InputStream data) throws IOException {
+   /**
+    * Splits the data in chunks of the given size and stores them encoded with the given codec.
+    * Chunk buffers are recycled once the chunks that reference them have been flushed, so the
+    * memory used does not depend on the size of the data. When deduplication is enabled, chunks
+    * whose content is already stored are reused.
+    */
+   private List<Long> storeData(InputStream data, int chunkSize, ChunkCodec codec) throws IOException {
       ImmutableList.Builder<Long> chunks = ImmutableList.builder();
+      Deque<byte[]> freeBuffers = new ArrayDeque<byte[]>();
+      List<byte[]> pendingBuffers = new ArrayList<byte[]>();
+      List<ChunkEntity> unflushedChunks = new ArrayList<ChunkEntity>();
+      int writtenChunks = 0;
+      long writtenBytes = 0;
       while (true) {
-         byte[] buffer = new byte[JdbcConstants.DEFAULT_CHUNK_SIZE];
-         int bytes = ByteStreams.read(data, buffer, 0, JdbcConstants.DEFAULT_CHUNK_SIZE);
+         byte[] buffer = freeBuffers.isEmpty() ? new byte[chunkSize] : freeBuffers.pop();
+         int bytes = ByteStreams.read(data, buffer, 0, buffer.length);
          if (bytes == 0) {
             break;
-         } else if (bytes != buffer.length) {
-            buffer = Arrays.copyOf(buffer, bytes);
          }
-         chunks.add(chunkRepository.create(new ChunkEntity(buffer, bytes)).getId());
+         String hash = chunkDedup ? codec.hash(buffer, bytes) : null;
+         Long storedChunk = hash == null ? null : chunkRepository.findChunkIdByHash(hash, bytes);
+         if (storedChunk != null && lockChunks(ImmutableList.of(storedChunk))) {
+            freeBuffers.push(buffer);
+            chunks.add(storedChunk);
+            continue;
+         }
+         byte[] stored = codec.encode(buffer, bytes);
+         if (stored == buffer) {
+            pendingBuffers.add(buffer);
+         } else {
+            freeBuffers.push(buffer);
+         }
+         ChunkEntity chunk = chunkRepository.create(new ChunkEntity(stored, bytes, hash));
+         chunks.add(chunk.getId());
+         unflushedChunks.add(chunk);
+         writtenChunks++;
+         writtenBytes += stored.length;
+         if (unflushedChunks.size() >= chunkFlushInterval) {
+            // Only the chunks are detached, the entities loaded by the caller stay managed
+            chunkRepository.flushAndDetach(unflushedChunks);
+            freeBuffers.addAll(pendingBuffers);
+            pendingBuffers.clear();
+            unflushedChunks.clear();
+         }
+      }
+      if (metrics.isEnabled()) {
+         metrics.chunksWritten(writtenChunks, writtenBytes);
       }
       return chunks.build();
    }
@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.service;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.persist.Transactional;
+import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.metrics.JdbcMetrics;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.repository.ChunkRepository;
+import org.jclouds.jdbc.util.ChunkCodec;
+import org.jclouds.lifecycle.Closer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Named;
+
+/**
+ * Stores the chunks of a blob concurrently. The caller thread reads the data while a bounded
+ * pool of workers inserts the chunks, each one in its own transaction and therefore over its own
+ * connection. The order of the chunks is given by the returned id list.
+ * <p>
+ * Chunks written by the workers are committed independently of the caller's transaction, so if
+ * the upload fails they are deleted before the failure is reported.
+ */
+@Singleton
+public class ParallelChunkWriter {
+
+   private final ChunkRepository chunkRepository;
+   private final JdbcMetrics metrics;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CHUNK_WRITER_THREADS)
+   private int writerThreads = JdbcConstants.DEFAULT_CHUNK_WRITER_THREADS;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CHUNK_DEDUP)
+   private boolean chunkDedup = JdbcConstants.DEFAULT_CHUNK_DEDUP;
+
+   private ExecutorService executor;
+
+   @Inject
+   ParallelChunkWriter(ChunkRepository chunkRepository, JdbcMetrics metrics, Closer closer) {
+      this.chunkRepository = chunkRepository;
+      this.metrics = metrics;
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() {
+            shutdown();
+         }
+      });
+   }
+
+   public boolean isEnabled() {
+      return writerThreads > 0;
+   }
+
+   /**
+    * Splits the data in chunks of the given size and stores them using the worker pool, which
+    * also encodes them.
+    *
+    * @return the ids of the stored chunks, in order
+    */
+   public List<Long> storeData(InputStream data, int chunkSize, ChunkCodec codec) throws IOException {
+      ExecutorService executor = executor();
+      int maxBuffers = writerThreads * 2;
+      BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<byte[]>(maxBuffers);
+      AtomicBoolean aborted = new AtomicBoolean(false);
+      List<Future<Long>> futures = new ArrayList<Future<Long>>();
+      int allocatedBuffers = 0;
+      int checkedChunks = 0;
+      try {
+         while (true) {
+            checkedChunks = checkFailures(futures, checkedChunks);
+            byte[] buffer = freeBuffers.poll();
+            if (buffer == null && allocatedBuffers < maxBuffers) {
+               buffer = new byte[chunkSize];
+               allocatedBuffers++;
+            } else if (buffer == null) {
+               buffer = freeBuffers.take();
+            }
+            int bytes = ByteStreams.read(data, buffer, 0, buffer.length);
+            if (bytes == 0) {
+               break;
+            } else if (bytes != buffer.length) {
+               byte[] tail = Arrays.copyOf(buffer, bytes);
+               freeBuffers.offer(buffer);
+               futures.add(executor.submit(new StoreChunk(tail, bytes, codec, null, aborted)));
+            } else {
+               futures.add(executor.submit(new StoreChunk(buffer, bytes, codec, freeBuffers, aborted)));
+            }
+         }
+         ImmutableList.Builder<Long> chunks = ImmutableList.builder();
+         for (Future<Long> future : futures) {
+            chunks.add(getChunkId(future));
+         }
+         return chunks.build();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         InterruptedIOException failure = new InterruptedIOException("Interrupted while storing chunks");
+         abort(futures, aborted, failure);
+         throw failure;
+      } catch (IOException e) {
+         abort(futures, aborted, e);
+         throw e;
+      } catch (RuntimeException e) {
+         abort(futures, aborted, e);
+         throw e;
+      }
+   }
+
+   /**
+    * Deletes chunks that were stored by {@link #storeData(InputStream, int, ChunkCodec)} but will not be
+    * referenced by any blob. Reused chunks that other payloads reference are kept. The deletion
+    * runs in a worker thread, in its own transaction, so callers discard chunks once their own
+    * transaction has ended, as it may hold locks on them.
+    */
+   public void discard(List<Long> chunkIds) throws IOException {
+      if (chunkIds.isEmpty()) {
+         return;
+      }
+      final List<Long> ids = ImmutableList.copyOf(chunkIds);
+      Future<Void> future = executor().submit(new Callable<Void>() {
+         @Override
+         public Void call() {
+            deleteChunks(ids);
+            return null;
+         }
+      });
+      try {
+         future.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while discarding chunks");
+      } catch (ExecutionException e) {
+         Throwables.propagateIfPossible(e.getCause(), IOException.class);
+         throw new IOException(e.getCause());
+      }
+   }
+
+   /**
+    * Discards chunks after a failed upload. A failure to delete them is attached to the upload
+    * failure, which is the one reported to the caller.
+    */
+   public void discard(List<Long> chunkIds, Exception failure) {
+      try {
+         discard(chunkIds);
+      } catch (IOException e) {
+         failure.addSuppressed(e);
+      } catch (RuntimeException e) {
+         failure.addSuppressed(e);
+      }
+   }
+
+   @Transactional
+   public Long storeChunk(ChunkEntity chunk) {
+      if (chunk.getHash() != null) {
+         Long storedChunk = chunkRepository.findChunkIdByHash(chunk.getHash(), chunk.getSize());
+         // Only locked until this transaction ends, the caller locks the chunks again when saving them
+         if (storedChunk != null && chunkRepository.lockChunks(ImmutableList.of(storedChunk)) == 1) {
+            return storedChunk;
+         }
+      }
+      Long id = chunkRepository.create(chunk).getId();
+      if (metrics.isEnabled()) {
+         metrics.chunksWritten(1, chunk.getData().length);
+      }
+      return id;
+   }
+
+   @Transactional
+   public void deleteChunks(List<Long> chunkIds) {
+      chunkRepository.deleteUnreferencedChunks(chunkIds);
+   }
+
+   private void abort(List<Future<Long>> futures, AtomicBoolean aborted, Exception failure) {
+      aborted.set(true);
+      ImmutableList.Builder<Long> stored = ImmutableList.builder();
+      for (Future<Long> future : futures) {
+         try {
+            Long id = future.get();
+            if (id != null) {
+               stored.add(id);
+            }
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         } catch (ExecutionException e) {
+            // Already reported by the chunk that caused the abort
+         }
+      }
+      discard(stored.build(), failure);
+   }
+
+   /**
+    * Reports the failure of any chunk written so far without waiting for the pending ones.
+    *
+    * @return the index of the first chunk that has not completed yet
+    */
+   private static int checkFailures(List<Future<Long>> futures, int from) throws IOException {
+      int index = from;
+      while (index < futures.size() && futures.get(index).isDone()) {
+         getChunkId(futures.get(index));
+         index++;
+      }
+      return index;
+   }
+
+   private static Long getChunkId(Future<Long> future) throws IOException {
+      try {
+         return future.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while storing chunks");
+      } catch (ExecutionException e) {
+         Throwables.propagateIfPossible(e.getCause(), IOException.class);
+         throw new IOException("Could not store chunk", e.getCause());
+      }
+   }
+
+   private synchronized ExecutorService executor() {
+      if (executor == null) {
+         executor = Executors.newFixedThreadPool(Math.max(writerThreads, 1), new ThreadFactoryBuilder()
+               .setNameFormat("jclouds-jdbc-chunk-writer-%d")
+               .setDaemon(true)
+               .build());
+      }
+      return executor;
+   }
+
+   private synchronized void shutdown() {
+      if (executor != null) {
+         executor.shutdownNow();
+         executor = null;
+      }
+   }
+
+   private final class StoreChunk implements Callable<Long> {
+      private final byte[] data;
+      private final int size;
+      private final ChunkCodec codec;
+      private final BlockingQueue<byte[]> freeBuffers;
+      private final AtomicBoolean aborted;
+
+      private StoreChunk(byte[] data, int size, ChunkCodec codec, BlockingQueue<byte[]> freeBuffers,
+            AtomicBoolean aborted) {
+         this.data = data;
+         this.size = size;
+         this.codec = codec;
+         this.freeBuffers = freeBuffers;
+         this.aborted = aborted;
+      }
+
+      @Override
+      public Long call() {
+         try {
+            if (aborted.get()) {
+               return null;
+            }
+            String hash = chunkDedup ? codec.hash(data, size) : null;
+            return storeChunk(new ChunkEntity(codec.encode(data, size), size, hash));
+         } finally {
+            if (freeBuffers != null) {
+               freeBuffers.offer(data);
+            }
+         }
+      }
+   }
+
+}
@@ -20,31 +20,42 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.persistence.PersistenceException;
 
+import org.jclouds.blobstore.ContainerNotFoundException;
+import org.jclouds.blobstore.KeyNotFoundException;
 import org.jclouds.blobstore.LocalStorageStrategy;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.blobstore.domain.BlobBuilder;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
 import org.jclouds.blobstore.domain.MutableStorageMetadata;
+import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.blobstore.domain.internal.MutableStorageMetadataImpl;
+import org.jclouds.blobstore.domain.internal.PageSetImpl;
 import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.domain.Location;
 import org.jclouds.domain.LocationBuilder;
 import org.jclouds.domain.LocationScope;
 import org.jclouds.io.ContentMetadata;
+import org.jclouds.io.Payload;
 import org.jclouds.jdbc.conversion.BlobEntityToBlob;
+import org.jclouds.jdbc.conversion.BlobSummaryToBlobMetadata;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.ContainerEntity;
 import org.jclouds.jdbc.predicates.validators.JdbcBlobKeyValidator;
 import org.jclouds.jdbc.predicates.validators.JdbcContainerNameValidator;
+import org.jclouds.jdbc.repository.BlobSummary;
 import org.jclouds.jdbc.service.JdbcService;
 
 import com.google.common.collect.ImmutableList;
@@ -61,18 +72,20 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
    private final JdbcContainerNameValidator jdbcContainerNameValidator;
    private final JdbcBlobKeyValidator jdbcBlobKeyValidator;
    private final BlobEntityToBlob blobEntityToBlob;
+   private final BlobSummaryToBlobMetadata blobSummaryToBlobMetadata;
    private final Location mockLocation;
 
    @Inject
    JdbcStorageStrategy(Provider<BlobBuilder> blobBuilders,
          JdbcContainerNameValidator jdbcContainerNameValidator, JdbcBlobKeyValidator jdbcBlobKeyValidator,
-         JdbcService jdbcService, BlobEntityToBlob blobEntityToBlob)
+         JdbcService jdbcService, BlobEntityToBlob blobEntityToBlob, BlobSummaryToBlobMetadata blobSummaryToBlobMetadata)
          throws ClassNotFoundException, IllegalAccessException, InstantiationException, SQLException {
       this.jdbcService = jdbcService;
       this.blobBuilders = blobBuilders;
       this.jdbcContainerNameValidator = jdbcContainerNameValidator;
       this.jdbcBlobKeyValidator = jdbcBlobKeyValidator;
       this.blobEntityToBlob = blobEntityToBlob;
+      this.blobSummaryToBlobMetadata = blobSummaryToBlobMetadata;
       this.mockLocation = new LocationBuilder()
             .id("jdbc")
             .scope(LocationScope.PROVIDER)
@@ -89,7 +102,7 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
    @Override
    public boolean containerExists(String container) {
       jdbcContainerNameValidator.validate(container);
-      return jdbcService.findContainerByName(container) != null;
+      return jdbcService.containerExists(container);
    }
 
    /**
@@ -186,7 +199,7 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
    @Override
    public void clearContainer(String container, ListContainerOptions options) {
       if (options.getDir() != null) {
-         jdbcService.deleteBlobsByDirectory(container, options.getDir(), true);
+         jdbcService.deleteBlobsByDirectory(container, options.getDir(), options.isRecursive());
       }
       else {
          clearContainer(container);
@@ -235,12 +248,45 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
     */
    @Override
    public Iterable<String> getBlobKeysInsideContainer(String container) throws IOException {
-      List<BlobEntity> blobEntities = jdbcService.findBlobsByContainer(container);
-      ImmutableList.Builder<String> result = ImmutableList.builder();
-      for (BlobEntity blobEntity : blobEntities) {
-         result.add(blobEntity.getKey());
+      return jdbcService.findBlobKeysByContainer(container);
+   }
+
+   /**
+    * Lists one page of the blobs in a container, in ascending key order, without loading the
+    * blobs' payloads
+    *
+    * @param container the name of the container
+    * @param directory only list the blobs inside this directory and its subdirectories, may be null
+    * @param prefix only list the blobs whose key starts with this prefix, may be null
+    * @param delimiter list the keys holding this delimiter after the directory or prefix as a
+    *           single relative path, up to the delimiter, may be null
+    * @param marker only list the blobs whose key sorts after this marker, may be null
+    * @param maxResults the maximum number of blobs and relative paths in the page
+    * @param detailed whether to include the user metadata of the blobs
+    * @return the page of blobs, with the marker of the next page if there are more blobs
+    */
+   public PageSet<StorageMetadata> listBlobs(String container, String directory, String prefix, String delimiter,
+         String marker, int maxResults, boolean detailed) {
+      if (maxResults <= 0) {
+         if (!containerExists(container)) {
+            throw new ContainerNotFoundException(container, "in listBlobs");
+         }
+         return new PageSetImpl<StorageMetadata>(ImmutableList.<StorageMetadata>of(), null);
       }
-      return result.build();
+      List<BlobSummary> summaries = jdbcService.listBlobs(container, directory, prefix, delimiter, marker,
+            maxResults + 1, detailed);
+      if (summaries == null) {
+         throw new ContainerNotFoundException(container, "in listBlobs");
+      }
+      boolean truncated = summaries.size() > maxResults;
+      ImmutableList.Builder<StorageMetadata> result = ImmutableList.builder();
+      for (BlobSummary summary : truncated ? summaries.subList(0, maxResults) : summaries) {
+         MutableBlobMetadata metadata = blobSummaryToBlobMetadata.apply(summary);
+         metadata.setContainer(container);
+         result.add(metadata);
+      }
+      return new PageSetImpl<StorageMetadata>(result.build(),
+            truncated ? summaries.get(maxResults - 1).getKey() : null);
    }
 
    /**
@@ -255,6 +301,24 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
       return blobEntityToBlob.apply(jdbcService.findBlobById(container, key));
    }
 
+   /**
+    * Gets the metadata of a blob, without loading its payload
+    *
+    * @param container the name of the container containing the blob
+    * @param key the key of the blob
+    * @return the blob's metadata or null if the blob does not exist
+    */
+   public BlobMetadata getBlobMetadata(String container, String key) {
+      if (!containerExists(container)) {
+         throw new ContainerNotFoundException(container, "in getBlobMetadata");
+      }
+      MutableBlobMetadata metadata = blobSummaryToBlobMetadata.apply(jdbcService.findBlobMetadata(container, key));
+      if (metadata != null) {
+         metadata.setContainer(container);
+      }
+      return metadata;
+   }
+
    /**
     * Store a blob in a container
     *
@@ -270,6 +334,85 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
       return jdbcService.createOrModifyBlob(container, blob).getEtag();
    }
 
+   /**
+    * Copies a blob without reading its content, the copy shares the chunks of the source blob
+    *
+    * @param fromContainer the name of the container containing the source blob
+    * @param fromName the key of the source blob
+    * @param toContainer the name of the container receiving the copy
+    * @param toName the key of the copy
+    * @param contentMetadata content metadata of the copy, or null to keep the one of the source
+    * @param userMetadata user metadata of the copy, or null to keep the one of the source
+    * @return the copy's etag
+    */
+   public String copyBlob(String fromContainer, String fromName, String toContainer, String toName,
+         ContentMetadata contentMetadata, Map<String, String> userMetadata) {
+      if (!containerExists(fromContainer)) {
+         throw new ContainerNotFoundException(fromContainer, "while copying");
+      }
+      if (!containerExists(toContainer)) {
+         throw new ContainerNotFoundException(toContainer, "while copying");
+      }
+      jdbcBlobKeyValidator.validate(toName);
+      BlobEntity copy = jdbcService.copyBlob(fromContainer, fromName, toContainer, toName, contentMetadata,
+            userMetadata);
+      if (copy == null) {
+         throw new KeyNotFoundException(fromContainer, fromName, "while copying");
+      }
+      return copy.getEtag();
+   }
+
+   /**
+    * Stores a part of a multipart upload as a blob, laid out so it can be joined with the other
+    * parts without copying its content
+    *
+    * @param container the name of the container
+    * @param key the key of the blob holding the part
+    * @param partNumber the number of the part
+    * @param payload the content of the part
+    * @return the stored part
+    */
+   public MultipartPart putMultipartPart(String container, String key, int partNumber, Payload payload)
+         throws IOException {
+      jdbcContainerNameValidator.validate(container);
+      jdbcBlobKeyValidator.validate(key);
+      Blob blob = blobBuilders.get().name(key).payload(payload).build();
+      BlobEntity part = jdbcService.createMultipartPart(container, blob);
+      return MultipartPart.create(partNumber, part.getSize() == null ? 0 : part.getSize(), part.getEtag(),
+            part.getLastModified());
+   }
+
+   /**
+    * Completes a multipart upload by joining the chunks of its parts, then deletes the parts
+    *
+    * @param container the name of the container
+    * @param key the key of the final blob
+    * @param uploadPrefix the key prefix of the blobs created by the upload
+    * @param partKeys the keys of the parts, in order
+    * @param metadata the metadata of the final blob
+    * @param blobAccess the accessibility of the final blob
+    * @return the final blob's etag, or null if the parts can not be joined without copying them
+    */
+   public String completeMultipartUpload(String container, String key, String uploadPrefix, List<String> partKeys,
+         BlobMetadata metadata, BlobAccess blobAccess) {
+      if (!containerExists(container)) {
+         throw new ContainerNotFoundException(container, "while completing a multipart upload");
+      }
+      BlobEntity blob = jdbcService.completeMultipartUpload(container, key, uploadPrefix, partKeys, metadata,
+            blobAccess);
+      return blob == null ? null : blob.getEtag();
+   }
+
+   /**
+    * Deletes the parts of a multipart upload in bulk
+    *
+    * @param container the name of the container
+    * @param uploadPrefix the key prefix of the blobs created by the upload
+    */
+   public void abortMultipartUpload(String container, String uploadPrefix) {
+      jdbcService.deleteMultipartUpload(container, uploadPrefix);
+   }
+
    /**
     * Removes a blob from a container
     *
@@ -333,8 +476,7 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
     * @return the number of blobs in the container
     */
    public long countBlobs(String container, ListContainerOptions options) {
-      return options.getDir() == null ? jdbcService.findBlobsByContainer(container).size()
-             : jdbcService.findBlobsByDirectory(container, options.getDir(), options.isRecursive()).size();
+      return jdbcService.countBlobs(container, options.getDir(), options.isRecursive());
    }
 
    /**
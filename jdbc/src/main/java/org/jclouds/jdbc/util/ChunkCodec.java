@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import com.google.common.hash.Hashing;
+import org.jclouds.jdbc.entity.ChunkEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+/**
+ * Encoding of the chunk data of a payload. The codec is recorded in the payload, and the size of a
+ * chunk is always the size of its decoded content.
+ */
+public enum ChunkCodec {
+
+   /**
+    * Chunks hold the content as is.
+    */
+   NONE {
+      @Override
+      public byte[] encode(byte[] data, int size) {
+         return size == data.length ? data : Arrays.copyOf(data, size);
+      }
+
+      @Override
+      public InputStream decode(ChunkEntity chunk) {
+         return new ByteArrayInputStream(chunk.getData(), 0, chunk.getSize());
+      }
+   },
+
+   /**
+    * Chunks hold the content compressed with the deflate algorithm, favoring speed over ratio.
+    */
+   DEFLATE {
+      @Override
+      public byte[] encode(byte[] data, int size) {
+         Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+         try {
+            deflater.setInput(data, 0, size);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(size / 4, 64));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+               out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+         } finally {
+            deflater.end();
+         }
+      }
+
+      @Override
+      public InputStream decode(ChunkEntity chunk) {
+         return new InflaterInputStream(new ByteArrayInputStream(chunk.getData()));
+      }
+   };
+
+   /**
+    * Returns the data to store for the first {@code size} bytes of the given buffer. The buffer
+    * itself may be returned.
+    */
+   public abstract byte[] encode(byte[] data, int size);
+
+   /**
+    * Returns a stream decoding the content of a chunk as it is read. The stream must be closed to
+    * release the resources of the codec.
+    */
+   public abstract InputStream decode(ChunkEntity chunk);
+
+   /**
+    * Returns the deduplication hash of a chunk content. It includes the codec, so identical
+    * content stored with different codecs is never shared between payloads.
+    */
+   public String hash(byte[] data, int size) {
+      if (this == NONE) {
+         return Hashing.sha256().hashBytes(data, 0, size).toString();
+      }
+      return Hashing.sha256().newHasher().putBytes(data, 0, size).putString(name(), UTF_8).hash().toString();
+   }
+
+}
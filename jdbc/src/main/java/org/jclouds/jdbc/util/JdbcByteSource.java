@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import org.jclouds.jdbc.repository.ChunkCache;
+import org.jclouds.jdbc.service.JdbcService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Content of a stored payload. Nothing is read from the database until a stream is opened, and
+ * the chunks themselves are only fetched once the stream is read.
+ * <p>
+ * Every chunk but the last one holds the chunk size of the payload, so slices start reading at the
+ * chunk holding their first byte instead of skipping the preceding ones.
+ */
+public class JdbcByteSource extends ByteSource {
+
+   private final JdbcService jdbcService;
+   private final Long payloadId;
+   private final Long size;
+   private final int chunkSize;
+   private final ChunkCodec codec;
+   private final int readAhead;
+   private final ChunkCache chunkCache;
+   private final long offset;
+   private final long length;
+
+   public JdbcByteSource(JdbcService jdbcService, Long payloadId, Long size, int chunkSize, ChunkCodec codec,
+         int readAhead) {
+      this(jdbcService, payloadId, size, chunkSize, codec, readAhead, null);
+   }
+
+   /**
+    * @param chunkCache cache the streams take the chunks from before querying the database, or null
+    */
+   public JdbcByteSource(JdbcService jdbcService, Long payloadId, Long size, int chunkSize, ChunkCodec codec,
+         int readAhead, ChunkCache chunkCache) {
+      this(jdbcService, payloadId, size, chunkSize, codec, readAhead, chunkCache, 0, Long.MAX_VALUE);
+   }
+
+   private JdbcByteSource(JdbcService jdbcService, Long payloadId, Long size, int chunkSize, ChunkCodec codec,
+         int readAhead, ChunkCache chunkCache, long offset, long length) {
+      checkArgument(chunkSize > 0, "chunkSize (%s) must be positive", chunkSize);
+      this.jdbcService = checkNotNull(jdbcService, "jdbcService");
+      this.payloadId = checkNotNull(payloadId, "payloadId");
+      this.size = size;
+      this.chunkSize = chunkSize;
+      this.codec = checkNotNull(codec, "codec");
+      this.readAhead = readAhead;
+      this.chunkCache = chunkCache;
+      this.offset = offset;
+      this.length = length;
+   }
+
+   @Override
+   public InputStream openStream() throws IOException {
+      List<Long> chunks = jdbcService.findChunkIdsByPayload(payloadId);
+      int firstChunk = (int) Math.min(offset / chunkSize, chunks.size());
+      InputStream in = new JdbcInputStream(jdbcService, chunks.subList(firstChunk, chunks.size()), readAhead, codec,
+            chunkCache);
+      long toSkip = offset - (long) firstChunk * chunkSize;
+      while (toSkip > 0) {
+         long skipped = in.skip(toSkip);
+         if (skipped <= 0) {
+            in.close();
+            return new ByteArrayInputStream(new byte[0]);
+         }
+         toSkip -= skipped;
+      }
+      return length == Long.MAX_VALUE ? in : ByteStreams.limit(in, length);
+   }
+
+   @Override
+   public ByteSource slice(long sliceOffset, long sliceLength) {
+      checkArgument(sliceOffset >= 0, "offset (%s) may not be negative", sliceOffset);
+      checkArgument(sliceLength >= 0, "length (%s) may not be negative", sliceLength);
+      long maxLength = length - sliceOffset;
+      return new JdbcByteSource(jdbcService, payloadId, size, chunkSize, codec, readAhead, chunkCache,
+            offset + sliceOffset, Math.max(0, Math.min(sliceLength, maxLength)));
+   }
+
+   @Override
+   public long size() throws IOException {
+      if (size == null) {
+         return super.size();
+      }
+      return Math.max(0, Math.min(length, size - offset));
+   }
+
+   @Override
+   public boolean isEmpty() throws IOException {
+      return size != null ? size() == 0 : super.isEmpty();
+   }
+
+}
@@ -17,61 +17,203 @@
 package org.jclouds.jdbc.util;
 
 import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.repository.ChunkCache;
 import org.jclouds.jdbc.service.JdbcService;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
 
+/**
+ * Streams the content of a blob by reading its chunks in order. No chunk is fetched before the
+ * first read; then up to {@code readAhead} chunks are fetched with a single query and kept in
+ * memory until the caller drains them. Encoded chunks are decoded as they are read.
+ * <p>
+ * When a chunk cache is given, cached chunks are taken from it and only the others are fetched.
+ */
 public class JdbcInputStream extends InputStream {
 
    private JdbcService jdbcService;
 
    private final List<Long> chunks;
-   private ChunkEntity currentChunk;
-   private int bytesRead;
+   private final int readAhead;
+   private final ChunkCodec codec;
+   private final ChunkCache chunkCache;
+   private final Deque<ChunkEntity> prefetched = new ArrayDeque<ChunkEntity>();
+   private InputStream currentChunk;
+   private int remaining;
 
    public JdbcInputStream(JdbcService jdbcService, List<Long> chunks) {
+      this(jdbcService, chunks, JdbcConstants.DEFAULT_CHUNK_READ_AHEAD);
+   }
+
+   public JdbcInputStream(JdbcService jdbcService, List<Long> chunks, int readAhead) {
+      this(jdbcService, chunks, readAhead, ChunkCodec.NONE);
+   }
+
+   public JdbcInputStream(JdbcService jdbcService, List<Long> chunks, int readAhead, ChunkCodec codec) {
+      this(jdbcService, chunks, readAhead, codec, null);
+   }
+
+   /**
+    * @param chunkCache cache to take the chunks from before querying the database, or null
+    */
+   public JdbcInputStream(JdbcService jdbcService, List<Long> chunks, int readAhead, ChunkCodec codec,
+         ChunkCache chunkCache) {
       this.jdbcService = checkNotNull(jdbcService, "jdbcService");
-      // Need to remove duplicates due to https://hibernate.atlassian.net/browse/HHH-6783
-      this.chunks = new ArrayList<Long>(new LinkedHashSet<Long>(checkNotNull(chunks, "chunks")));
-      try {
-         readNextChunk();
-      } catch (IOException e) {
-         throw new IllegalArgumentException(e);
-      }
+      this.chunks = new ArrayList<Long>(checkNotNull(chunks, "chunks"));
+      checkArgument(readAhead > 0, "readAhead must be positive");
+      this.readAhead = readAhead;
+      this.codec = checkNotNull(codec, "codec");
+      this.chunkCache = chunkCache != null && chunkCache.isEnabled() ? chunkCache : null;
    }
 
    @Override
    public synchronized int read() throws IOException {
-      if (hasFinished()) {
+      if (!ensureChunk()) {
          return -1;
       }
-      int b = currentChunk.getData()[bytesRead] & 0xff;
-      bytesRead = bytesRead + 1;
-      if (bytesRead >= currentChunk.getSize()) {
-         readNextChunk();
+      int b = currentChunk.read();
+      if (b == -1) {
+         throw truncatedChunk();
       }
+      remaining = remaining - 1;
       return b;
    }
 
-   private boolean hasFinished() {
-      return currentChunk == null || (chunks.size() == 0 && bytesRead >= currentChunk.getSize());
+   @Override
+   public synchronized int read(byte[] b, int off, int len) throws IOException {
+      checkPositionIndexes(off, off + len, b.length);
+      if (len == 0) {
+         return 0;
+      }
+      int total = 0;
+      while (total < len && ensureChunk()) {
+         int count = currentChunk.read(b, off + total, Math.min(len - total, remaining));
+         if (count <= 0) {
+            throw truncatedChunk();
+         }
+         remaining = remaining - count;
+         total = total + count;
+      }
+      return total == 0 ? -1 : total;
+   }
+
+   @Override
+   public synchronized long skip(long n) throws IOException {
+      long skipped = 0;
+      while (skipped < n && ensureChunk()) {
+         long count = currentChunk.skip(Math.min(n - skipped, remaining));
+         if (count <= 0) {
+            throw truncatedChunk();
+         }
+         remaining = remaining - (int) count;
+         skipped = skipped + count;
+      }
+      return skipped;
+   }
+
+   /**
+    * Returns the number of bytes that are already in memory and can be read without querying
+    * the database.
+    */
+   @Override
+   public synchronized int available() {
+      long available = currentChunk == null ? 0 : remaining;
+      for (ChunkEntity chunk : prefetched) {
+         available = available + chunk.getSize();
+      }
+      return (int) Math.min(available, Integer.MAX_VALUE);
+   }
+
+   @Override
+   public synchronized void close() throws IOException {
+      chunks.clear();
+      prefetched.clear();
+      closeCurrentChunk();
+   }
+
+   /**
+    * Makes sure there is at least one unread byte in the current chunk.
+    *
+    * @return false if the end of the stream has been reached
+    */
+   private boolean ensureChunk() throws IOException {
+      while (currentChunk == null || remaining == 0) {
+         if (chunks.isEmpty() && prefetched.isEmpty()) {
+            return false;
+         }
+         readNextChunk();
+      }
+      return true;
    }
 
    private void readNextChunk() throws IOException {
-      if (chunks.size() > 0) {
-         this.currentChunk = jdbcService.findChunkById(chunks.get(0));
-         if (currentChunk == null) {
+      if (prefetched.isEmpty() && chunks.size() > 0) {
+         prefetchChunks();
+      }
+      if (!prefetched.isEmpty()) {
+         closeCurrentChunk();
+         ChunkEntity chunk = prefetched.poll();
+         this.currentChunk = codec.decode(chunk);
+         this.remaining = chunk.getSize();
+      }
+   }
+
+   private void closeCurrentChunk() throws IOException {
+      if (currentChunk != null) {
+         currentChunk.close();
+         currentChunk = null;
+      }
+   }
+
+   private IOException truncatedChunk() {
+      return new IOException("Chunk data is shorter than the chunk size.");
+   }
+
+   private void prefetchChunks() throws IOException {
+      List<Long> ids = chunks.subList(0, Math.min(readAhead, chunks.size()));
+      Map<Long, ChunkEntity> chunksById = new HashMap<Long, ChunkEntity>();
+      List<Long> missing = ids;
+      if (chunkCache != null) {
+         missing = new ArrayList<Long>(ids.size());
+         for (Long id : ids) {
+            ChunkEntity chunk = chunkCache.get(id);
+            if (chunk == null) {
+               missing.add(id);
+            } else {
+               chunksById.put(id, chunk);
+            }
+         }
+      }
+      if (missing.size() == 1) {
+         ChunkEntity chunk = jdbcService.findChunkById(missing.get(0));
+         if (chunk != null) {
+            chunksById.put(chunk.getId(), chunk);
+         }
+      } else if (!missing.isEmpty()) {
+         for (ChunkEntity chunk : jdbcService.findChunksByIds(missing)) {
+            chunksById.put(chunk.getId(), chunk);
+         }
+      }
+      for (Long id : ids) {
+         ChunkEntity chunk = chunksById.get(id);
+         if (chunk == null) {
             throw new IOException("Could not find chunk.");
          }
-         chunks.remove(0);
-         this.bytesRead = 0;
+         prefetched.add(chunk);
       }
+      ids.clear();
    }
 
 }
@@ -20,7 +20,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSource;
+import com.google.inject.AbstractModule;
 import com.google.inject.Module;
 import com.google.inject.persist.jpa.JpaPersistModule;
 import org.jclouds.ContextBuilder;
@@ -30,15 +32,24 @@ import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.ContainerNotFoundException;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
 import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.options.CopyOptions;
 import org.jclouds.blobstore.options.GetOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.options.PutOptions;
 import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponseException;
 import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
 import org.jclouds.io.payloads.PhantomPayload;
 import org.jclouds.io.payloads.StringPayload;
+import org.jclouds.jdbc.metrics.JdbcMetricsListener;
+import org.jclouds.jdbc.metrics.JdbcMetricsRecorder;
+import org.jclouds.jdbc.metrics.OperationStats;
 import org.jclouds.util.Closeables2;
 import org.jclouds.util.Strings2;
 import org.testng.annotations.AfterMethod;
@@ -49,8 +60,13 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.google.common.io.BaseEncoding.base16;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -117,6 +133,98 @@ public abstract class BaseJdbcBlobStoreTest {
       assertThat(blobStore.blobExists(CONTAINER_NAME, BLOB_NAME)).isTrue();
    }
 
+   @Test
+   public void testCopyBlob() throws IOException {
+      blobStore.createContainerInLocation(null, CONTAINER_NAME);
+      blobStore.createContainerInLocation(null, CONTAINER_NAME + 2);
+      ByteSource content = randomByteSource().slice(0, 1024);
+      String eTag = blobStore.putBlob(CONTAINER_NAME, blobStore.blobBuilder(BLOB_NAME).payload(content).build());
+
+      assertThat(blobStore.copyBlob(CONTAINER_NAME, BLOB_NAME, CONTAINER_NAME + 2, BLOB_NAME,
+            CopyOptions.builder().ifMatch(eTag).build())).isEqualTo(eTag);
+      Blob copy = blobStore.getBlob(CONTAINER_NAME + 2, BLOB_NAME);
+      assertThat(copy.getMetadata().getContentMetadata().getContentMD5AsHashCode())
+            .isEqualTo(content.hash(Hashing.md5()));
+      assertThat(((ByteSource) copy.getPayload().getRawContent()).read()).isEqualTo(content.read());
+      try {
+         blobStore.copyBlob(CONTAINER_NAME, BLOB_NAME, CONTAINER_NAME + 2, BLOB_NAME,
+               CopyOptions.builder().ifNoneMatch(eTag).build());
+         fail("Expected a failed precondition");
+      } catch (HttpResponseException e) {
+         assertThat(e.getResponse().getStatusCode()).isEqualTo(412);
+      }
+   }
+
+   @Test
+   public void testMultipartUpload() throws Exception {
+      blobStore.createContainerInLocation(null, CONTAINER_NAME);
+      final MultipartUpload mpu = blobStore.initiateMultipartUpload(CONTAINER_NAME,
+            blobStore.blobBuilder(BLOB_NAME).build().getMetadata(), new PutOptions());
+      final ByteSource content = randomByteSource().slice(0, 3 * 1024 * 1024 + 10);
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      List<Future<MultipartPart>> futures = Lists.newArrayList();
+      try {
+         for (int i = 0; i < 4; i++) {
+            final int partNumber = i + 1;
+            futures.add(executor.submit(new Callable<MultipartPart>() {
+               @Override
+               public MultipartPart call() {
+                  ByteSource part = content.slice((partNumber - 1) * 1024 * 1024, 1024 * 1024);
+                  return blobStore.uploadMultipartPart(mpu, partNumber, Payloads.newByteSourcePayload(part));
+               }
+            }));
+         }
+         List<MultipartPart> parts = Lists.newArrayList();
+         for (Future<MultipartPart> future : futures) {
+            parts.add(future.get());
+         }
+         assertThat(blobStore.listMultipartUpload(mpu)).hasSize(4);
+
+         String eTag = blobStore.completeMultipartUpload(mpu, parts);
+         assertThat(eTag).endsWith("-4");
+         assertThat(blobStore.listMultipartUpload(mpu)).isEmpty();
+         Blob blob = blobStore.getBlob(CONTAINER_NAME, BLOB_NAME);
+         assertThat(blob.getMetadata().getETag()).isEqualTo(eTag);
+         assertThat(((ByteSource) blob.getPayload().getRawContent()).read()).isEqualTo(content.read());
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testMetricsListener() throws IOException {
+      final JdbcMetricsRecorder recorder = new JdbcMetricsRecorder();
+      context.close();
+      context = ContextBuilder.newBuilder(PROVIDER)
+            .modules(ImmutableSet.<Module> of(new JpaPersistModule(jpaModuleName), new AbstractModule() {
+               @Override
+               protected void configure() {
+                  bind(JdbcMetricsListener.class).toInstance(recorder);
+               }
+            }))
+            .build(BlobStoreContext.class);
+      blobStore = context.getBlobStore();
+
+      blobStore.createContainerInLocation(null, CONTAINER_NAME);
+      ByteSource content = randomByteSource().slice(0, 2 * 1024 * 1024);
+      blobStore.putBlob(CONTAINER_NAME, blobStore.blobBuilder(BLOB_NAME).payload(content).build());
+      // The service methods called by createOrModifyBlob are part of it
+      Map<String, OperationStats> stats = recorder.getOperationStats();
+      assertThat(stats.get("createOrModifyBlob").getCount()).isEqualTo(1);
+      assertThat(stats).doesNotContainKey("findBlobById");
+      assertThat(((ByteSource) blobStore.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent()).read())
+            .isEqualTo(content.read());
+
+      stats = recorder.getOperationStats();
+      assertThat(stats.get("createOrModifyBlob").getCount()).isEqualTo(1);
+      assertThat(stats.get("storeData").getCount()).isEqualTo(1);
+      assertThat(stats.get("hashPayload").getCount()).isEqualTo(1);
+      assertThat(stats.get("findBlobById").getCount()).isGreaterThanOrEqualTo(1);
+      assertThat(recorder.getChunksWritten()).isEqualTo(2);
+      assertThat(recorder.getBytesWritten()).isEqualTo(content.size());
+      assertThat(recorder.getBytesRead()).isEqualTo(content.size());
+   }
+
    @Test
    public void testListRoot() throws IOException {
       PageSet<? extends StorageMetadata> containersRetrieved = blobStore.list();
@@ -208,6 +316,89 @@ public abstract class BaseJdbcBlobStoreTest {
       checkForContainerContent(CONTAINER_NAME, "rrr/", blobsExpected);
    }
 
+   @Test
+   public void testListRecursiveInPages() throws IOException {
+      blobStore.createContainerInLocation(null, CONTAINER_NAME);
+      createBlobInContainer(CONTAINER_NAME, "a%b");
+      List<String> blobsExpected = Lists.newArrayList();
+      blobsExpected.add(createBlobInContainer(CONTAINER_NAME, "a_1"));
+      blobsExpected.add(createBlobInContainer(CONTAINER_NAME, "a_2"));
+      blobsExpected.add(createBlobInContainer(CONTAINER_NAME, "a_3/4"));
+      blobsExpected.add(createBlobInContainer(CONTAINER_NAME, "a_5"));
+      blobsExpected.add(createBlobInContainer(CONTAINER_NAME, "a_6"));
+
+      List<String> blobsListed = Lists.newArrayList();
+      String marker = null;
+      do {
+         ListContainerOptions options = ListContainerOptions.Builder.recursive().prefix("a_").maxResults(2);
+         if (marker != null) {
+            options.afterMarker(marker);
+         }
+         PageSet<? extends StorageMetadata> page = blobStore.list(CONTAINER_NAME, options);
+         assertTrue(page.size() <= 2);
+         for (StorageMetadata metadata : page) {
+            assertEquals(metadata.getType(), StorageType.BLOB);
+            assertNotNull(metadata.getETag());
+            blobsListed.add(metadata.getName());
+         }
+         marker = page.getNextMarker();
+      } while (marker != null);
+
+      assertEquals(blobsListed, blobsExpected);
+   }
+
+   @Test
+   public void testListNonRecursiveInPages() throws IOException {
+      blobStore.createContainerInLocation(null, CONTAINER_NAME);
+      createBlobInContainer(CONTAINER_NAME, "a");
+      createBlobInContainer(CONTAINER_NAME, "b/1");
+      createBlobInContainer(CONTAINER_NAME, "b/2");
+      createBlobInContainer(CONTAINER_NAME, "b/3/4");
+      createBlobInContainer(CONTAINER_NAME, "c");
+      createBlobInContainer(CONTAINER_NAME, "d/1");
+      createBlobInContainer(CONTAINER_NAME, "e");
+
+      assertEquals(listInPages(new ListContainerOptions(), 2),
+            ImmutableList.of("a", "b/*", "c", "d/*", "e"));
+      assertEquals(listInPages(ListContainerOptions.Builder.inDirectory("b"), 1),
+            ImmutableList.of("b/1", "b/2", "b/3/*"));
+      assertEquals(listInPages(ListContainerOptions.Builder.prefix("b/").delimiter("/"), 2),
+            ImmutableList.of("b/1", "b/2", "b/3/*"));
+      assertEquals(listInPages(ListContainerOptions.Builder.afterMarker("b/2"), 2),
+            ImmutableList.of("c", "d/*", "e"));
+      assertEquals(listInPages(ListContainerOptions.Builder.delimiter("1"), 10),
+            ImmutableList.of("a", "b/1*", "b/2", "b/3/4", "c", "d/1*", "e"));
+
+      List<String> names = Lists.newArrayList();
+      for (StorageMetadata metadata : blobStore.list(CONTAINER_NAME)) {
+         names.add(metadata.getName());
+      }
+      assertEquals(names, ImmutableList.of("a", "b/", "c", "d/", "e"));
+   }
+
+   /**
+    * Lists every page of a container, starting after the marker of the options if any. Relative
+    * paths are suffixed with a star.
+    */
+   private List<String> listInPages(ListContainerOptions options, int maxResults) {
+      List<String> listed = Lists.newArrayList();
+      String marker = options.getMarker();
+      options.maxResults(maxResults);
+      do {
+         if (marker != null) {
+            options.afterMarker(marker);
+         }
+         PageSet<? extends StorageMetadata> result = blobStore.list(CONTAINER_NAME, options);
+         assertTrue(result.size() <= maxResults);
+         for (StorageMetadata metadata : result) {
+            listed.add(metadata.getType() == StorageType.RELATIVE_PATH ? metadata.getName() + "*"
+                  : metadata.getName());
+         }
+         marker = result.getNextMarker();
+      } while (marker != null);
+      return listed;
+   }
+
    @Test
    public void testClearContainerNotExistingContainer() {
       blobStore.clearContainer(CONTAINER_NAME);
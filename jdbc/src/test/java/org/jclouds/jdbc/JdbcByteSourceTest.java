@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteSource;
+import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.service.JdbcService;
+import org.jclouds.jdbc.util.ChunkCodec;
+import org.jclouds.jdbc.util.JdbcByteSource;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+@Test(groups = "unit", testName = "JdbcByteSourceTest")
+public class JdbcByteSourceTest {
+
+   private static final long SIZE = 2L * JdbcConstants.DEFAULT_CHUNK_SIZE + 10;
+
+   private JdbcService mockJdbcService;
+
+   @BeforeMethod
+   public void setUp() {
+      mockJdbcService = createMock(JdbcService.class);
+   }
+
+   @Test
+   public void testNothingReadUntilOpened() throws IOException {
+      replay(mockJdbcService);
+      ByteSource source = new JdbcByteSource(mockJdbcService, 7L, SIZE, JdbcConstants.DEFAULT_CHUNK_SIZE, ChunkCodec.NONE, 4);
+      assertThat(source.size()).isEqualTo(SIZE);
+      assertThat(source.slice(SIZE - 4, 10).size()).isEqualTo(4);
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testSliceOnlyReadsOverlappingChunks() throws IOException {
+      expect(mockJdbcService.findChunkIdsByPayload(7L)).andReturn(ImmutableList.of(1L, 2L, 3L));
+      expect(mockJdbcService.findChunkById(3L)).andReturn(chunk(3L, 10));
+      replay(mockJdbcService);
+
+      ByteSource source = new JdbcByteSource(mockJdbcService, 7L, SIZE, JdbcConstants.DEFAULT_CHUNK_SIZE, ChunkCodec.NONE, 4);
+      assertThat(source.slice(2L * JdbcConstants.DEFAULT_CHUNK_SIZE + 3, 4).read())
+            .isEqualTo(new byte[] { 3, 4, 5, 6 });
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testSliceAcrossChunks() throws IOException {
+      expect(mockJdbcService.findChunkIdsByPayload(7L)).andReturn(ImmutableList.of(1L, 2L, 3L));
+      expect(mockJdbcService.findChunksByIds(ImmutableList.of(2L, 3L)))
+            .andReturn(ImmutableList.of(chunk(2L, JdbcConstants.DEFAULT_CHUNK_SIZE), chunk(3L, 10)));
+      replay(mockJdbcService);
+
+      ByteSource source = new JdbcByteSource(mockJdbcService, 7L, SIZE, JdbcConstants.DEFAULT_CHUNK_SIZE, ChunkCodec.NONE, 4);
+      byte[] data = source.slice(2L * JdbcConstants.DEFAULT_CHUNK_SIZE - 2, 4).read();
+      assertThat(data).isEqualTo(new byte[] { (byte) (JdbcConstants.DEFAULT_CHUNK_SIZE - 2),
+            (byte) (JdbcConstants.DEFAULT_CHUNK_SIZE - 1), 0, 1 });
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testSliceBeyondEnd() throws IOException {
+      expect(mockJdbcService.findChunkIdsByPayload(7L)).andReturn(ImmutableList.of(1L, 2L, 3L));
+      replay(mockJdbcService);
+
+      ByteSource source = new JdbcByteSource(mockJdbcService, 7L, SIZE, JdbcConstants.DEFAULT_CHUNK_SIZE, ChunkCodec.NONE, 4);
+      assertThat(source.slice(4L * JdbcConstants.DEFAULT_CHUNK_SIZE, ChunkCodec.NONE, 4).read()).isEmpty();
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testSliceUsesPayloadChunkSize() throws IOException {
+      expect(mockJdbcService.findChunkIdsByPayload(7L)).andReturn(ImmutableList.of(1L, 2L, 3L, 4L));
+      expect(mockJdbcService.findChunksByIds(ImmutableList.of(3L, 4L)))
+            .andReturn(ImmutableList.of(chunk(3L, 16), chunk(4L, 5)));
+      replay(mockJdbcService);
+
+      ByteSource source = new JdbcByteSource(mockJdbcService, 7L, 3L * 16 + 5, 16, ChunkCodec.NONE, 4);
+      assertThat(source.slice(2L * 16 + 1, 4).read()).isEqualTo(new byte[] { 1, 2, 3, 4 });
+      verify(mockJdbcService);
+   }
+
+   private static ChunkEntity chunk(Long id, int size) {
+      byte[] data = new byte[size];
+      for (int i = 0; i < size; i++) {
+         data[i] = (byte) i;
+      }
+      ChunkEntity chunk = new ChunkEntity(data, size);
+      chunk.setId(id);
+      return chunk;
+   }
+
+}
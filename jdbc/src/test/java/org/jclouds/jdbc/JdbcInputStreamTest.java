@@ -17,7 +17,10 @@
 package org.jclouds.jdbc;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.jclouds.jdbc.entity.ChunkEntity;
 import org.jclouds.jdbc.service.JdbcService;
+import org.jclouds.jdbc.util.ChunkCodec;
 import org.jclouds.jdbc.util.JdbcInputStream;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -25,8 +28,11 @@ import org.testng.annotations.Test;
 import java.io.IOException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
 
 @Test(groups = "unit", testName = "JdbcInputStreamTest")
 public class JdbcInputStreamTest {
@@ -38,10 +44,21 @@ public class JdbcInputStreamTest {
       mockJdbcService = createNiceMock(JdbcService.class);
    }
 
-   @Test(expectedExceptions = IllegalArgumentException.class)
+   @Test(expectedExceptions = IOException.class)
    public void testInvalidIdList() throws IOException {
       expect(mockJdbcService.findChunkById(0L)).andReturn(null);
-      new JdbcInputStream(mockJdbcService, ImmutableList.<Long>builder().add(0L).build());
+      replay(mockJdbcService);
+      new JdbcInputStream(mockJdbcService, ImmutableList.<Long>builder().add(0L).build()).read();
+   }
+
+   @Test
+   public void testNoChunkReadBeforeFirstRead() throws IOException {
+      JdbcService strictJdbcService = createMock(JdbcService.class);
+      replay(strictJdbcService);
+      JdbcInputStream jdbcInputStream = new JdbcInputStream(strictJdbcService, ImmutableList.of(1L, 2L));
+      assertThat(jdbcInputStream.available()).isEqualTo(0);
+      jdbcInputStream.close();
+      verify(strictJdbcService);
    }
 
    @Test(expectedExceptions = NullPointerException.class)
@@ -56,4 +73,64 @@ public class JdbcInputStreamTest {
       assertThat(jdbcInputStream.read()).isEqualTo(-1);
    }
 
+   @Test
+   public void testBulkReadAcrossChunks() throws IOException {
+      expect(mockJdbcService.findChunksByIds(ImmutableList.of(1L, 2L)))
+            .andReturn(ImmutableList.of(chunk(2L, 3, 4), chunk(1L, 0, 1, 2)));
+      expect(mockJdbcService.findChunkById(3L)).andReturn(chunk(3L, 5));
+      replay(mockJdbcService);
+
+      JdbcInputStream jdbcInputStream = new JdbcInputStream(mockJdbcService, ImmutableList.of(1L, 2L, 3L), 2);
+      assertThat(jdbcInputStream.read()).isEqualTo(0);
+      assertThat(jdbcInputStream.available()).isEqualTo(4);
+      assertThat(ByteStreams.toByteArray(jdbcInputStream)).isEqualTo(new byte[] { 1, 2, 3, 4, 5 });
+      assertThat(jdbcInputStream.read()).isEqualTo(-1);
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testSkip() throws IOException {
+      expect(mockJdbcService.findChunksByIds(ImmutableList.of(1L, 2L)))
+            .andReturn(ImmutableList.of(chunk(1L, 0, 1, 2), chunk(2L, 3, 4)));
+      replay(mockJdbcService);
+
+      JdbcInputStream jdbcInputStream = new JdbcInputStream(mockJdbcService, ImmutableList.of(1L, 2L), 2);
+      assertThat(jdbcInputStream.skip(4)).isEqualTo(4);
+      assertThat(jdbcInputStream.read()).isEqualTo(4);
+      assertThat(jdbcInputStream.skip(1)).isEqualTo(0);
+   }
+
+   @Test
+   public void testDecodeCompressedChunks() throws IOException {
+      ChunkEntity first = chunk(1L, 0, 1, 2);
+      ChunkEntity second = chunk(2L, 3, 4);
+      expect(mockJdbcService.findChunksByIds(ImmutableList.of(1L, 2L)))
+            .andReturn(ImmutableList.of(deflate(first), deflate(second)));
+      replay(mockJdbcService);
+
+      JdbcInputStream jdbcInputStream = new JdbcInputStream(mockJdbcService, ImmutableList.of(1L, 2L), 2,
+            ChunkCodec.DEFLATE);
+      assertThat(jdbcInputStream.skip(1)).isEqualTo(1);
+      assertThat(jdbcInputStream.available()).isEqualTo(4);
+      assertThat(ByteStreams.toByteArray(jdbcInputStream)).isEqualTo(new byte[] { 1, 2, 3, 4 });
+      jdbcInputStream.close();
+      verify(mockJdbcService);
+   }
+
+   private static ChunkEntity deflate(ChunkEntity chunk) {
+      ChunkEntity encoded = new ChunkEntity(ChunkCodec.DEFLATE.encode(chunk.getData(), chunk.getSize()), chunk.getSize());
+      encoded.setId(chunk.getId());
+      return encoded;
+   }
+
+   private static ChunkEntity chunk(Long id, int... bytes) {
+      byte[] data = new byte[bytes.length];
+      for (int i = 0; i < bytes.length; i++) {
+         data[i] = (byte) bytes[i];
+      }
+      ChunkEntity chunk = new ChunkEntity(data, data.length);
+      chunk.setId(id);
+      return chunk;
+   }
+
 }
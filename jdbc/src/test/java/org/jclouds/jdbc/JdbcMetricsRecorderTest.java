@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc;
+
+import org.jclouds.jdbc.metrics.JdbcMetricsRecorder;
+import org.jclouds.jdbc.metrics.OperationStats;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Test(groups = "unit", testName = "JdbcMetricsRecorderTest")
+public class JdbcMetricsRecorderTest {
+
+   @Test
+   public void testOperationStats() {
+      JdbcMetricsRecorder recorder = new JdbcMetricsRecorder();
+      recorder.operationCompleted("findBlobById", TimeUnit.MICROSECONDS.toNanos(3), 1, false);
+      recorder.operationCompleted("findBlobById", TimeUnit.MICROSECONDS.toNanos(100), 2, false);
+      recorder.operationCompleted("findBlobById", TimeUnit.MILLISECONDS.toNanos(5), 3, true);
+
+      OperationStats stats = recorder.getOperationStats().get("findBlobById");
+      assertThat(stats.getCount()).isEqualTo(3);
+      assertThat(stats.getFailures()).isEqualTo(1);
+      assertThat(stats.getQueries()).isEqualTo(6);
+      assertThat(stats.getMaxTime(TimeUnit.MILLISECONDS)).isEqualTo(5);
+      assertThat(stats.getTotalTime(TimeUnit.MICROSECONDS)).isEqualTo(5103);
+      // 3 us falls in [2, 4), 100 us in [64, 128) and 5000 us in [4096, 8192)
+      assertThat(stats.getHistogram()[2]).isEqualTo(1);
+      assertThat(stats.getHistogram()[7]).isEqualTo(1);
+      assertThat(stats.getHistogram()[13]).isEqualTo(1);
+      assertThat(stats.getLatencyBound(0.5, TimeUnit.MICROSECONDS)).isEqualTo(128);
+      assertThat(stats.getLatencyBound(1, TimeUnit.MICROSECONDS)).isEqualTo(8192);
+      assertThat(recorder.getOperationStats()).doesNotContainKey("createOrModifyBlob");
+   }
+
+   @Test
+   public void testChunkTraffic() {
+      JdbcMetricsRecorder recorder = new JdbcMetricsRecorder();
+      recorder.chunksWritten(2, 2048);
+      recorder.chunksWritten(1, 10);
+      recorder.chunksRead(1, 1024);
+      assertThat(recorder.getChunksWritten()).isEqualTo(3);
+      assertThat(recorder.getBytesWritten()).isEqualTo(2058);
+      assertThat(recorder.getChunksRead()).isEqualTo(1);
+      assertThat(recorder.getBytesRead()).isEqualTo(1024);
+   }
+
+}
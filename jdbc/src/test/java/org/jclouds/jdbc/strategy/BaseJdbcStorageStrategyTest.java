@@ -16,31 +16,58 @@
  */
 package org.jclouds.jdbc.strategy;
 
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.google.inject.persist.PersistService;
+import com.google.inject.persist.UnitOfWork;
+import com.google.inject.name.Names;
 import com.google.inject.persist.jpa.JpaPersistModule;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.blobstore.domain.MultipartPart;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.blobstore.domain.internal.BlobBuilderImpl;
 import org.jclouds.blobstore.options.CreateContainerOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.io.Payloads;
+import org.jclouds.jdbc.entity.ChunkEntity;
 import org.jclouds.jdbc.module.TestContextModule;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.repository.ChunkCache;
+import org.jclouds.jdbc.repository.ContainerIdCache;
+import org.jclouds.jdbc.service.JdbcService;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import javax.persistence.EntityManager;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.jclouds.utils.TestUtils.randomByteSource;
+import static org.testng.Assert.fail;
 
 public abstract class BaseJdbcStorageStrategyTest {
 
@@ -58,10 +85,32 @@ public abstract class BaseJdbcStorageStrategyTest {
 
    @BeforeMethod
    protected void setUp() throws Exception {
-      injector = Guice.createInjector(ImmutableSet.<Module> of(new TestContextModule(), new JpaPersistModule(jpaModuleName)));
+      createStorageStrategy(new Properties());
+   }
+
+   private void createStorageStrategy(final Properties properties) {
+      injector = Guice.createInjector(ImmutableSet.<Module> of(new TestContextModule(), new JpaPersistModule(jpaModuleName),
+            new AbstractModule() {
+               @Override
+               protected void configure() {
+                  Names.bindProperties(binder(), properties);
+               }
+            }));
       storageStrategy = injector.getInstance(JdbcStorageStrategy.class);
    }
 
+   /**
+    * Replaces the storage strategy with one configured with the given property names and values.
+    */
+   private void recreateStorageStrategy(String... keyValues) {
+      tearDown();
+      Properties properties = new Properties();
+      for (int i = 0; i < keyValues.length; i += 2) {
+         properties.setProperty(keyValues[i], keyValues[i + 1]);
+      }
+      createStorageStrategy(properties);
+   }
+
    @AfterMethod
    protected void tearDown() {
       injector.getInstance(PersistService.class).stop();
@@ -167,6 +216,355 @@ public abstract class BaseJdbcStorageStrategyTest {
         }
     }
 
+   @Test
+   public void testPutBlobWithParallelChunkWriter() throws IOException {
+      recreateStorageStrategy(JdbcConstants.PROPERTY_CHUNK_WRITER_THREADS, "2");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 5 * 1024 * 1024 + 3);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      InputStream data = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().openStream();
+      try {
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(content.read());
+      } finally {
+         data.close();
+      }
+   }
+
+   @Test
+   public void testParallelChunksDiscardedWhenCommitFails() throws IOException {
+      recreateStorageStrategy(JdbcConstants.PROPERTY_CHUNK_WRITER_THREADS, "2");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      // The user metadata value does not fit in its column, so the blob fails to be written at commit
+      Blob blob = new BlobBuilderImpl().name(BLOB_NAME).payload(randomByteSource().slice(0, 3 * 1024 * 1024))
+            .userMetadata(ImmutableMap.of("key", Strings.repeat("a", 1024))).build();
+      try {
+         storageStrategy.putBlob(CONTAINER_NAME, blob);
+         fail("Expected the commit to fail");
+      } catch (RuntimeException e) {
+         // Expected
+      }
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isFalse();
+      assertThat(countChunks()).isZero();
+   }
+
+   @Test
+   public void testPutBlobWithChunkDedup() throws IOException {
+      recreateStorageStrategy(JdbcConstants.PROPERTY_CHUNK_DEDUP, "true");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      byte[] content = getByteArray('a', 2 * JdbcConstants.DEFAULT_CHUNK_SIZE + 10);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      assertThat(countChunks()).isEqualTo(2);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME + 2).payload(content).build());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      assertThat(countChunks()).isEqualTo(2);
+
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME);
+      assertThat(countChunks()).isEqualTo(2);
+      InputStream data = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME + 2).getPayload().openStream();
+      try {
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(content);
+      } finally {
+         data.close();
+      }
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME + 2);
+      assertThat(countChunks()).isEqualTo(0);
+   }
+
+   @Test
+   public void testDedupParallelChunksDiscardedWhenCommitFails() throws IOException {
+      recreateStorageStrategy(JdbcConstants.PROPERTY_CHUNK_DEDUP, "true",
+            JdbcConstants.PROPERTY_CHUNK_WRITER_THREADS, "2");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      byte[] shared = getByteArray('a', 2 * JdbcConstants.DEFAULT_CHUNK_SIZE + 10);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(shared).build());
+      assertThat(countChunks()).isEqualTo(2);
+
+      // The failed blob locked the chunk it shares, the discard must wait for the rollback to delete its own chunk
+      byte[] content = new byte[2 * JdbcConstants.DEFAULT_CHUNK_SIZE];
+      Arrays.fill(content, 0, JdbcConstants.DEFAULT_CHUNK_SIZE, (byte) 'a');
+      Arrays.fill(content, JdbcConstants.DEFAULT_CHUNK_SIZE, content.length, (byte) 'b');
+      Blob blob = new BlobBuilderImpl().name(BLOB_NAME + 2).payload(content)
+            .userMetadata(ImmutableMap.of("key", Strings.repeat("a", 1024))).build();
+      try {
+         storageStrategy.putBlob(CONTAINER_NAME, blob);
+         fail("Expected the commit to fail");
+      } catch (RuntimeException e) {
+         assertThat(e.getSuppressed()).isEmpty();
+      }
+      assertThat(countChunks()).isEqualTo(2);
+      InputStream data = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().openStream();
+      try {
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(shared);
+      } finally {
+         data.close();
+      }
+   }
+
+   @Test
+   public void testConcurrentPutAndRemoveOfSharedChunks() throws Exception {
+      recreateStorageStrategy(JdbcConstants.PROPERTY_CHUNK_DEDUP, "true");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      final byte[] content = getByteArray('a', 2 * JdbcConstants.DEFAULT_CHUNK_SIZE + 10);
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try {
+         for (int i = 0; i < 20; i++) {
+            final String removed = BLOB_NAME + "-removed-" + i;
+            final String put = BLOB_NAME + "-put-" + i;
+            // The removed blob holds the only references to the chunks the put reuses
+            storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(removed).payload(content).build());
+            final CyclicBarrier start = new CyclicBarrier(2);
+            Future<Void> putting = executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() throws Exception {
+                  start.await();
+                  storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(put).payload(content).build());
+                  return null;
+               }
+            });
+            Future<Void> removing = executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() throws Exception {
+                  start.await();
+                  storageStrategy.removeBlob(CONTAINER_NAME, removed);
+                  return null;
+               }
+            });
+            putting.get();
+            removing.get();
+
+            InputStream data = storageStrategy.getBlob(CONTAINER_NAME, put).getPayload().openStream();
+            try {
+               assertThat(ByteStreams.toByteArray(data)).isEqualTo(content);
+            } finally {
+               data.close();
+            }
+            storageStrategy.removeBlob(CONTAINER_NAME, put);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+      assertThat(countChunks()).isZero();
+   }
+
+   @Test
+   public void testChunkOrderDoesNotFollowChunkIds() throws IOException {
+      recreateStorageStrategy(JdbcConstants.PROPERTY_CHUNK_DEDUP, "true");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      byte[] first = getByteArray('a', JdbcConstants.DEFAULT_CHUNK_SIZE);
+      byte[] second = getByteArray('b', JdbcConstants.DEFAULT_CHUNK_SIZE);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(second).build());
+      // The second chunk is shared with the first blob, so it has a lower id than the first one
+      byte[] content = new byte[2 * JdbcConstants.DEFAULT_CHUNK_SIZE];
+      System.arraycopy(first, 0, content, 0, first.length);
+      System.arraycopy(second, 0, content, first.length, second.length);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME + 2).payload(content).build());
+
+      InputStream data = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME + 2).getPayload().openStream();
+      try {
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(content);
+      } finally {
+         data.close();
+      }
+   }
+
+   @Test
+   public void testPutBlobWithChunkCompression() throws IOException {
+      recreateStorageStrategy(JdbcConstants.PROPERTY_CHUNK_CODEC, "DEFLATE");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      byte[] content = getByteArray('a', 2 * JdbcConstants.DEFAULT_CHUNK_SIZE + 10);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      Blob blob = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME);
+      assertThat(blob.getMetadata().getETag()).isEqualTo(Hashing.md5().hashBytes(content).toString());
+      ByteSource stored = (ByteSource) blob.getPayload().getRawContent();
+      assertThat(stored.read()).isEqualTo(content);
+      assertThat(stored.slice(JdbcConstants.DEFAULT_CHUNK_SIZE - 1, 3).read()).isEqualTo(new byte[] { 'a', 'a', 'a' });
+   }
+
+   @Test
+   public void testChunkCache() throws IOException {
+      checkChunkCache(ChunkCache.Storage.HEAP);
+   }
+
+   @Test
+   public void testDirectChunkCache() throws IOException {
+      checkChunkCache(ChunkCache.Storage.DIRECT);
+   }
+
+   private void checkChunkCache(ChunkCache.Storage storage) throws IOException {
+      recreateStorageStrategy(JdbcConstants.PROPERTY_CHUNK_CACHE_SIZE, String.valueOf(3 * JdbcConstants.DEFAULT_CHUNK_SIZE),
+            JdbcConstants.PROPERTY_CHUNK_CACHE_STORAGE, storage.name());
+      ChunkCache chunkCache = injector.getInstance(ChunkCache.class);
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 2 * JdbcConstants.DEFAULT_CHUNK_SIZE + 10);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      assertThat(chunkCache.size()).isEqualTo(0);
+      for (int i = 0; i < 2; i++) {
+         ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+         assertThat(stored.read()).isEqualTo(content.read());
+      }
+      assertThat(chunkCache.size()).isEqualTo(3);
+      assertThat(chunkCache.stats().missCount()).isEqualTo(3);
+      assertThat(chunkCache.stats().hitCount()).isEqualTo(3);
+
+      // Overwriting the blob releases its chunks
+      ByteSource larger = randomByteSource().slice(0, 4 * JdbcConstants.DEFAULT_CHUNK_SIZE);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(larger).build());
+      assertThat(chunkCache.size()).isEqualTo(0);
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.read()).isEqualTo(larger.read());
+      assertThat(chunkCache.stats().evictionCount()).isGreaterThan(0);
+
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME);
+      assertThat(chunkCache.size()).isEqualTo(0);
+   }
+
+   @Test
+   public void testAdaptiveChunkSize() throws IOException {
+      recreateStorageStrategy(JdbcConstants.PROPERTY_INLINE_THRESHOLD, "0",
+            JdbcConstants.PROPERTY_CHUNK_SIZE, "1024",
+            JdbcConstants.PROPERTY_MAX_CHUNK_SIZE, "4096");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(getByteArray('a', 10))
+            .contentLength(10).build());
+      assertThat(countChunks()).isEqualTo(1);
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME);
+
+      // Too large for 64 chunks of 1024 or 2048 bytes, so it is split in chunks of 4096 bytes
+      ByteSource content = randomByteSource().slice(0, 64 * 4096 + 1);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content)
+            .contentLength(content.size()).build());
+      assertThat(countChunks()).isEqualTo(65);
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.slice(4095, 4098).read()).isEqualTo(content.slice(4095, 4098).read());
+      assertThat(stored.read()).isEqualTo(content.read());
+   }
+
+   @Test
+   public void testCopyBlobSharesChunks() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 2 * JdbcConstants.DEFAULT_CHUNK_SIZE + 10);
+      String eTag = storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME)
+            .payload(content).userMetadata(ImmutableMap.of("key", "value")).build());
+      assertThat(countChunks()).isEqualTo(2);
+
+      assertThat(storageStrategy.copyBlob(CONTAINER_NAME, BLOB_NAME, CONTAINER_NAME, BLOB_NAME + 2, null,
+            ImmutableMap.of("key", "copy"))).isEqualTo(eTag);
+      assertThat(countChunks()).isEqualTo(2);
+      assertThat(storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getMetadata().getUserMetadata())
+            .containsEntry("key", "value");
+
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME);
+      Blob copy = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME + 2);
+      assertThat(copy.getMetadata().getETag()).isEqualTo(eTag);
+      assertThat(copy.getMetadata().getUserMetadata()).containsEntry("key", "copy");
+      assertThat(((ByteSource) copy.getPayload().getRawContent()).read()).isEqualTo(content.read());
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME + 2);
+      assertThat(countChunks()).isEqualTo(0);
+   }
+
+   @Test
+   public void testCompleteMultipartUploadJoinsPartChunks() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      String prefix = ".mpus-upload-" + BLOB_NAME + "-";
+      ByteSource first = randomByteSource().slice(0, 2 * JdbcConstants.DEFAULT_CHUNK_SIZE);
+      ByteSource last = randomByteSource().slice(0, 10);
+      MultipartPart part1 = storageStrategy.putMultipartPart(CONTAINER_NAME, prefix + 1, 1,
+            Payloads.newByteSourcePayload(first));
+      MultipartPart part2 = storageStrategy.putMultipartPart(CONTAINER_NAME, prefix + 2, 2,
+            Payloads.newByteSourcePayload(last));
+      assertThat(part1.partSize()).isEqualTo(2 * JdbcConstants.DEFAULT_CHUNK_SIZE);
+      assertThat(part2.partSize()).isEqualTo(10);
+      assertThat(countChunks()).isEqualTo(3);
+
+      BlobMetadata metadata = new BlobBuilderImpl().name(BLOB_NAME).payload(new byte[0])
+            .userMetadata(ImmutableMap.of("key", "value")).build().getMetadata();
+      String eTag = storageStrategy.completeMultipartUpload(CONTAINER_NAME, BLOB_NAME, prefix,
+            ImmutableList.of(prefix + 1, prefix + 2), metadata, BlobAccess.PRIVATE);
+      assertThat(eTag).endsWith("-2");
+      assertThat(countChunks()).isEqualTo(3);
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, prefix + 1)).isFalse();
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, prefix + 2)).isFalse();
+
+      Blob blob = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME);
+      assertThat(blob.getMetadata().getETag()).isEqualTo(eTag);
+      assertThat(blob.getMetadata().getUserMetadata()).containsEntry("key", "value");
+      assertThat(blob.getMetadata().getContentMetadata().getContentLength())
+            .isEqualTo(2 * JdbcConstants.DEFAULT_CHUNK_SIZE + 10);
+      ByteSource stored = (ByteSource) blob.getPayload().getRawContent();
+      assertThat(stored.read()).isEqualTo(ByteSource.concat(first, last).read());
+      assertThat(stored.slice(2 * JdbcConstants.DEFAULT_CHUNK_SIZE - 5, 10).read())
+            .isEqualTo(ByteSource.concat(first, last).slice(2 * JdbcConstants.DEFAULT_CHUNK_SIZE - 5, 10).read());
+   }
+
+   @Test
+   public void testCompleteMultipartUploadWithUnalignedParts() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      String prefix = ".mpus-upload-" + BLOB_NAME + "-";
+      storageStrategy.putMultipartPart(CONTAINER_NAME, prefix + 1, 1,
+            Payloads.newByteSourcePayload(randomByteSource().slice(0, 10)));
+      storageStrategy.putMultipartPart(CONTAINER_NAME, prefix + 2, 2,
+            Payloads.newByteSourcePayload(randomByteSource().slice(0, 10)));
+      BlobMetadata metadata = new BlobBuilderImpl().name(BLOB_NAME).payload(new byte[0]).build().getMetadata();
+      // The first part does not end on a chunk boundary, its content has to be copied
+      assertThat(storageStrategy.completeMultipartUpload(CONTAINER_NAME, BLOB_NAME, prefix,
+            ImmutableList.of(prefix + 1, prefix + 2), metadata, BlobAccess.PRIVATE)).isNull();
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, prefix + 1)).isTrue();
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isFalse();
+   }
+
+   @Test
+   public void testAbortMultipartUpload() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      String prefix = ".mpus-upload-" + BLOB_NAME + "-";
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(prefix + "stub").payload(new byte[0]).build());
+      for (int partNumber = 1; partNumber <= 3; partNumber++) {
+         storageStrategy.putMultipartPart(CONTAINER_NAME, prefix + partNumber, partNumber,
+               Payloads.newByteSourcePayload(randomByteSource().slice(0, JdbcConstants.DEFAULT_CHUNK_SIZE)));
+      }
+      assertThat(countChunks()).isEqualTo(3);
+      storageStrategy.abortMultipartUpload(CONTAINER_NAME, prefix);
+      assertThat(countChunks()).isZero();
+      assertThat(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME)).isEmpty();
+   }
+
+   @Test
+   public void testOverwriteBlobReleasesChunks() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME)
+            .payload(getByteArray('a', JdbcConstants.DEFAULT_CHUNK_SIZE + 1)).build());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME)
+            .payload(getByteArray('b', 10)).build());
+      // The new content is small enough to be stored inline
+      assertThat(countChunks()).isZero();
+   }
+
+   @Test
+   public void testPutSmallBlobInline() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, JdbcConstants.DEFAULT_INLINE_THRESHOLD);
+      // The length is unknown, so the blob is only stored inline once its end is reached
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME + 2)
+            .payload(randomByteSource().slice(0, JdbcConstants.DEFAULT_INLINE_THRESHOLD + 1)).build());
+      assertThat(countChunks()).isEqualTo(1);
+
+      Blob blob = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME);
+      ByteSource stored = (ByteSource) blob.getPayload().getRawContent();
+      assertThat(stored.read()).isEqualTo(content.read());
+      assertThat(stored.slice(10, 5).read()).isEqualTo(content.slice(10, 5).read());
+      stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME + 2).getPayload().getRawContent();
+      assertThat(stored.read()).hasSize(JdbcConstants.DEFAULT_INLINE_THRESHOLD + 1);
+   }
+
    @Test
    public void testRemoveBlob() throws IOException {
       assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
@@ -203,6 +601,105 @@ public abstract class BaseJdbcStorageStrategyTest {
       assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isFalse();
    }
 
+   @Test
+   public void testClearContainerInBatches() throws IOException {
+      recreateStorageStrategy(JdbcConstants.PROPERTY_DELETE_BATCH_SIZE, "2");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      for (int i = 0; i < 5; i++) {
+         storageStrategy.putBlob(CONTAINER_NAME,
+               new BlobBuilderImpl().name(BLOB_NAME + i).payload(randomByteSource().slice(0, 1024)).build());
+      }
+      storageStrategy.clearContainer(CONTAINER_NAME);
+      assertThat(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME)).isEmpty();
+   }
+
+   @Test
+   public void testContainerIdCache() throws IOException {
+      ContainerIdCache containerIds = injector.getInstance(ContainerIdCache.class);
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload("data").build());
+      long hits = containerIds.stats().hitCount();
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isTrue();
+      assertThat(containerIds.stats().hitCount()).isGreaterThan(hits);
+
+      storageStrategy.deleteContainer(CONTAINER_NAME);
+      assertThat(containerIds.get(CONTAINER_NAME)).isNull();
+      assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isFalse();
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isFalse();
+   }
+
+   @Test
+   public void testContainerIdCacheAfterDelete() throws IOException {
+      ContainerIdCache containerIds = injector.getInstance(ContainerIdCache.class);
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isTrue();
+      Long id = containerIds.get(CONTAINER_NAME);
+      assertThat(id).isNotNull();
+
+      // A reader that read the id before the delete was committed must not cache it afterwards
+      long token = containerIds.token();
+      storageStrategy.deleteContainer(CONTAINER_NAME);
+      containerIds.put(CONTAINER_NAME, id, token);
+      assertThat(containerIds.get(CONTAINER_NAME)).isNull();
+      assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isFalse();
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isTrue();
+      assertThat(containerIds.get(CONTAINER_NAME)).isNotEqualTo(id);
+   }
+
+   @Test
+   public void testCountBlobs() throws IOException {
+      assertThat(storageStrategy.countBlobs(CONTAINER_NAME, ListContainerOptions.NONE)).isZero();
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.createDirectory(CONTAINER_NAME, "dir");
+      storageStrategy.createDirectory(CONTAINER_NAME, "dir/sub");
+      for (String key : new String[] { "dir/a", "dir/b", "dir/sub/c", "dir/sub/deeper/d", "dir2/e", "f" }) {
+         storageStrategy.putBlob(CONTAINER_NAME,
+               new BlobBuilderImpl().name(key).payload(randomByteSource().slice(0, 16)).build());
+      }
+
+      assertThat(storageStrategy.countBlobs(CONTAINER_NAME, ListContainerOptions.NONE)).isEqualTo(8);
+      assertThat(storageStrategy.countBlobs(CONTAINER_NAME, ListContainerOptions.Builder.inDirectory("dir")))
+            .isEqualTo(3);
+      assertThat(storageStrategy.countBlobs(CONTAINER_NAME,
+            ListContainerOptions.Builder.inDirectory("dir/").recursive())).isEqualTo(5);
+   }
+
+   @Test
+   public void testClearDirectoryNonRecursive() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.createDirectory(CONTAINER_NAME, "dir");
+      storageStrategy.createDirectory(CONTAINER_NAME, "dir/sub");
+      for (String key : new String[] { "dir/a", "dir/sub/c" }) {
+         storageStrategy.putBlob(CONTAINER_NAME,
+               new BlobBuilderImpl().name(key).payload(randomByteSource().slice(0, 16)).build());
+      }
+
+      storageStrategy.clearContainer(CONTAINER_NAME, ListContainerOptions.Builder.inDirectory("dir"));
+      assertThat(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME))
+            .containsOnly("dir", "dir/sub", "dir/sub/c");
+
+      injector.getInstance(JdbcService.class).deleteBlobsByDirectory(CONTAINER_NAME, "dir", false);
+      assertThat(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME))
+            .containsOnly("dir", "dir/sub", "dir/sub/c");
+
+      storageStrategy.clearContainer(CONTAINER_NAME, ListContainerOptions.Builder.inDirectory("dir").recursive());
+      assertThat(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME)).containsOnly("dir");
+   }
+
+   private long countChunks() {
+      UnitOfWork unitOfWork = injector.getInstance(UnitOfWork.class);
+      try {
+         return injector.getInstance(EntityManager.class)
+               .createQuery("SELECT COUNT(c) FROM " + ChunkEntity.class.getName() + " c", Long.class)
+               .getSingleResult();
+      } finally {
+         unitOfWork.end();
+      }
+   }
+
     private byte[] getByteArray(char c, int len) {
         byte[] array = new byte[len];
         Arrays.fill(array, (byte) c);
@@ -63,6 +63,9 @@ public class VagrantApiMetadata extends BaseApiMetadata {
       private Properties defaultProperties() {
          Properties defaultProperties = BaseApiMetadata.defaultProperties();
          defaultProperties.setProperty(VagrantConstants.JCLOUDS_VAGRANT_HOME, VagrantConstants.JCLOUDS_VAGRANT_HOME_DEFAULT);
+         defaultProperties.setProperty(VagrantConstants.JCLOUDS_VAGRANT_UP_BATCH_WINDOW, VagrantConstants.JCLOUDS_VAGRANT_UP_BATCH_WINDOW_DEFAULT);
+         defaultProperties.setProperty(VagrantConstants.JCLOUDS_VAGRANT_PROVIDER_CONCURRENCY, VagrantConstants.JCLOUDS_VAGRANT_PROVIDER_CONCURRENCY_DEFAULT);
+         defaultProperties.setProperty(VagrantConstants.JCLOUDS_VAGRANT_STATE_TTL, VagrantConstants.JCLOUDS_VAGRANT_STATE_TTL_DEFAULT);
          defaultProperties.put(ComputeServiceProperties.TEMPLATE, "osFamily=UBUNTU");
          return defaultProperties;
       }
@@ -17,7 +17,10 @@
 package org.jclouds.vagrant.api;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Map;
 
+import org.jclouds.compute.domain.NodeMetadata.Status;
 import org.jclouds.domain.LoginCredentials;
 
 public interface VagrantApiFacade {
@@ -31,6 +34,21 @@ public interface VagrantApiFacade {
     * @return the raw output of the configured provisioners
     */
    String up(String machineName, String provider);
+
+   /**
+    * Start the named machines with a single command, in parallel if the provider supports it
+    *
+    * @return the raw output of the configured provisioners, by machine name
+    * @throws VagrantCommandException if the command fails, holding the output of all the machines
+    */
+   Map<String, String> up(Collection<String> machineNames, String provider);
+
+   /**
+    * Query the state of the named machines with a single command
+    *
+    * @return the state of each machine reported by vagrant, by machine name
+    */
+   Map<String, Status> status(Collection<String> machineNames);
    void halt(String machineName);
    void destroy(String machineName);
    LoginCredentials sshConfig(String machineName);
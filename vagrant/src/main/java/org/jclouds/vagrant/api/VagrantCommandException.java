@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.api;
+
+/**
+ * Thrown when a vagrant command exits with an error. Holds the output of the command, some machines
+ * of a multi-machine command may have been started or provisioned despite the failure.
+ */
+public class VagrantCommandException extends IllegalStateException {
+   private static final long serialVersionUID = 1L;
+
+   private final String output;
+
+   public VagrantCommandException(String message, String output) {
+      super(message);
+      this.output = output;
+   }
+
+   /**
+    * Returns the machine readable output of the command
+    */
+   public String getOutput() {
+      return output;
+   }
+}
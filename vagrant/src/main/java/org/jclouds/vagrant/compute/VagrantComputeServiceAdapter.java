@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -48,6 +49,9 @@ import org.jclouds.logging.Logger;
 import org.jclouds.vagrant.api.VagrantApiFacade;
 import org.jclouds.vagrant.domain.VagrantNode;
 import org.jclouds.vagrant.internal.MachineConfig;
+import org.jclouds.vagrant.internal.MachineMetadata;
+import org.jclouds.vagrant.internal.VagrantCommandScheduler;
+import org.jclouds.vagrant.internal.VagrantGroupStarter;
 import org.jclouds.vagrant.internal.VagrantNodeRegistry;
 import org.jclouds.vagrant.reference.VagrantConstants;
 import org.jclouds.vagrant.util.VagrantUtils;
@@ -58,6 +62,7 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 
 public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<VagrantNode, Hardware, Image, Location> {
@@ -71,7 +76,10 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
    private final JustProvider locationSupplier;
    private final VagrantNodeRegistry nodeRegistry;
    private final MachineConfig.Factory machineConfigFactory;
+   private final MachineMetadata.Factory machineMetadataFactory;
    private final VagrantApiFacade.Factory cliFactory;
+   private final VagrantGroupStarter groupStarter;
+   private final VagrantCommandScheduler scheduler;
    private final Supplier<? extends Map<String, Hardware>> hardwareSupplier;
    private final Supplier<Collection<Image>> imageListSupplier;
    private final Function<String, Image> imageIdToImage;
@@ -81,7 +89,10 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
          JustProvider locationSupplier,
          VagrantNodeRegistry nodeRegistry,
          MachineConfig.Factory machineConfigFactory,
+         MachineMetadata.Factory machineMetadataFactory,
          VagrantApiFacade.Factory cliFactory,
+         VagrantGroupStarter groupStarter,
+         VagrantCommandScheduler scheduler,
          Supplier<? extends Map<String, Hardware>> hardwareSupplier,
          Supplier<Collection<Image>> imageListSupplier,
          Function<String, Image> imageIdToImage) {
@@ -89,7 +100,10 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       this.locationSupplier = locationSupplier;
       this.nodeRegistry = nodeRegistry;
       this.machineConfigFactory = machineConfigFactory;
+      this.machineMetadataFactory = machineMetadataFactory;
       this.cliFactory = cliFactory;
+      this.groupStarter = groupStarter;
+      this.scheduler = scheduler;
       this.hardwareSupplier = hardwareSupplier;
       this.imageListSupplier = imageListSupplier;
       this.imageIdToImage = imageIdToImage;
@@ -101,38 +115,62 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       String machineName = removeFromStart(name, group);
       File nodePath = new File(home, group);
 
-      init(nodePath, machineName, template);
+      try {
+         init(nodePath, machineName, template);
+      } catch (RuntimeException e) {
+         // The machine won't join the group command, don't make the other machines wait for it
+         String provider = template.getImage().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
+         groupStarter.cancel(nodePath, provider, 1);
+         throw e;
+      }
 
-      NodeAndInitialCredentials<VagrantNode> node = startMachine(nodePath, group, machineName,
-            template.getImage(), template.getHardware());
+      NodeAndInitialCredentials<VagrantNode> node = startMachine(nodePath, group, machineName, template);
       nodeRegistry.add(node.getNode());
       return node;
    }
 
-   private NodeAndInitialCredentials<VagrantNode> startMachine(File path, String group, String name, Image image, Hardware hardware) {
-      String provider = image.getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
+   private NodeAndInitialCredentials<VagrantNode> startMachine(final File path, String group, final String name, Template template) {
+      Image image = template.getImage();
+      final String provider = image.getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
 
-      VagrantApiFacade vagrant = cliFactory.create(path);
-      String rawOutput = vagrant.up(name, provider);
+      // Machines of the group created at the same time are started together
+      String rawOutput = groupStarter.up(path, name, provider);
       String output = normalizeOutput(name, rawOutput);
 
       OsFamily osFamily = image.getOperatingSystem().getFamily();
       String id = group + "/" + name;
+      Collection<String> networks = ImmutableList.of();
+      String hostname = "unknown";
+      if (hasProvisioningOutput(output)) {
+         networks = getNetworks(output, getOsInterfacePattern(osFamily));
+         hostname = getHostname(output);
+      } else {
+         // Started by a group command that failed for other machines, its output may be missing
+         logger.warn("Provisioning output of machine %s not found, its IPs and hostname are unknown", id);
+      }
       VagrantNode node = VagrantNode.builder()
             .setPath(path)
             .setId(id)
             .setGroup(group)
             .setName(name)
             .setImage(image)
-            .setHardware(hardware)
-            .setNetworks(getNetworks(output, getOsInterfacePattern(osFamily)))
-            .setHostname(getHostname(output))
+            .setHardware(template.getHardware())
+            .setNetworks(networks)
+            .setHostname(hostname)
+            .setTags(ImmutableSet.copyOf(template.getOptions().getTags()))
+            .setUserMetadata(ImmutableMap.copyOf(template.getOptions().getUserMetadata()))
             .build();
-      node.setMachineState(Status.RUNNING);
+      // The IPs and hostname can only be captured now, keep them for the next runs
+      setMachineState(node, Status.RUNNING);
 
       LoginCredentials loginCredentials = null;
       if (osFamily != OsFamily.WINDOWS) {
-         loginCredentials = vagrant.sshConfig(name);
+         loginCredentials = scheduler.execute(provider, group, new Callable<LoginCredentials>() {
+            @Override
+            public LoginCredentials call() {
+               return cliFactory.create(path).sshConfig(name);
+            }
+         });
       }
 
       // PrioritizeCredentialsFromTemplate will overwrite loginCredentials with image credentials
@@ -148,6 +186,13 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
             .replace("\\n", "\n");
    }
 
+   private static boolean hasProvisioningOutput(String output) {
+      return output.contains(VagrantConstants.DELIMITER_NETWORKS_START)
+            && output.contains(VagrantConstants.DELIMITER_NETWORKS_END)
+            && output.contains(VagrantConstants.DELIMITER_HOSTNAME_START)
+            && output.contains(VagrantConstants.DELIMITER_HOSTNAME_END);
+   }
+
    private Pattern getOsInterfacePattern(OsFamily osFamily) {
       if (osFamily == OsFamily.WINDOWS) {
          return PATTERN_IPCONFIG;
@@ -282,9 +327,18 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
 
    @Override
    public void destroyNode(String id) {
-      VagrantNode node = nodeRegistry.get(id);
-      node.setMachineState(Status.TERMINATED);
-      getMachine(node).destroy(node.name());
+      final VagrantNode node = nodeRegistry.get(id);
+      // Holding the node lock, a concurrent status refresh can't overwrite the state
+      synchronized (node) {
+         node.setMachineState(Status.TERMINATED);
+      }
+      execute(node, new Callable<Void>() {
+         @Override
+         public Void call() {
+            getMachine(node).destroy(node.name());
+            return null;
+         }
+      });
       nodeRegistry.onTerminated(node);
       deleteMachine(node);
    }
@@ -294,7 +348,10 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       File machinesFolder = new File(nodeFolder, VagrantConstants.MACHINES_CONFIG_SUBFOLDER);
       String filePattern = node.name() + ".";
       logger.debug("Deleting machine %s", node.id());
-      VagrantUtils.deleteFiles(machinesFolder, filePattern);
+      // Holding the node lock, a concurrent status refresh can't write the metadata back
+      synchronized (node) {
+         VagrantUtils.deleteFiles(machinesFolder, filePattern);
+      }
       // No more machines in this group, remove everything
       if (machinesFolder.list().length == 0) {
          logger.debug("Machine %s is last in group, deleting Vagrant folder %s", node.id(), nodeFolder.getAbsolutePath());
@@ -305,44 +362,62 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
    @Override
    public void rebootNode(String id) {
       halt(id);
-
-      VagrantNode node = nodeRegistry.get(id);
-      String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
-      String name = node.name();
-      VagrantApiFacade vagrant = getMachine(node);
-      vagrant.up(name, provider);
-      node.setMachineState(Status.RUNNING);
+      up(nodeRegistry.get(id));
    }
 
-   private void halt(String id) {
-      VagrantNode node = nodeRegistry.get(id);
-      String name = node.name();
-      VagrantApiFacade vagrant = getMachine(node);
+   private void halt(final String id) {
+      final VagrantNode node = nodeRegistry.get(id);
+      execute(node, new Callable<Void>() {
+         @Override
+         public Void call() {
+            String name = node.name();
+            VagrantApiFacade vagrant = getMachine(node);
+
+            try {
+               vagrant.halt(name);
+               setMachineState(node, Status.SUSPENDED);
+            } catch (IllegalStateException e) {
+               logger.warn(e, "Failed graceful shutdown of machine " + id + ". Will try to halt it forcefully instead.");
+               vagrant.haltForced(name);
+            }
+            return null;
+         }
+      });
+   }
 
-      try {
-         vagrant.halt(name);
-         node.setMachineState(Status.SUSPENDED);
-      } catch (IllegalStateException e) {
-         logger.warn(e, "Failed graceful shutdown of machine " + id + ". Will try to halt it forcefully instead.");
-         vagrant.haltForced(name);
-      }
+   private void up(final VagrantNode node) {
+      execute(node, new Callable<Void>() {
+         @Override
+         public Void call() {
+            String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
+            getMachine(node).up(node.name(), provider);
+            return null;
+         }
+      });
+      setMachineState(node, Status.RUNNING);
    }
 
    @Override
    public void resumeNode(String id) {
-      VagrantNode node = nodeRegistry.get(id);
-      String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
-      String name = node.name();
-      VagrantApiFacade vagrant = getMachine(node);
-      vagrant.up(name, provider);
-      node.setMachineState(Status.RUNNING);
+      up(nodeRegistry.get(id));
    }
 
    @Override
    public void suspendNode(String id) {
       halt(id);
       VagrantNode node = nodeRegistry.get(id);
-      node.setMachineState(Status.SUSPENDED);
+      setMachineState(node, Status.SUSPENDED);
+   }
+
+   private void setMachineState(VagrantNode node, Status state) {
+      // Holding the node lock like the status refresh and destroyNode, so a refreshed state never
+      // overwrites this one and a destroyed machine is not brought back
+      synchronized (node) {
+         if (node.machineState() != Status.TERMINATED) {
+            node.setMachineState(state);
+            machineMetadataFactory.newInstance(node).save(node);
+         }
+      }
    }
 
    @Override
@@ -360,6 +435,14 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       });
    }
 
+   /**
+    * Executes a command on a machine once its provider has a free slot
+    */
+   private <T> T execute(VagrantNode node, Callable<T> command) {
+      String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
+      return scheduler.execute(provider, node.group(), command);
+   }
+
    private VagrantApiFacade getMachine(VagrantNode node) {
       File nodePath = node.path();
       return cliFactory.create(nodePath);
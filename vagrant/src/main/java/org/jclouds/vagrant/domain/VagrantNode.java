@@ -18,17 +18,22 @@ package org.jclouds.vagrant.domain;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.Image;
 import org.jclouds.compute.domain.NodeMetadata.Status;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 @AutoValue
 public abstract class VagrantNode {
 
    private volatile Status machineState = Status.PENDING;
+   private volatile long machineStateTimestamp = System.currentTimeMillis();
 
    public abstract File path();
 
@@ -46,8 +51,14 @@ public abstract class VagrantNode {
 
    public abstract String hostname();
 
+   public abstract Set<String> tags();
+
+   public abstract Map<String, String> userMetadata();
+
    public static Builder builder() {
-      return new AutoValue_VagrantNode.Builder();
+      return new AutoValue_VagrantNode.Builder()
+            .setTags(ImmutableSet.<String>of())
+            .setUserMetadata(ImmutableMap.<String, String>of());
    }
 
    @AutoValue.Builder
@@ -60,6 +71,8 @@ public abstract class VagrantNode {
       public abstract Builder setHardware(Hardware hardware);
       public abstract Builder setNetworks(Collection<String> networks);
       public abstract Builder setHostname(String hostname);
+      public abstract Builder setTags(Set<String> tags);
+      public abstract Builder setUserMetadata(Map<String, String> userMetadata);
       public abstract VagrantNode build();
    }
 
@@ -68,7 +81,22 @@ public abstract class VagrantNode {
    }
 
    public void setMachineState(Status machineState) {
+      setMachineState(machineState, System.currentTimeMillis());
+   }
+
+   /**
+    * Sets the state of the machine as it was known at the given time
+    */
+   public void setMachineState(Status machineState, long timestamp) {
       this.machineState = machineState;
+      this.machineStateTimestamp = timestamp;
+   }
+
+   /**
+    * Returns when the machine state was last set, in milliseconds since the epoch
+    */
+   public long machineStateTimestamp() {
+      return machineStateTimestamp;
    }
 
 }
@@ -61,7 +61,9 @@ public class MachineToNodeMetadata implements Function<VagrantNode, NodeMetadata
             .loginPort(getLoginPort(node.image()))
             .privateAddresses(node.networks())
             .publicAddresses(ImmutableList.<String> of())
-            .hostname(node.hostname());
+            .hostname(node.hostname())
+            .tags(node.tags())
+            .userMetadata(node.userMetadata());
       // Credentials fetched from cache from AdaptingComputeServiceStrategies.addLoginCredentials.
       // Cache already initialized just after creating the node.
       return nodeMetadataBuilder.build();
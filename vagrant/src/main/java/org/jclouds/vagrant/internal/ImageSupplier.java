@@ -28,28 +28,28 @@ import com.google.inject.Inject;
 
 public class ImageSupplier<B> implements Supplier<Collection<Image>>, Function<String, Image> {
    private final Function<Collection<B>, Collection<B>> outdatedBoxesFilter;
-   private final VagrantBoxApiFacade.Factory<B> cliFactory;
+   private final VagrantBoxApiFacade<B> boxes;
    private final Function<B, Image> boxToImage;
 
    @Inject
    ImageSupplier(Function<Collection<B>, Collection<B>> outdatedBoxesFilter,
-         VagrantBoxApiFacade.Factory<B> cliFactory,
+         VagrantBoxApiFacade<B> boxes,
          Function<B, Image> boxToImage) {
       this.outdatedBoxesFilter = outdatedBoxesFilter;
-      this.cliFactory = cliFactory;
+      this.boxes = boxes;
       this.boxToImage = boxToImage;
    }
 
    @Override
    public Collection<Image> get() {
-      Collection<B> boxes = outdatedBoxesFilter.apply(cliFactory.create().listBoxes());
-      return Collections2.transform(boxes, boxToImage);
+      Collection<B> latestBoxes = outdatedBoxesFilter.apply(boxes.listBoxes());
+      return Collections2.transform(latestBoxes, boxToImage);
    }
 
    @Override
    public Image apply(String id) {
-      B box = cliFactory.create().getBox(id);
-      return boxToImage.apply(box);
+      B box = boxes.getBox(id);
+      return box != null ? boxToImage.apply(box) : null;
    }
 
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.vagrant.domain.VagrantNode;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Keeps the data of a machine which is only known at boot time - IPs and hostname - along with its
+ * last known state, tags and user metadata, so they survive restarts of the process. Stored as
+ * JSON next to the machine config, which is read by the Vagrantfile and can't hold such values.
+ */
+public class MachineMetadata {
+   public static class Factory {
+      public MachineMetadata newInstance(File group, String machineName) {
+         return new MachineMetadata(group, machineName);
+      }
+
+      public MachineMetadata newInstance(VagrantNode node) {
+         return newInstance(node.path(), node.name());
+      }
+   }
+
+   /**
+    * The saved values of a machine, missing values default to empty.
+    */
+   public static class Saved {
+      private List<String> networks;
+      private String hostname;
+      private Status state;
+      private long stateTimestamp;
+      private Set<String> tags;
+      private Map<String, String> userMetadata;
+
+      public List<String> networks() {
+         return networks != null ? ImmutableList.copyOf(networks) : ImmutableList.<String>of();
+      }
+
+      public Optional<String> hostname() {
+         return Optional.fromNullable(hostname);
+      }
+
+      public Status state() {
+         return state != null ? state : Status.UNRECOGNIZED;
+      }
+
+      public long stateTimestamp() {
+         return stateTimestamp;
+      }
+
+      public Set<String> tags() {
+         return tags != null ? ImmutableSet.copyOf(tags) : ImmutableSet.<String>of();
+      }
+
+      public Map<String, String> userMetadata() {
+         return userMetadata != null ? ImmutableMap.copyOf(userMetadata) : ImmutableMap.<String, String>of();
+      }
+   }
+
+   private static final Gson GSON = new Gson();
+
+   private final File metadataPath;
+   private final File configPath;
+
+   protected MachineMetadata(File group, String machineName) {
+      File machines = new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER);
+      this.metadataPath = new File(machines, machineName + VagrantConstants.MACHINES_METADATA_EXTENSION);
+      this.configPath = new File(machines, machineName + VagrantConstants.MACHINES_CONFIG_EXTENSION);
+   }
+
+   /**
+    * Returns the saved values, absent for machines created before they were saved
+    */
+   public Optional<Saved> load() {
+      if (!metadataPath.isFile()) {
+         return Optional.absent();
+      }
+      try {
+         return Optional.fromNullable(GSON.fromJson(Files.toString(metadataPath, Charsets.UTF_8), Saved.class));
+      } catch (IOException e) {
+         throw new IllegalStateException("Failed loading machine metadata " + metadataPath.getAbsolutePath(), e);
+      } catch (JsonParseException e) {
+         throw new IllegalStateException("Failed loading machine metadata " + metadataPath.getAbsolutePath(), e);
+      }
+   }
+
+   /**
+    * Returns whether the machine config is still on the disk, false once the machine is deleted
+    */
+   public boolean exists() {
+      return configPath.isFile();
+   }
+
+   /**
+    * Saves the node values, does nothing if the machine config was deleted so a late
+    * save can't bring back the metadata of a destroyed machine
+    */
+   public void save(VagrantNode node) {
+      if (!exists()) {
+         return;
+      }
+      Saved saved = new Saved();
+      saved.networks = ImmutableList.copyOf(node.networks());
+      saved.hostname = node.hostname();
+      saved.state = node.machineState();
+      saved.stateTimestamp = node.machineStateTimestamp();
+      saved.tags = node.tags();
+      saved.userMetadata = node.userMetadata();
+
+      // Write a temporary file first, so a concurrent load never reads a partial file
+      File tmpPath = new File(metadataPath.getParentFile(), metadataPath.getName() + ".tmp");
+      try {
+         Files.write(GSON.toJson(saved), tmpPath, Charsets.UTF_8);
+         java.nio.file.Files.move(tmpPath.toPath(), metadataPath.toPath(),
+               StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+         throw new IllegalStateException("Failed writing machine metadata " + metadataPath.getAbsolutePath(), e);
+      }
+   }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.lifecycle.Closer;
+import org.jclouds.logging.Logger;
+import org.jclouds.vagrant.api.VagrantBoxApiFacade;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import vagrant.api.domain.Box;
+
+/**
+ * Lists the installed boxes by reading the Vagrant boxes folder instead of running "vagrant box list".
+ * A box is a boxes/&lt;name&gt;/&lt;version&gt;/&lt;provider&gt; folder holding a metadata.json file. The
+ * list is kept in memory until a {@link WatchService} reports a change in the folders, and is read
+ * again on each call when the file system can't be watched.
+ */
+@Singleton
+public class VagrantBoxCatalog implements VagrantBoxApiFacade<Box>, Closeable {
+   private static final FileFilter FOLDERS = new FileFilter() {
+      @Override
+      public boolean accept(File file) {
+         return file.isDirectory();
+      }
+   };
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final File boxesFolder;
+   private final Function<Collection<Box>, Collection<Box>> outdatedBoxesFilter;
+
+   private WatchService watcher;
+   private boolean watching;
+   private boolean stale = true;
+   private List<Box> boxes = ImmutableList.of();
+   private Map<String, Box> latestBoxes = ImmutableMap.of();
+
+   @Inject
+   VagrantBoxCatalog(Function<Collection<Box>, Collection<Box>> outdatedBoxesFilter, Closer closer) {
+      this(VagrantUtils.getVagrantHome(), outdatedBoxesFilter);
+      closer.addToClose(this);
+   }
+
+   VagrantBoxCatalog(File vagrantHome, Function<Collection<Box>, Collection<Box>> outdatedBoxesFilter) {
+      this.boxesFolder = new File(vagrantHome, VagrantConstants.VAGRANT_BOXES_SUBFOLDER);
+      this.outdatedBoxesFilter = outdatedBoxesFilter;
+   }
+
+   @Override
+   public synchronized Collection<Box> listBoxes() {
+      refresh();
+      return boxes;
+   }
+
+   /**
+    * Returns the latest version of the box, or null if no box with this name is installed.
+    */
+   @Override
+   public synchronized Box getBox(String boxName) {
+      refresh();
+      return latestBoxes.get(boxName);
+   }
+
+   /**
+    * Forces the boxes folder to be read again on the next call.
+    */
+   public synchronized void invalidate() {
+      stale = true;
+   }
+
+   @Override
+   public synchronized void close() throws IOException {
+      if (watcher != null) {
+         watcher.close();
+         watcher = null;
+      }
+   }
+
+   private void refresh() {
+      if (watcher != null) {
+         WatchKey key;
+         while ((key = watcher.poll()) != null) {
+            key.pollEvents();
+            key.reset();
+            stale = true;
+         }
+      }
+      if (!stale) {
+         return;
+      }
+
+      // Start watching before reading, so changes made while reading invalidate the result
+      watching = boxesFolder.isDirectory() && watch(boxesFolder);
+      ImmutableList.Builder<Box> found = ImmutableList.builder();
+      for (File boxFolder : listFolders(boxesFolder)) {
+         String name = boxFolder.getName()
+               .replace(VagrantConstants.ESCAPE_SLASH, "/")
+               .replace(VagrantConstants.ESCAPE_COLON, ":");
+         watch(boxFolder);
+         for (File versionFolder : listFolders(boxFolder)) {
+            watch(versionFolder);
+            for (File providerFolder : listFolders(versionFolder)) {
+               watch(providerFolder);
+               File metadata = new File(providerFolder, VagrantConstants.BOX_METADATA);
+               // Boxes still being added don't have their metadata yet
+               if (metadata.isFile()) {
+                  found.add(new Box(name, versionFolder.getName(), getProvider(metadata, providerFolder.getName())));
+               }
+            }
+         }
+      }
+
+      boxes = found.build();
+      ImmutableMap.Builder<String, Box> latest = ImmutableMap.builder();
+      for (Box box : outdatedBoxesFilter.apply(boxes)) {
+         latest.put(box.getName(), box);
+      }
+      latestBoxes = latest.build();
+      stale = !watching;
+   }
+
+   private boolean watch(File folder) {
+      try {
+         if (watcher == null) {
+            watcher = FileSystems.getDefault().newWatchService();
+         }
+         folder.toPath().register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+         return true;
+      } catch (IOException | UnsupportedOperationException e) {
+         logger.debug(e, "Can't watch %s for box changes, will list the boxes on each request", folder.getAbsolutePath());
+      }
+      watching = false;
+      return false;
+   }
+
+   private String getProvider(File metadata, String defaultProvider) {
+      try {
+         JsonElement json = new JsonParser().parse(Files.toString(metadata, Charsets.UTF_8));
+         if (json.isJsonObject()) {
+            JsonObject object = json.getAsJsonObject();
+            if (object.has(VagrantConstants.USER_META_PROVIDER)) {
+               return object.get(VagrantConstants.USER_META_PROVIDER).getAsString();
+            }
+         }
+      } catch (IOException | RuntimeException e) {
+         logger.warn(e, "Failed reading box metadata %s", metadata.getAbsolutePath());
+      }
+      return defaultProvider;
+   }
+
+   private static File[] listFolders(File folder) {
+      File[] folders = folder.listFiles(FOLDERS);
+      return folders != null ? folders : new File[0];
+   }
+
+}
@@ -16,16 +16,33 @@
  */
 package org.jclouds.vagrant.internal;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.jclouds.compute.domain.NodeMetadata.Status;
 import org.jclouds.domain.LoginCredentials;
+import org.jclouds.util.Closeables2;
 import org.jclouds.vagrant.api.VagrantApiFacade;
 import org.jclouds.vagrant.api.VagrantBoxApiFacade;
+import org.jclouds.vagrant.api.VagrantCommandException;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
 import com.google.common.base.Predicate;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.io.Files;
 import com.google.inject.assistedinject.Assisted;
@@ -38,36 +55,183 @@ import vagrant.api.domain.Box;
 import vagrant.api.domain.SshConfig;
 
 public class VagrantCliFacade implements VagrantApiFacade, VagrantBoxApiFacade<Box> {
+   // Machine scoped messages are prefixed with the machine name, "==> name: " or "    name: "
+   private static final Pattern PATTERN_MACHINE_PREFIX = Pattern.compile("^\\s*(?:==> )?([^\\s:]+): ");
+
+   // States of halted machines, as reported by the virtualbox, libvirt, hyperv and docker providers
+   private static final Set<String> STOPPED_STATES = ImmutableSet.of("poweroff", "aborted", "saved", "paused",
+         "shutoff", "off", "stopped");
+
+   private final File path;
    private final VagrantApi vagrant;
    private final VagrantOutputRecorder outputRecorder;
 
    @AssistedInject
    VagrantCliFacade(CommandIOListener wireLogger, @Assisted File path) {
+      this.path = path;
       this.outputRecorder = new VagrantOutputRecorder(wireLogger);
       this.vagrant = Vagrant.forPath(path, outputRecorder);
    }
 
    @AssistedInject
    VagrantCliFacade(CommandIOListener wireLogger) {
-      this.outputRecorder = new VagrantOutputRecorder(wireLogger);
-      this.vagrant = Vagrant.forPath(new File("."), outputRecorder);
+      this(wireLogger, new File("."));
    }
 
    @Override
    public String up(String machineName, String provider) {
+      return exec(upArgs(provider).add(machineName).build());
+   }
+
+   @Override
+   public Map<String, String> up(Collection<String> machineNames, String provider) {
+      return splitByMachine(exec(upArgs(provider).add("--parallel").addAll(machineNames).build()), machineNames);
+   }
+
+   private static ImmutableList.Builder<String> upArgs(String provider) {
+      ImmutableList.Builder<String> args = ImmutableList.<String>builder().add("up", "--machine-readable");
+      if (provider != null) {
+         args.add("--provider", provider);
+      }
+      return args;
+   }
+
+   /**
+    * Executes a vagrant command in the folder of the facade. The commands changing the state of
+    * the machines are executed directly instead of through the bindings, which serialize every
+    * command; concurrency is limited by {@link VagrantCommandScheduler} instead.
+    *
+    * @return the output of the command
+    */
+   private String exec(List<String> args) {
+      List<String> command = ImmutableList.<String>builder().add("vagrant").addAll(args).build();
       outputRecorder.record();
-      vagrant.up(machineName, provider);
-      return outputRecorder.stopRecording();
+      outputRecorder.onInput(Joiner.on(' ').join(command));
+      Process process = null;
+      try {
+         process = new ProcessBuilder(command)
+               .directory(path)
+               .redirectErrorStream(true)
+               .start();
+         process.getOutputStream().close();
+         BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), Charsets.UTF_8));
+         try {
+            String line;
+            while ((line = in.readLine()) != null) {
+               outputRecorder.onOutput(line + "\n");
+            }
+         } finally {
+            Closeables2.closeQuietly(in);
+         }
+         int exitCode = process.waitFor();
+         outputRecorder.onOutput(null);
+         String output = outputRecorder.stopRecording();
+         if (exitCode != 0) {
+            throw new VagrantCommandException("Command " + command + " failed with exit code " + exitCode
+                  + ", output:\n" + output, output);
+         }
+         return output;
+      } catch (IOException e) {
+         outputRecorder.stopRecording();
+         throw new IllegalStateException("Failed executing " + command + " in " + path.getAbsolutePath(), e);
+      } catch (InterruptedException e) {
+         // Don't leave vagrant running unknown to jclouds, it would keep changing the machines
+         destroy(process);
+         outputRecorder.stopRecording();
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      }
+   }
+
+   /**
+    * Kills the process and waits for it to exit, even if the thread is interrupted
+    */
+   private static void destroy(Process process) {
+      process.destroy();
+      while (true) {
+         try {
+            process.waitFor();
+            return;
+         } catch (InterruptedException e) {
+            // Retry, the caller restores the interrupt
+         }
+      }
+   }
+
+   /**
+    * Splits the machine readable output of a multi-machine command by machine. Lines are
+    * attributed using their target column, or the machine name prefixing the message for UI
+    * lines which have no target. Lines not related to a particular machine are kept for all.
+    */
+   static Map<String, String> splitByMachine(String output, Collection<String> machineNames) {
+      Map<String, StringBuilder> outputs = new LinkedHashMap<String, StringBuilder>();
+      for (String name : machineNames) {
+         outputs.put(name, new StringBuilder());
+      }
+      for (String line : Splitter.on('\n').omitEmptyStrings().split(output)) {
+         List<String> columns = Splitter.on(',').limit(5).splitToList(line);
+         String machine = columns.size() > 1 ? columns.get(1) : "";
+         if (!outputs.containsKey(machine) && columns.size() > 4) {
+            Matcher m = PATTERN_MACHINE_PREFIX.matcher(columns.get(4));
+            machine = m.find() ? m.group(1) : "";
+         }
+         StringBuilder machineOutput = outputs.get(machine);
+         if (machineOutput != null) {
+            machineOutput.append(line).append('\n');
+         } else {
+            for (StringBuilder out : outputs.values()) {
+               out.append(line).append('\n');
+            }
+         }
+      }
+      Map<String, String> result = new LinkedHashMap<String, String>();
+      for (Map.Entry<String, StringBuilder> entry : outputs.entrySet()) {
+         result.put(entry.getKey(), entry.getValue().toString());
+      }
+      return result;
+   }
+
+   @Override
+   public Map<String, Status> status(Collection<String> machineNames) {
+      return parseStatus(exec(ImmutableList.<String>builder().add("status", "--machine-readable").addAll(machineNames).build()));
+   }
+
+   /**
+    * Parses the "state" lines of the machine readable output of "vagrant status"
+    */
+   static Map<String, Status> parseStatus(String output) {
+      Map<String, Status> states = new LinkedHashMap<String, Status>();
+      for (String line : Splitter.on('\n').omitEmptyStrings().split(output)) {
+         List<String> columns = Splitter.on(',').limit(4).splitToList(line.trim());
+         if (columns.size() == 4 && columns.get(2).equals("state") && !columns.get(1).isEmpty()) {
+            states.put(columns.get(1), toStatus(columns.get(3)));
+         }
+      }
+      return states;
+   }
+
+   private static Status toStatus(String state) {
+      if (state.equals("running")) {
+         return Status.RUNNING;
+      } else if (state.equals("not_created")) {
+         return Status.TERMINATED;
+      } else if (STOPPED_STATES.contains(state)) {
+         return Status.SUSPENDED;
+      } else if (state.equals("inaccessible")) {
+         return Status.ERROR;
+      } else {
+         return Status.UNRECOGNIZED;
+      }
    }
 
    @Override
    public void halt(String machineName) {
-      vagrant.halt(machineName);
+      exec(ImmutableList.of("halt", machineName));
    }
 
    @Override
    public void destroy(String machineName) {
-      vagrant.destroy(machineName);
+      exec(ImmutableList.of("destroy", "--force", machineName));
    }
 
    @Override
@@ -102,7 +266,7 @@ public class VagrantCliFacade implements VagrantApiFacade, VagrantBoxApiFacade<B
 
    @Override
    public void haltForced(String name) {
-      vagrant.haltForced(name);
+      exec(ImmutableList.of("halt", "--force", name));
    }
 
    @Override
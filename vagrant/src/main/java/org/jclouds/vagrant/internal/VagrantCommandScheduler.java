@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.jclouds.logging.Logger;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.inject.Singleton;
+
+/**
+ * Limits the number of vagrant commands running at the same time for each provider. VirtualBox
+ * (vboxmanage) fails indeterministically when executed in parallel so its commands run one at a
+ * time, while other providers can run several, as configured by
+ * {@link VagrantConstants#JCLOUDS_VAGRANT_PROVIDER_CONCURRENCY}. Providers not configured run one
+ * command at a time.
+ * <p>
+ * Commands waiting for a provider are queued by group and the groups take turns, so creating a
+ * large group does not hold back the commands of the other groups. Low priority commands, like
+ * background status refreshes, only start when no other command is waiting.
+ */
+@Singleton
+public class VagrantCommandScheduler {
+   public enum Priority {
+      NORMAL, LOW
+   }
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final Map<String, Integer> concurrency;
+   private final Map<String, ProviderQueue> queues = Maps.newHashMap();
+
+   @Inject
+   VagrantCommandScheduler(@Named(VagrantConstants.JCLOUDS_VAGRANT_PROVIDER_CONCURRENCY) String concurrency) {
+      ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+      for (Map.Entry<String, String> entry : Splitter.on(',').trimResults().omitEmptyStrings()
+            .withKeyValueSeparator('=').split(concurrency).entrySet()) {
+         builder.put(entry.getKey().trim(), Math.max(1, Integer.parseInt(entry.getValue().trim())));
+      }
+      this.concurrency = builder.build();
+   }
+
+   /**
+    * Executes a command once the provider has a free slot
+    *
+    * @param provider the provider of the machines the command operates on, null if unknown
+    * @param group the group of the machines the command operates on
+    * @return the result of the command
+    */
+   public <T> T execute(String provider, String group, Callable<T> command) {
+      return execute(provider, group, Priority.NORMAL, command);
+   }
+
+   /**
+    * Executes a command once the provider has a free slot and no command of a higher priority is waiting
+    *
+    * @param provider the provider of the machines the command operates on, null if unknown
+    * @param group the group of the machines the command operates on
+    * @param priority the priority of the command
+    * @return the result of the command
+    */
+   public <T> T execute(String provider, String group, Priority priority, Callable<T> command) {
+      ProviderQueue queue = acquire(provider, group, priority);
+      try {
+         return command.call();
+      } catch (Exception e) {
+         throw Throwables.propagate(e);
+      } finally {
+         release(queue);
+      }
+   }
+
+   /**
+    * Returns the statistics of the providers which executed commands, by provider name
+    */
+   public synchronized Map<String, QueueStats> getStats() {
+      ImmutableMap.Builder<String, QueueStats> stats = ImmutableMap.builder();
+      for (Map.Entry<String, ProviderQueue> entry : queues.entrySet()) {
+         ProviderQueue queue = entry.getValue();
+         stats.put(entry.getKey(), new QueueStats(queue.concurrency, queue.running, queue.queued, queue.executed,
+               TimeUnit.NANOSECONDS.toMillis(queue.totalWaitNanos), TimeUnit.NANOSECONDS.toMillis(queue.maxWaitNanos)));
+      }
+      return stats.build();
+   }
+
+   private synchronized ProviderQueue acquire(String provider, String group, Priority priority) {
+      String key = String.valueOf(provider);
+      ProviderQueue queue = queues.get(key);
+      if (queue == null) {
+         Integer limit = concurrency.get(key);
+         queue = new ProviderQueue(limit == null ? 1 : limit);
+         queues.put(key, queue);
+      }
+      if (queue.queued == 0 && queue.running < queue.concurrency) {
+         queue.start(0);
+         return queue;
+      }
+
+      Ticket ticket = new Ticket();
+      queue.add(group, priority, ticket);
+      logger.debug("Queuing %s priority command of group %s, %d commands waiting for provider %s",
+            priority, group, queue.queued, key);
+      try {
+         while (!ticket.started) {
+            wait();
+         }
+      } catch (InterruptedException e) {
+         if (ticket.started) {
+            release(queue);
+         } else {
+            queue.remove(group, priority, ticket);
+         }
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      }
+      return queue;
+   }
+
+   private synchronized void release(ProviderQueue queue) {
+      queue.running--;
+      if (queue.startNext()) {
+         notifyAll();
+      }
+   }
+
+   private static class Ticket {
+      private final long queuedAt = System.nanoTime();
+      private boolean started;
+   }
+
+   private static class ProviderQueue {
+      private final int concurrency;
+      // Groups with waiting commands, in the order they take turns
+      private final LinkedHashMap<String, Deque<Ticket>> waiting = new LinkedHashMap<String, Deque<Ticket>>();
+      private final Deque<Ticket> lowPriority = new ArrayDeque<Ticket>();
+      private int running;
+      private int queued;
+      private long executed;
+      private long totalWaitNanos;
+      private long maxWaitNanos;
+
+      ProviderQueue(int concurrency) {
+         this.concurrency = concurrency;
+      }
+
+      void add(String group, Priority priority, Ticket ticket) {
+         if (priority == Priority.LOW) {
+            lowPriority.add(ticket);
+            queued++;
+            return;
+         }
+         Deque<Ticket> tickets = waiting.get(group);
+         if (tickets == null) {
+            tickets = new ArrayDeque<Ticket>();
+            waiting.put(group, tickets);
+         }
+         tickets.add(ticket);
+         queued++;
+      }
+
+      void remove(String group, Priority priority, Ticket ticket) {
+         if (priority == Priority.LOW) {
+            if (lowPriority.remove(ticket)) {
+               queued--;
+            }
+            return;
+         }
+         Deque<Ticket> tickets = waiting.get(group);
+         if (tickets != null && tickets.remove(ticket)) {
+            queued--;
+            if (tickets.isEmpty()) {
+               waiting.remove(group);
+            }
+         }
+      }
+
+      /**
+       * Starts the next command of the group whose turn it is, the group then moves to the back.
+       * Low priority commands start when no group has a command waiting.
+       *
+       * @return true if a command was started
+       */
+      boolean startNext() {
+         if (running >= concurrency || queued == 0) {
+            return false;
+         }
+         Ticket ticket;
+         if (waiting.isEmpty()) {
+            ticket = lowPriority.poll();
+         } else {
+            Iterator<Map.Entry<String, Deque<Ticket>>> groups = waiting.entrySet().iterator();
+            Map.Entry<String, Deque<Ticket>> next = groups.next();
+            groups.remove();
+            ticket = next.getValue().poll();
+            if (!next.getValue().isEmpty()) {
+               waiting.put(next.getKey(), next.getValue());
+            }
+         }
+         queued--;
+         ticket.started = true;
+         start(System.nanoTime() - ticket.queuedAt);
+         return true;
+      }
+
+      void start(long waitNanos) {
+         running++;
+         executed++;
+         totalWaitNanos += waitNanos;
+         maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+      }
+   }
+
+   /**
+    * Statistics of the commands of a provider
+    */
+   public static final class QueueStats {
+      private final int concurrency;
+      private final int running;
+      private final int queued;
+      private final long executed;
+      private final long totalWaitMillis;
+      private final long maxWaitMillis;
+
+      QueueStats(int concurrency, int running, int queued, long executed, long totalWaitMillis, long maxWaitMillis) {
+         this.concurrency = concurrency;
+         this.running = running;
+         this.queued = queued;
+         this.executed = executed;
+         this.totalWaitMillis = totalWaitMillis;
+         this.maxWaitMillis = maxWaitMillis;
+      }
+
+      /**
+       * Maximum number of commands running at the same time
+       */
+      public int getConcurrency() {
+         return concurrency;
+      }
+
+      public int getRunning() {
+         return running;
+      }
+
+      /**
+       * Number of commands waiting for a free slot
+       */
+      public int getQueued() {
+         return queued;
+      }
+
+      /**
+       * Number of commands started so far
+       */
+      public long getExecuted() {
+         return executed;
+      }
+
+      public long getTotalWaitMillis() {
+         return totalWaitMillis;
+      }
+
+      public long getMaxWaitMillis() {
+         return maxWaitMillis;
+      }
+
+      @Override
+      public String toString() {
+         return "QueueStats{concurrency=" + concurrency + ", running=" + running + ", queued=" + queued
+               + ", executed=" + executed + ", totalWaitMillis=" + totalWaitMillis + ", maxWaitMillis="
+               + maxWaitMillis + "}";
+      }
+   }
+
+}
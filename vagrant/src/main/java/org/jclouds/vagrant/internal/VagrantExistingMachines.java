@@ -46,16 +46,19 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
 
    private final File home;
    private final MachineConfig.Factory machineConfigFactory;
+   private final MachineMetadata.Factory machineMetadataFactory;
    private final Supplier<Collection<Image>> imageLister;
    private final Supplier<? extends Map<String, Hardware>> hardwareSupplier;
 
    @Inject
    VagrantExistingMachines(@Named(VagrantConstants.JCLOUDS_VAGRANT_HOME) String home,
          MachineConfig.Factory machineConfigFactory,
+         MachineMetadata.Factory machineMetadataFactory,
          Supplier<Collection<Image>> imageLister,
          Supplier<? extends Map<String, Hardware>> hardwareSupplier) {
       this.home = new File(home);
       this.machineConfigFactory = machineConfigFactory;
+      this.machineMetadataFactory = machineMetadataFactory;
       this.imageLister = imageLister;
       this.hardwareSupplier = hardwareSupplier;
    }
@@ -96,9 +99,9 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
       return imageMap;
    }
 
-   // Build minimum viable VagrantNode. Just enough to allow users to halt the machine.
-   // If this is found to be inadequate need to keep the missing information in the config
-   // file as we can't always fetch it at this point (machine is halted or Windows).
+   // Restore the node from the metadata saved while the machine was created. Machines created
+   // before it was saved, or whose metadata is unreadable, get a minimum viable VagrantNode, just enough to allow users to halt them,
+   // as the missing information can't always be fetched at this point (machine is halted or Windows).
    private VagrantNode createMachine(File group, File machine, Map<String, Image> images) {
       String machineName = machine.getName().replace(VagrantConstants.MACHINES_CONFIG_EXTENSION, "");
       String id = group.getName() + "/" + machineName;
@@ -116,18 +119,39 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
       // or halted it could be using an older image or switch to the latest on UP correspondingly.
       // Ubuntu for example will change passwords between image versions so we might need to fix
       // the image version used in future, so it doesn't change and we know which one is used.
-      VagrantNode node = VagrantNode.builder()
+      Optional<MachineMetadata.Saved> saved;
+      try {
+         saved = machineMetadataFactory.newInstance(group, machineName).load();
+      } catch (IllegalStateException e) {
+         // Don't lose track of a machine whose metadata can't be read, e.g. written partially,
+         // load it like the machines created before it was saved
+         logger.warn(e, "Failed loading metadata of machine %s, restoring it from its config only", id);
+         saved = Optional.absent();
+      }
+      VagrantNode.Builder builder = VagrantNode.builder()
             .setPath(group)
             .setId(id)
             .setGroup(group.getName())
             .setName(machineName)
             .setImage(image)
-            .setHardware(hardware)
-            .setNetworks(ImmutableList.<String>of())
-            .setHostname("unknown")
-            .build();
-      // Don't bother asking Vagrant for the status as it could take quite a while for all the running machines
-      node.setMachineState(Status.UNRECOGNIZED);
+            .setHardware(hardware);
+      if (saved.isPresent()) {
+         builder.setNetworks(saved.get().networks())
+               .setHostname(saved.get().hostname().or("unknown"))
+               .setTags(saved.get().tags())
+               .setUserMetadata(saved.get().userMetadata());
+      } else {
+         builder.setNetworks(ImmutableList.<String>of())
+               .setHostname("unknown");
+      }
+      VagrantNode node = builder.build();
+      // Don't bother asking Vagrant for the status as it could take quite a while for all the running machines,
+      // use the last known state until it's refreshed
+      if (saved.isPresent()) {
+         node.setMachineState(saved.get().state(), saved.get().stateTimestamp());
+      } else {
+         node.setMachineState(Status.UNRECOGNIZED, 0);
+      }
       return node;
    }
 
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.logging.Logger;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.api.VagrantCommandException;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.Singleton;
+
+/**
+ * Starts the machines of a group with a single multi-machine "vagrant up". All the machines of a
+ * group share the Vagrantfile of the group folder, so once their configs are written they can be
+ * started together. The machines of a group being created join the same batch until its command
+ * gets a slot from the {@link VagrantCommandScheduler}, so machines created while the provider is
+ * busy are started together. The machines of a createNodesInGroup call are announced with
+ * {@link #expect}, and the first of them waits for the others, at most for the batch window, so
+ * they are started together even when the provider is idle. Machines created while the command
+ * runs form the next batch. Vagrant boots the machines in parallel when
+ * the provider supports it, so a group takes about as long as its slowest machine to start instead
+ * of the sum of all of them.
+ * <p>
+ * When the command fails, the machines vagrant reports as running are started anyway, so that they
+ * get a node instead of being left running unknown to jclouds. Only the other machines fail.
+ */
+@Singleton
+public class VagrantGroupStarter {
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final VagrantApiFacade.Factory cliFactory;
+   private final VagrantCommandScheduler scheduler;
+   private final long batchWindow;
+   private final Map<List<Object>, Batch> pending = Maps.newHashMap();
+   // Announced machines that didn't join a batch yet, guarded by pending
+   private final Map<List<Object>, Integer> expected = Maps.newHashMap();
+
+   @Inject
+   VagrantGroupStarter(VagrantApiFacade.Factory cliFactory,
+         VagrantCommandScheduler scheduler,
+         @Named(VagrantConstants.JCLOUDS_VAGRANT_UP_BATCH_WINDOW) long batchWindow) {
+      this.cliFactory = cliFactory;
+      this.scheduler = scheduler;
+      this.batchWindow = batchWindow;
+   }
+
+   /**
+    * Announces machines of a group about to be created, so the first of them to be started waits
+    * for the others
+    */
+   public void expect(File path, String provider, int count) {
+      List<Object> key = key(path, provider);
+      synchronized (pending) {
+         expected.put(key, expected(key) + count);
+      }
+   }
+
+   /**
+    * Withdraws announced machines that won't be started, so the others don't wait for them
+    */
+   public void cancel(File path, String provider, int count) {
+      List<Object> key = key(path, provider);
+      synchronized (pending) {
+         decrement(key, count);
+         pending.notifyAll();
+      }
+   }
+
+   /**
+    * Starts a machine whose config has already been written in the group folder
+    *
+    * @return the raw output of the configured provisioners for the machine, possibly incomplete if
+    *         the machine was started by a command that failed for other machines
+    */
+   public String up(File path, String machineName, String provider) {
+      List<Object> key = key(path, provider);
+      SettableFuture<String> output = SettableFuture.create();
+      Batch batch;
+      boolean first = false;
+      synchronized (pending) {
+         batch = pending.get(key);
+         if (batch == null) {
+            batch = new Batch(key, path, provider);
+            pending.put(key, batch);
+            first = true;
+         }
+         batch.outputs.put(machineName, output);
+         decrement(key, 1);
+         pending.notifyAll();
+      }
+      if (first) {
+         awaitExpected(key);
+         batch.start();
+      }
+      try {
+         return Uninterruptibles.getUninterruptibly(output);
+      } catch (ExecutionException e) {
+         throw Throwables.propagate(e.getCause());
+      }
+   }
+
+   private static List<Object> key(File path, String provider) {
+      return Arrays.<Object>asList(path.getAbsoluteFile(), provider);
+   }
+
+   private int expected(List<Object> key) {
+      Integer count = expected.get(key);
+      return count == null ? 0 : count;
+   }
+
+   private void decrement(List<Object> key, int count) {
+      int remaining = expected(key) - count;
+      if (remaining > 0) {
+         expected.put(key, remaining);
+      } else {
+         expected.remove(key);
+      }
+   }
+
+   /**
+    * Waits for the announced machines of the group to join the pending batch, at most for the
+    * batch window
+    */
+   private void awaitExpected(List<Object> key) {
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindow);
+      synchronized (pending) {
+         while (expected(key) > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+               // Don't make later machines wait for the ones that never joined
+               logger.debug("Starting machines of %s without %d announced machines", key.get(0), expected(key));
+               expected.remove(key);
+               return;
+            }
+            try {
+               TimeUnit.NANOSECONDS.timedWait(pending, remaining);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               return;
+            }
+         }
+      }
+   }
+
+   private class Batch {
+      private final List<Object> key;
+      private final File path;
+      private final String provider;
+      // Guarded by pending until the batch is closed
+      private final Map<String, SettableFuture<String>> outputs = Maps.newLinkedHashMap();
+
+      Batch(List<Object> key, File path, String provider) {
+         this.key = key;
+         this.path = path;
+         this.provider = provider;
+      }
+
+      void start() {
+         try {
+            scheduler.execute(provider, path.getName(), new Callable<Void>() {
+               @Override
+               public Void call() {
+                  run(close());
+                  return null;
+               }
+            });
+         } catch (RuntimeException e) {
+            fail(e);
+         } catch (Error e) {
+            fail(e);
+         }
+      }
+
+      /**
+       * Stops machines from joining the batch
+       *
+       * @return the outputs of the machines of the batch, by machine name
+       */
+      private Map<String, SettableFuture<String>> close() {
+         synchronized (pending) {
+            if (pending.get(key) == this) {
+               pending.remove(key);
+            }
+            return ImmutableMap.copyOf(outputs);
+         }
+      }
+
+      private void run(Map<String, SettableFuture<String>> machines) {
+         VagrantApiFacade vagrant = cliFactory.create(path);
+         if (machines.size() == 1) {
+            Map.Entry<String, SettableFuture<String>> machine = Iterables.getOnlyElement(machines.entrySet());
+            machine.getValue().set(vagrant.up(machine.getKey(), provider));
+            return;
+         }
+         logger.debug("Starting machines %s in %s with a single command", machines.keySet(), path.getAbsolutePath());
+         Map<String, String> output;
+         try {
+            output = vagrant.up(machines.keySet(), provider);
+         } catch (RuntimeException e) {
+            completeRunning(vagrant, machines, e);
+            return;
+         }
+         for (Map.Entry<String, SettableFuture<String>> machine : machines.entrySet()) {
+            machine.getValue().set(output.get(machine.getKey()));
+         }
+      }
+
+      /**
+       * Completes the machines that are running despite the failure of the command with their part
+       * of the command output, empty if it is not known, and fails the other machines.
+       */
+      private void completeRunning(VagrantApiFacade vagrant, Map<String, SettableFuture<String>> machines,
+            RuntimeException failure) {
+         Map<String, String> outputs = ImmutableMap.of();
+         if (failure instanceof VagrantCommandException) {
+            outputs = VagrantCliFacade.splitByMachine(((VagrantCommandException) failure).getOutput(),
+                  machines.keySet());
+         }
+         Map<String, Status> states = ImmutableMap.of();
+         try {
+            states = vagrant.status(machines.keySet());
+         } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+         }
+         for (Map.Entry<String, SettableFuture<String>> machine : machines.entrySet()) {
+            if (states.get(machine.getKey()) == Status.RUNNING) {
+               logger.warn("Machine %s in %s started although starting its group failed", machine.getKey(),
+                     path.getAbsolutePath());
+               machine.getValue().set(Strings.nullToEmpty(outputs.get(machine.getKey())));
+            } else {
+               machine.getValue().setException(failure);
+            }
+         }
+      }
+
+      private void fail(Throwable failure) {
+         for (SettableFuture<String> output : close().values()) {
+            output.setException(failure);
+         }
+      }
+   }
+
+}
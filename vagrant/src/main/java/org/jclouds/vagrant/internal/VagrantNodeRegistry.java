@@ -20,10 +20,13 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.jclouds.compute.domain.NodeMetadata.Status;
 import org.jclouds.vagrant.domain.VagrantNode;
+import org.jclouds.vagrant.reference.VagrantConstants;
 
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -66,6 +69,10 @@ import com.google.inject.Singleton;
  *     The file could store other information like the tags and the metadata.
  *   </li>
  * </ul>
+ * The first and last options are combined: the hostname and IPs, along with the last known state,
+ * the tags and the user metadata, are saved by {@link MachineMetadata} next to the yaml file and
+ * restored on a new start. Restored states older than the configured TTL are refreshed in the
+ * background by {@link VagrantStatusRefresher}.
  * <p>
  * 2. Existing machines list can be reconstructed easily - just listing the files on the disk.
  * Worth mentioning that machines created by jclouds follow some conventions. Manually
@@ -75,8 +82,8 @@ import com.google.inject.Singleton;
  * from previous runs. That's a local "service" and no concurrent modifications of the machines
  * is expected. There could be parallel processes running but still each one would
  * manage its own machines. That's even strongly discouraged that since virtualbox (vboxmanage) has
- * problems when it's executed in parallel. Currently the vagrant bindings explicitly serialise
- * execs of vagrant.
+ * problems when it's executed in parallel. Commands are limited per provider by
+ * {@link VagrantCommandScheduler}, virtualbox commands are executed one at a time.
  * <p>
  * 3. Machine status can reliably be inferred. The key here is that the vagrant commands are
  * synchronous. If "vagrant up" completes successfully then the status is RUNNING. If it fails
@@ -84,7 +91,10 @@ import com.google.inject.Singleton;
  * state polling. It gets more obvious when several machines are spun up in parallel. Since
  * vagrant commands are executed sequentially a vagrant up would block other vagrant status
  * commands for quite a while.
- * Possible improvements: time out the status value, refreshing it after some period on request
+ * Machines can still be halted or destroyed outside of jclouds, so states older than
+ * {@link VagrantConstants#JCLOUDS_VAGRANT_STATE_TTL} are refreshed in the background when the
+ * machines are accessed, with a single "vagrant status" for each group folder, see
+ * {@link VagrantStatusRefresher}. A group can also be refreshed explicitly with {@link #refresh(String)}.
  * <p>
  * The registry allows us to really streamline machine creation. All it takes is a single
  * "vagrant up". It needs around a minute to return a usable machine (obviously depends on the
@@ -93,8 +103,7 @@ import com.google.inject.Singleton;
  * <p>
  * Expiring (and refreshing) machine list while running might not be wanted - would result in
  * parallel execution of vagrant command against another's process machines. Virtualbox (vboxmanage)
- * fails indeterministically when executed in parallel. Expiring the status would be a nice
- * improvement.
+ * fails indeterministically when executed in parallel.
  */
 @Singleton
 public class VagrantNodeRegistry {
@@ -118,14 +127,20 @@ public class VagrantNodeRegistry {
    }
 
    private final Supplier<Map<String, VagrantNode>> nodes;
+   private final VagrantStatusRefresher statusRefresher;
 
    @Inject
-   VagrantNodeRegistry(Supplier<Collection<VagrantNode>> existingMachines) {
+   VagrantNodeRegistry(Supplier<Collection<VagrantNode>> existingMachines, VagrantStatusRefresher statusRefresher) {
       this.nodes = Suppliers.memoize(new ConcurrentWrapperSupplier(existingMachines));
+      this.statusRefresher = statusRefresher;
    }
 
    public VagrantNode get(String id) {
-      return nodes().get(id);
+      VagrantNode node = nodes().get(id);
+      if (node != null) {
+         statusRefresher.refreshStale(getGroup(node.group()));
+      }
+      return node;
    }
 
    public void add(VagrantNode node) {
@@ -133,11 +148,34 @@ public class VagrantNodeRegistry {
    }
 
    public Collection<VagrantNode> list() {
-      return nodes().values();
+      Collection<VagrantNode> list = nodes().values();
+      statusRefresher.refreshStale(list);
+      return list;
+   }
+
+   /**
+    * Refreshes the state of the machines of the group, waiting for vagrant to report it
+    */
+   public void refresh(String group) {
+      statusRefresher.refresh(getGroup(group));
    }
 
    public void onTerminated(VagrantNode node) {
-      nodes().remove(node.id());
+      // Removed machines are always TERMINATED so a pending refresh skips them
+      synchronized (node) {
+         node.setMachineState(Status.TERMINATED);
+         nodes().remove(node.id());
+      }
+   }
+
+   private Collection<VagrantNode> getGroup(String group) {
+      Collection<VagrantNode> groupNodes = Lists.newArrayList();
+      for (VagrantNode node : nodes().values()) {
+         if (node.group().equals(group)) {
+            groupNodes.add(node);
+         }
+      }
+      return groupNodes;
    }
 
    private Map<String, VagrantNode> nodes() {
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.logging.Logger;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.domain.VagrantNode;
+import org.jclouds.vagrant.internal.VagrantCommandScheduler.Priority;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Refreshes the state of machines with a single "vagrant status" for all the machines of a group
+ * folder, so refreshing costs one command per group instead of one per machine. States older than
+ * the configured TTL are refreshed in the background, in a low priority slot of the
+ * {@link VagrantCommandScheduler}.
+ */
+@Singleton
+public class VagrantStatusRefresher {
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final VagrantApiFacade.Factory cliFactory;
+   private final VagrantCommandScheduler scheduler;
+   private final MachineMetadata.Factory machineMetadataFactory;
+   private final ListeningExecutorService executor;
+   private final long ttlMillis;
+   // When each group folder was last refreshed in the background, to refresh it at most once per TTL
+   private final Map<List<Object>, Long> lastRefreshes = Maps.newHashMap();
+
+   @Inject
+   VagrantStatusRefresher(VagrantApiFacade.Factory cliFactory,
+         VagrantCommandScheduler scheduler,
+         MachineMetadata.Factory machineMetadataFactory,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService executor,
+         @Named(VagrantConstants.JCLOUDS_VAGRANT_STATE_TTL) long ttlSeconds) {
+      this.cliFactory = cliFactory;
+      this.scheduler = scheduler;
+      this.machineMetadataFactory = machineMetadataFactory;
+      this.executor = executor;
+      this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+   }
+
+   /**
+    * Refreshes in the background the group folders having a machine with a stale state. All the
+    * given machines of such a folder are refreshed.
+    */
+   public void refreshStale(Collection<VagrantNode> nodes) {
+      if (ttlMillis <= 0) {
+         return;
+      }
+      long now = System.currentTimeMillis();
+      for (Map.Entry<List<Object>, Collection<VagrantNode>> entry : byGroupFolder(nodes).asMap().entrySet()) {
+         final List<Object> key = entry.getKey();
+         final Collection<VagrantNode> groupNodes = entry.getValue();
+         if (isStale(groupNodes, now) && startRefresh(key, now)) {
+            executor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  try {
+                     refresh((File) key.get(0), (String) key.get(1), groupNodes, Priority.LOW);
+                  } catch (RuntimeException e) {
+                     logger.warn(e, "Failed refreshing the state of the machines in %s", key.get(0));
+                  }
+               }
+            });
+         }
+      }
+   }
+
+   /**
+    * Refreshes the state of the machines, waiting for the commands to complete
+    */
+   public void refresh(Collection<VagrantNode> nodes) {
+      for (Map.Entry<List<Object>, Collection<VagrantNode>> entry : byGroupFolder(nodes).asMap().entrySet()) {
+         refresh((File) entry.getKey().get(0), (String) entry.getKey().get(1), entry.getValue(), Priority.NORMAL);
+      }
+   }
+
+   private void refresh(final File path, String provider, Collection<VagrantNode> nodes, Priority priority) {
+      final List<String> names = Lists.newArrayList();
+      for (VagrantNode node : nodes) {
+         names.add(node.name());
+      }
+      logger.debug("Refreshing the state of machines %s in %s", names, path.getAbsolutePath());
+      long timestamp = System.currentTimeMillis();
+      String group = nodes.iterator().next().group();
+      Map<String, Status> states = scheduler.execute(provider, group, priority, new Callable<Map<String, Status>>() {
+         @Override
+         public Map<String, Status> call() {
+            return cliFactory.create(path).status(names);
+         }
+      });
+      for (VagrantNode node : nodes) {
+         Status state = states.get(node.name());
+         if (state == null) {
+            continue;
+         }
+         // Destroying a machine marks it TERMINATED and deletes its files holding the node lock,
+         // so a destroyed machine is never updated or its metadata written back. The adapter also
+         // sets states holding it, so a state set since the command was queued, more accurate, is
+         // never overwritten.
+         synchronized (node) {
+            MachineMetadata metadata = machineMetadataFactory.newInstance(node);
+            if (node.machineStateTimestamp() < timestamp && node.machineState() != Status.TERMINATED
+                  && metadata.exists()) {
+               node.setMachineState(state);
+               metadata.save(node);
+            }
+         }
+      }
+   }
+
+   private boolean isStale(Collection<VagrantNode> nodes, long now) {
+      for (VagrantNode node : nodes) {
+         if (now - node.machineStateTimestamp() >= ttlMillis) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private boolean startRefresh(List<Object> key, long now) {
+      synchronized (lastRefreshes) {
+         // Expired entries don't prevent any refresh, drop them so destroyed groups are not kept
+         Iterator<Long> it = lastRefreshes.values().iterator();
+         while (it.hasNext()) {
+            if (now - it.next() >= ttlMillis) {
+               it.remove();
+            }
+         }
+         Long last = lastRefreshes.get(key);
+         if (last != null && now - last < ttlMillis) {
+            return false;
+         }
+         lastRefreshes.put(key, now);
+         return true;
+      }
+   }
+
+   private static ListMultimap<List<Object>, VagrantNode> byGroupFolder(Collection<VagrantNode> nodes) {
+      ListMultimap<List<Object>, VagrantNode> byGroupFolder = ArrayListMultimap.create();
+      for (VagrantNode node : nodes) {
+         String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
+         byGroupFolder.put(Arrays.<Object>asList(node.path().getAbsoluteFile(), provider), node);
+      }
+      return byGroupFolder;
+   }
+
+}
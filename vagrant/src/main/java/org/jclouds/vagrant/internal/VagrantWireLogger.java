@@ -28,7 +28,7 @@ import vagrant.api.CommandIOListener;
 public class VagrantWireLogger implements CommandIOListener {
    private HttpWire wire;
 
-   // Vagrant commands are sequential (non-concurrent)
+   // Commands of different providers run concurrently, their lines are logged as they complete
    private String lastPartialLine = "";
 
    @Inject
@@ -37,7 +37,7 @@ public class VagrantWireLogger implements CommandIOListener {
    }
 
    @Override
-   public void onInput(String input) {
+   public synchronized void onInput(String input) {
       // Inputs are always single-line
       if (input != null) {
          wire.input(new ByteArrayInputStream(input.getBytes(Charsets.UTF_8)));
@@ -45,7 +45,7 @@ public class VagrantWireLogger implements CommandIOListener {
    }
 
    @Override
-   public void onOutput(String output) {
+   public synchronized void onOutput(String output) {
       if (output != null) {
          int nlPos = output.indexOf('\n');
          String fullLineOutput;
@@ -28,11 +28,37 @@ public final class VagrantConstants {
    public static final String DEFAULT_PASSWORD = "vagrant";
    public static final String USER_META_PROVIDER = "provider";
 
+   /**
+    * Maximum milliseconds the first machine of a createNodesInGroup call waits for the other
+    * machines of the call to be created, so they are all started by a single multi-machine
+    * "vagrant up". The wait ends as soon as they all joined, so it only lasts the whole window when
+    * some of them are late, e.g. when the user thread pool is smaller than the group. 0 starts the
+    * first machine alone and the others with a second command when the provider is idle.
+    */
+   public static final String JCLOUDS_VAGRANT_UP_BATCH_WINDOW = "vagrant.up-batch-window";
+   public static final String JCLOUDS_VAGRANT_UP_BATCH_WINDOW_DEFAULT = "10000";
+
+   /**
+    * Maximum number of vagrant commands running at the same time by provider, as a comma separated
+    * list of provider=limit. Providers not listed run one command at a time.
+    */
+   public static final String JCLOUDS_VAGRANT_PROVIDER_CONCURRENCY = "vagrant.provider-concurrency";
+   public static final String JCLOUDS_VAGRANT_PROVIDER_CONCURRENCY_DEFAULT = "virtualbox=1,libvirt=4,docker=4,hyperv=4";
+
+   /**
+    * Seconds after which the state of a machine is considered stale and refreshed in the
+    * background with "vagrant status", 0 to disable refreshing.
+    */
+   public static final String JCLOUDS_VAGRANT_STATE_TTL = "vagrant.state-ttl";
+   public static final String JCLOUDS_VAGRANT_STATE_TTL_DEFAULT = "300";
+
    public static final String ENV_VAGRANT_HOME = "VAGRANT_HOME";
    public static final String ENV_VAGRANT_HOME_DEFAULT = new File(System.getProperty("user.home"), ".vagrant.d").getAbsolutePath();
    public static final String VAGRANT_BOXES_SUBFOLDER = "boxes";
 
    public static final String ESCAPE_SLASH = "-VAGRANTSLASH-";
+   public static final String ESCAPE_COLON = "-VAGRANTCOLON-";
+   public static final String BOX_METADATA = "metadata.json";
 
    public static final String DELIMITER_NETWORKS_START = "================= Networks start =================";
    public static final String DELIMITER_NETWORKS_END = "================= Networks end ===================";
@@ -52,6 +78,7 @@ public final class VagrantConstants {
 
    public static final String MACHINES_CONFIG_SUBFOLDER = "machines";
    public static final String MACHINES_CONFIG_EXTENSION = ".yaml";
+   public static final String MACHINES_METADATA_EXTENSION = ".json";
    public static final String MACHINES_AUTO_HARDWARE = "automatic";
 
    // Config file keys
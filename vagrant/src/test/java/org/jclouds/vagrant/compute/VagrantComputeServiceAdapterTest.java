@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.compute;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.HardwareBuilder;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.domain.Processor;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.options.TemplateOptions;
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.domain.VagrantNode;
+import org.jclouds.vagrant.internal.MachineConfig;
+import org.jclouds.vagrant.internal.MachineMetadata;
+import org.jclouds.vagrant.internal.VagrantCommandScheduler;
+import org.jclouds.vagrant.internal.VagrantGroupStarter;
+import org.jclouds.vagrant.internal.VagrantNodeRegistry;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+public class VagrantComputeServiceAdapterTest {
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testCreateNodeWithoutProvisioningOutput() {
+      File home = Files.createTempDir();
+      File group = new File(home, "group");
+
+      OperatingSystem os = new OperatingSystem(OsFamily.UBUNTU, "Ubuntu", "16.04", "x64", "Ubuntu", true);
+      Image image = new ImageBuilder()
+            .ids("ubuntu/xenial64")
+            .name("ubuntu/xenial64")
+            .operatingSystem(os)
+            .status(Image.Status.AVAILABLE)
+            .userMetadata(ImmutableMap.of(VagrantConstants.USER_META_PROVIDER, "virtualbox"))
+            .build();
+      Hardware hardware = new HardwareBuilder()
+            .ids("small")
+            .ram(512)
+            .processor(new Processor(1, 1))
+            .build();
+      Template template = EasyMock.createMock(Template.class);
+      EasyMock.expect(template.getImage()).andReturn(image).anyTimes();
+      EasyMock.expect(template.getHardware()).andReturn(hardware).anyTimes();
+      EasyMock.expect(template.getOptions()).andReturn(new TemplateOptions()).anyTimes();
+
+      // The machine was started by a group command that failed for other machines, its output is lost
+      VagrantGroupStarter groupStarter = EasyMock.createMock(VagrantGroupStarter.class);
+      EasyMock.expect(groupStarter.up(group, "m1", "virtualbox")).andReturn("");
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      LoginCredentials credentials = LoginCredentials.builder().user("vagrant").password("vagrant").build();
+      EasyMock.expect(vagrant.sshConfig("m1")).andReturn(credentials);
+      VagrantApiFacade.Factory cliFactory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(cliFactory.create(group)).andReturn(vagrant);
+      VagrantNodeRegistry nodeRegistry = EasyMock.createMock(VagrantNodeRegistry.class);
+      Capture<VagrantNode> added = new Capture<VagrantNode>();
+      nodeRegistry.add(EasyMock.capture(added));
+      EasyMock.replay(template, groupStarter, vagrant, cliFactory, nodeRegistry);
+
+      MachineMetadata.Factory machineMetadataFactory = new MachineMetadata.Factory();
+      VagrantComputeServiceAdapter adapter = new VagrantComputeServiceAdapter(home.getAbsolutePath(), null,
+            nodeRegistry, new MachineConfig.Factory(), machineMetadataFactory, cliFactory, groupStarter,
+            new VagrantCommandScheduler(""), EasyMock.createMock(Supplier.class),
+            EasyMock.createMock(Supplier.class), EasyMock.createMock(Function.class));
+      VagrantNode node = adapter.createNodeWithGroupEncodedIntoName("group", "group-m1", template).getNode();
+
+      assertEquals(added.getValue(), node);
+      assertEquals(node.id(), "group/m1");
+      assertTrue(node.networks().isEmpty());
+      assertEquals(node.hostname(), "unknown");
+      assertEquals(node.machineState(), Status.RUNNING);
+      assertEquals(machineMetadataFactory.newInstance(node).load().get().state(), Status.RUNNING);
+      EasyMock.verify(groupStarter, vagrant, cliFactory, nodeRegistry);
+      VagrantUtils.deleteFolder(home);
+   }
+
+}
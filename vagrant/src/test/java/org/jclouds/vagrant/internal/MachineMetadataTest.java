@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.easymock.EasyMock;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.vagrant.domain.VagrantNode;
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+public class MachineMetadataTest {
+
+   @Test
+   public void testMissing() {
+      File group = Files.createTempDir();
+      assertFalse(new MachineMetadata.Factory().newInstance(group, "machine").load().isPresent());
+      VagrantUtils.deleteFolder(group);
+   }
+
+   @Test
+   public void testSaveAndLoad() throws IOException {
+      File group = Files.createTempDir();
+      new File(group, "machines").mkdirs();
+      Files.touch(new File(group, "machines/machine.yaml"));
+      VagrantNode node = VagrantNode.builder()
+            .setPath(group)
+            .setId(group.getName() + "/machine")
+            .setGroup(group.getName())
+            .setName("machine")
+            .setImage(EasyMock.createMock(Image.class))
+            .setHardware(EasyMock.createMock(Hardware.class))
+            .setNetworks(ImmutableList.of("127.0.0.1", "172.28.128.3"))
+            .setHostname("vagrant-machine")
+            .setTags(ImmutableSet.of("tag1", "tag2"))
+            .setUserMetadata(ImmutableMap.of("key", "value"))
+            .build();
+      node.setMachineState(Status.SUSPENDED, 1000L);
+
+      MachineMetadata metadata = new MachineMetadata.Factory().newInstance(node);
+      metadata.save(node);
+      Optional<MachineMetadata.Saved> saved = metadata.load();
+
+      assertTrue(saved.isPresent());
+      assertEquals(saved.get().networks(), node.networks());
+      assertEquals(saved.get().hostname(), Optional.of("vagrant-machine"));
+      assertEquals(saved.get().state(), Status.SUSPENDED);
+      assertEquals(saved.get().stateTimestamp(), 1000L);
+      assertEquals(saved.get().tags(), node.tags());
+      assertEquals(saved.get().userMetadata(), node.userMetadata());
+      VagrantUtils.deleteFolder(group);
+   }
+
+   @Test
+   public void testSaveDeletedMachine() {
+      File group = Files.createTempDir();
+      new File(group, "machines").mkdirs();
+      VagrantNode node = VagrantNode.builder()
+            .setPath(group)
+            .setId(group.getName() + "/machine")
+            .setGroup(group.getName())
+            .setName("machine")
+            .setImage(EasyMock.createMock(Image.class))
+            .setHardware(EasyMock.createMock(Hardware.class))
+            .setNetworks(ImmutableList.<String>of())
+            .setHostname("vagrant-machine")
+            .build();
+      node.setMachineState(Status.RUNNING);
+
+      // The machine yaml is gone, saving must not re-create its metadata
+      MachineMetadata metadata = new MachineMetadata.Factory().newInstance(node);
+      metadata.save(node);
+
+      assertFalse(metadata.load().isPresent());
+      assertEquals(new File(group, "machines").list().length, 0);
+      VagrantUtils.deleteFolder(group);
+   }
+
+}
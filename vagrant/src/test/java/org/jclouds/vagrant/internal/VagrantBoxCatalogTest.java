@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jclouds.vagrant.functions.OutdatedBoxesFilter;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+import vagrant.api.domain.Box;
+
+public class VagrantBoxCatalogTest {
+   private File vagrantHome;
+   private VagrantBoxCatalog catalog;
+
+   @BeforeMethod
+   public void setUp() {
+      vagrantHome = Files.createTempDir();
+      catalog = new VagrantBoxCatalog(vagrantHome, new OutdatedBoxesFilter());
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void tearDown() throws IOException {
+      catalog.close();
+      VagrantUtils.deleteFolder(vagrantHome);
+   }
+
+   @Test
+   public void testNoBoxesFolder() {
+      assertEquals(catalog.listBoxes().size(), 0);
+      assertNull(catalog.getBox("jclouds/vagrant"));
+   }
+
+   @Test
+   public void testListBoxes() throws IOException {
+      addBox("jclouds-VAGRANTSLASH-vagrant", "1.0.2", "virtualbox", "{\"provider\":\"virtualbox\"}");
+      addBox("jclouds-VAGRANTSLASH-vagrant", "1.0.10", "virtualbox", "{\"provider\":\"virtualbox\"}");
+      addBox("local", "0", "libvirt", "{\"provider\":\"libvirt\",\"format\":\"qcow2\"}");
+      addBox("broken", "0", "docker", "not json");
+      // Still being added
+      new File(vagrantHome, "boxes/incomplete/0/virtualbox").mkdirs();
+
+      assertEquals(ImmutableSet.copyOf(catalog.listBoxes()), ImmutableSet.of(
+            new Box("jclouds/vagrant", "1.0.2", "virtualbox"),
+            new Box("jclouds/vagrant", "1.0.10", "virtualbox"),
+            new Box("local", "0", "libvirt"),
+            new Box("broken", "0", "docker")));
+      assertEquals(catalog.getBox("jclouds/vagrant"), new Box("jclouds/vagrant", "1.0.10", "virtualbox"));
+      assertNull(catalog.getBox("incomplete"));
+   }
+
+   @Test
+   public void testInvalidate() throws IOException {
+      addBox("local", "0", "virtualbox", "{\"provider\":\"virtualbox\"}");
+      assertEquals(catalog.getBox("local"), new Box("local", "0", "virtualbox"));
+
+      addBox("local", "1", "virtualbox", "{\"provider\":\"virtualbox\"}");
+      catalog.invalidate();
+      assertEquals(catalog.getBox("local"), new Box("local", "1", "virtualbox"));
+   }
+
+   @Test
+   public void testWatchesBoxesFolder() throws IOException, InterruptedException {
+      addBox("local", "0", "virtualbox", "{\"provider\":\"virtualbox\"}");
+      assertEquals(catalog.getBox("local"), new Box("local", "0", "virtualbox"));
+
+      addBox("local", "1", "virtualbox", "{\"provider\":\"virtualbox\"}");
+      addBox("other", "0", "virtualbox", "{\"provider\":\"virtualbox\"}");
+      // Some watch services poll the file system, give them time to notice the changes
+      long deadline = System.currentTimeMillis() + 30000;
+      while (catalog.listBoxes().size() < 3 && System.currentTimeMillis() < deadline) {
+         Thread.sleep(100);
+      }
+      assertEquals(catalog.getBox("local"), new Box("local", "1", "virtualbox"));
+      assertEquals(catalog.getBox("other"), new Box("other", "0", "virtualbox"));
+   }
+
+   private void addBox(String folderName, String version, String provider, String metadata) throws IOException {
+      File providerFolder = new File(vagrantHome, VagrantConstants.VAGRANT_BOXES_SUBFOLDER + "/" + folderName + "/" + version + "/" + provider);
+      providerFolder.mkdirs();
+      VagrantUtils.write(new File(providerFolder, VagrantConstants.BOX_METADATA), metadata);
+   }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class VagrantCliFacadeTest {
+
+   @Test
+   public void testSplitByMachine() {
+      String common = "1482768916,,ui,info,Bringing machines up with 'libvirt' provider...\n";
+      String m1 = "1482768916,m1,metadata,provider,libvirt\n"
+            + "1482768920,,ui,info,==> m1: Creating domain\n"
+            + "1482768980,,ui,output,    m1: ================= Hostname start\n";
+      String m2 = "1482768916,m2,metadata,provider,libvirt\n"
+            + "1482768921,,ui,info,==> m2: Creating domain\n";
+
+      Map<String, String> outputs = VagrantCliFacade.splitByMachine(common + m1 + m2, ImmutableList.of("m1", "m2"));
+
+      assertEquals(outputs.get("m1"), common + m1);
+      assertEquals(outputs.get("m2"), common + m2);
+   }
+
+   @Test
+   public void testSplitByMachineKeepsUnknownMachinesForAll() {
+      String other = "1482768920,,ui,info,==> other: Creating domain\n";
+
+      Map<String, String> outputs = VagrantCliFacade.splitByMachine(other, ImmutableList.of("m1", "m2"));
+
+      assertEquals(outputs.get("m1"), other);
+      assertEquals(outputs.get("m2"), other);
+   }
+
+   @Test
+   public void testParseStatus() {
+      String output = "1482768916,m1,metadata,provider,virtualbox\n"
+            + "1482768916,m1,provider-name,virtualbox\n"
+            + "1482768916,m1,state,running\n"
+            + "1482768916,m1,state-human-short,running\n"
+            + "1482768916,m2,state,poweroff\n"
+            + "1482768916,m3,state,not_created\n"
+            + "1482768916,m4,state,unknown_state\n"
+            + "1482768916,,ui,info,Current machine states:\n";
+
+      assertEquals(VagrantCliFacade.parseStatus(output), ImmutableMap.of(
+            "m1", Status.RUNNING,
+            "m2", Status.SUSPENDED,
+            "m3", Status.TERMINATED,
+            "m4", Status.UNRECOGNIZED));
+   }
+}
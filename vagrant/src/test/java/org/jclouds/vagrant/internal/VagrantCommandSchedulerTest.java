@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.vagrant.internal.VagrantCommandScheduler.Priority;
+import org.jclouds.vagrant.internal.VagrantCommandScheduler.QueueStats;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class VagrantCommandSchedulerTest {
+
+   @Test
+   public void testProviderConcurrency() throws Exception {
+      final VagrantCommandScheduler scheduler = new VagrantCommandScheduler("virtualbox=1, libvirt=2");
+      final AtomicInteger running = new AtomicInteger();
+      final AtomicInteger maxRunning = new AtomicInteger();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<Void>> results = Lists.newArrayList();
+         for (int i = 0; i < 4; i++) {
+            final String group = "group" + i;
+            results.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() {
+                  return scheduler.execute("libvirt", group, new Callable<Void>() {
+                     @Override
+                     public Void call() throws Exception {
+                        int current = running.incrementAndGet();
+                        synchronized (maxRunning) {
+                           maxRunning.set(Math.max(maxRunning.get(), current));
+                        }
+                        Thread.sleep(200);
+                        running.decrementAndGet();
+                        return null;
+                     }
+                  });
+               }
+            }));
+         }
+         for (Future<Void> result : results) {
+            result.get();
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      assertEquals(maxRunning.get(), 2);
+      QueueStats stats = scheduler.getStats().get("libvirt");
+      assertEquals(stats.getConcurrency(), 2);
+      assertEquals(stats.getExecuted(), 4);
+      assertEquals(stats.getRunning(), 0);
+      assertEquals(stats.getQueued(), 0);
+   }
+
+   @Test
+   public void testGroupsTakeTurns() throws Exception {
+      final VagrantCommandScheduler scheduler = new VagrantCommandScheduler("virtualbox=1");
+      final CountDownLatch blocked = new CountDownLatch(1);
+      final List<String> executed = Lists.newCopyOnWriteArrayList();
+      ExecutorService executor = Executors.newCachedThreadPool();
+      try {
+         List<Future<Void>> results = Lists.newArrayList();
+         results.add(executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+               return scheduler.execute("virtualbox", "blocker", new Callable<Void>() {
+                  @Override
+                  public Void call() throws Exception {
+                     blocked.await();
+                     return null;
+                  }
+               });
+            }
+         }));
+         waitForQueued(scheduler, 0, 1);
+         int queued = 0;
+         for (final String command : ImmutableList.of("a1", "a2", "a3", "b1")) {
+            results.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() {
+                  return scheduler.execute("virtualbox", command.substring(0, 1), new Callable<Void>() {
+                     @Override
+                     public Void call() {
+                        executed.add(command);
+                        return null;
+                     }
+                  });
+               }
+            }));
+            waitForQueued(scheduler, ++queued, 1);
+         }
+         blocked.countDown();
+         for (Future<Void> result : results) {
+            result.get();
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      assertEquals(executed, ImmutableList.of("a1", "b1", "a2", "a3"));
+      QueueStats stats = scheduler.getStats().get("virtualbox");
+      assertEquals(stats.getExecuted(), 5);
+      assertEquals(stats.getQueued(), 0);
+   }
+
+   @Test
+   public void testLowPriorityRunsLast() throws Exception {
+      final VagrantCommandScheduler scheduler = new VagrantCommandScheduler("virtualbox=1");
+      final CountDownLatch blocked = new CountDownLatch(1);
+      final List<String> executed = Lists.newCopyOnWriteArrayList();
+      ExecutorService executor = Executors.newCachedThreadPool();
+      try {
+         List<Future<Void>> results = Lists.newArrayList();
+         results.add(executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+               return scheduler.execute("virtualbox", "blocker", new Callable<Void>() {
+                  @Override
+                  public Void call() throws Exception {
+                     blocked.await();
+                     return null;
+                  }
+               });
+            }
+         }));
+         waitForQueued(scheduler, 0, 1);
+         int queued = 0;
+         for (final String command : ImmutableList.of("status", "a1", "b1")) {
+            final Priority priority = command.equals("status") ? Priority.LOW : Priority.NORMAL;
+            results.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() {
+                  return scheduler.execute("virtualbox", command.substring(0, 1), priority, new Callable<Void>() {
+                     @Override
+                     public Void call() {
+                        executed.add(command);
+                        return null;
+                     }
+                  });
+               }
+            }));
+            waitForQueued(scheduler, ++queued, 1);
+         }
+         blocked.countDown();
+         for (Future<Void> result : results) {
+            result.get();
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      assertEquals(executed, ImmutableList.of("a1", "b1", "status"));
+   }
+
+   private static void waitForQueued(VagrantCommandScheduler scheduler, int queued, int running)
+         throws InterruptedException {
+      while (true) {
+         QueueStats stats = scheduler.getStats().get("virtualbox");
+         if (stats != null && stats.getQueued() == queued && stats.getRunning() == running) {
+            return;
+         }
+         Thread.sleep(10);
+      }
+   }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.EasyMock;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.api.VagrantCommandException;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class VagrantGroupStarterTest {
+   private static final File PATH = new File("/path/to/group");
+
+   @Test
+   public void testSingleMachine() {
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.up("m1", "virtualbox")).andReturn("output");
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(PATH)).andReturn(vagrant);
+      EasyMock.replay(vagrant, factory);
+
+      VagrantGroupStarter starter = new VagrantGroupStarter(factory, new VagrantCommandScheduler(""), 0);
+      assertEquals(starter.up(PATH, "m1", "virtualbox"), "output");
+
+      EasyMock.verify(vagrant, factory);
+   }
+
+   @Test
+   public void testMachinesStartedTogether() throws Exception {
+      final List<String> names = ImmutableList.of("m1", "m2", "m3");
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.up(EasyMock.<Collection<String>>anyObject(), EasyMock.eq("libvirt")))
+            .andReturn(ImmutableMap.of("m1", "out1", "m2", "out2", "m3", "out3"));
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(PATH)).andReturn(vagrant);
+      EasyMock.replay(vagrant, factory);
+
+      final VagrantGroupStarter starter = new VagrantGroupStarter(factory, new VagrantCommandScheduler(""), 2000);
+      starter.expect(PATH, "libvirt", names.size());
+      ExecutorService executor = Executors.newFixedThreadPool(names.size());
+      try {
+         List<Future<String>> outputs = Lists.newArrayList();
+         for (final String name : names) {
+            outputs.add(executor.submit(new Callable<String>() {
+               @Override
+               public String call() {
+                  return starter.up(PATH, name, "libvirt");
+               }
+            }));
+         }
+         for (int i = 0; i < names.size(); i++) {
+            assertEquals(outputs.get(i).get(), "out" + (i + 1));
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      EasyMock.verify(vagrant, factory);
+   }
+
+   @Test
+   public void testRunningMachinesCompletedWhenBatchFails() throws Exception {
+      final List<String> names = ImmutableList.of("m1", "m2", "m3");
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.up(EasyMock.<Collection<String>>anyObject(), EasyMock.eq("libvirt")))
+            .andThrow(new IllegalStateException("m2 failed to boot"));
+      EasyMock.expect(vagrant.status(EasyMock.<Collection<String>>anyObject()))
+            .andReturn(ImmutableMap.of("m1", Status.RUNNING, "m2", Status.PENDING, "m3", Status.RUNNING));
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(PATH)).andReturn(vagrant);
+      EasyMock.replay(vagrant, factory);
+
+      final VagrantGroupStarter starter = new VagrantGroupStarter(factory, new VagrantCommandScheduler(""), 2000);
+      starter.expect(PATH, "libvirt", names.size());
+      ExecutorService executor = Executors.newFixedThreadPool(names.size());
+      try {
+         List<Future<String>> outputs = Lists.newArrayList();
+         for (final String name : names) {
+            outputs.add(executor.submit(new Callable<String>() {
+               @Override
+               public String call() {
+                  return starter.up(PATH, name, "libvirt");
+               }
+            }));
+         }
+         assertEquals(outputs.get(0).get(), "");
+         try {
+            outputs.get(1).get();
+            fail("Starting m2 should have failed");
+         } catch (ExecutionException e) {
+            assertEquals(e.getCause().getMessage(), "m2 failed to boot");
+         }
+         assertEquals(outputs.get(2).get(), "");
+      } finally {
+         executor.shutdown();
+      }
+
+      EasyMock.verify(vagrant, factory);
+   }
+
+   @Test
+   public void testRunningMachinesGetTheirOutputWhenBatchFails() throws Exception {
+      final List<String> names = ImmutableList.of("m1", "m2");
+      String output = "1,m1,ui,output,==> m1: output of m1\n"
+            + "2,m2,ui,error,==> m2: failed to boot\n";
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.up(EasyMock.<Collection<String>>anyObject(), EasyMock.eq("libvirt")))
+            .andThrow(new VagrantCommandException("m2 failed to boot", output));
+      EasyMock.expect(vagrant.status(EasyMock.<Collection<String>>anyObject()))
+            .andReturn(ImmutableMap.of("m1", Status.RUNNING, "m2", Status.PENDING));
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(PATH)).andReturn(vagrant);
+      EasyMock.replay(vagrant, factory);
+
+      final VagrantGroupStarter starter = new VagrantGroupStarter(factory, new VagrantCommandScheduler(""), 2000);
+      starter.expect(PATH, "libvirt", names.size());
+      ExecutorService executor = Executors.newFixedThreadPool(names.size());
+      try {
+         List<Future<String>> outputs = Lists.newArrayList();
+         for (final String name : names) {
+            outputs.add(executor.submit(new Callable<String>() {
+               @Override
+               public String call() {
+                  return starter.up(PATH, name, "libvirt");
+               }
+            }));
+         }
+         // The running machine gets its part of the output of the failed command
+         assertEquals(outputs.get(0).get(), "1,m1,ui,output,==> m1: output of m1\n");
+         try {
+            outputs.get(1).get();
+            fail("Starting m2 should have failed");
+         } catch (ExecutionException e) {
+            assertEquals(e.getCause().getMessage(), "m2 failed to boot");
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      EasyMock.verify(vagrant, factory);
+   }
+
+   @Test
+   public void testCancelledMachineNotAwaited() throws Exception {
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.up("m1", "libvirt")).andReturn("output");
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(PATH)).andReturn(vagrant);
+      EasyMock.replay(vagrant, factory);
+
+      final VagrantGroupStarter starter = new VagrantGroupStarter(factory, new VagrantCommandScheduler(""), 60000);
+      starter.expect(PATH, "libvirt", 2);
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         Future<String> output = executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+               return starter.up(PATH, "m1", "libvirt");
+            }
+         });
+         starter.cancel(PATH, "libvirt", 1);
+         assertEquals(output.get(10, TimeUnit.SECONDS), "output");
+      } finally {
+         executor.shutdown();
+      }
+
+      EasyMock.verify(vagrant, factory);
+   }
+
+   @Test
+   public void testMissingMachinesAwaitedForTheBatchWindow() {
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.up("m1", "libvirt")).andReturn("out1");
+      EasyMock.expect(vagrant.up("m2", "libvirt")).andReturn("out2");
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(PATH)).andReturn(vagrant).times(2);
+      EasyMock.replay(vagrant, factory);
+
+      VagrantGroupStarter starter = new VagrantGroupStarter(factory, new VagrantCommandScheduler(""), 2000);
+      starter.expect(PATH, "libvirt", 2);
+      assertEquals(starter.up(PATH, "m1", "libvirt"), "out1");
+      // The machine that didn't join in time is no longer awaited
+      long start = System.nanoTime();
+      assertEquals(starter.up(PATH, "m2", "libvirt"), "out2");
+      assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2000));
+
+      EasyMock.verify(vagrant, factory);
+   }
+
+   @Test
+   public void testUnannouncedMachineNotDelayed() {
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.up("m1", "virtualbox")).andReturn("output");
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(PATH)).andReturn(vagrant);
+      EasyMock.replay(vagrant, factory);
+
+      VagrantGroupStarter starter = new VagrantGroupStarter(factory, new VagrantCommandScheduler(""), 60000);
+      long start = System.nanoTime();
+      assertEquals(starter.up(PATH, "m1", "virtualbox"), "output");
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+
+      EasyMock.verify(vagrant, factory);
+   }
+}
@@ -27,6 +27,7 @@ import org.easymock.EasyMock;
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.HardwareBuilder;
 import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.NodeMetadata.Status;
 import org.jclouds.compute.domain.Processor;
 import org.jclouds.vagrant.domain.VagrantNode;
 import org.jclouds.vagrant.reference.VagrantConstants;
@@ -37,6 +38,7 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.io.Files;
 
@@ -49,7 +51,7 @@ public class VagrantNodeLoaderTest {
                 VagrantConstants.CONFIG_MEMORY, "1024");
         Hardware expectedHardware = new HardwareBuilder().ids("automatic:cores=2.0;ram=1024").ram(1024).processor(new Processor(2.0, 1)).build();
 
-        doTest(hardwareConfig, expectedHardware);
+        doTest(hardwareConfig, expectedHardware, false, false);
     }
 
     @Test
@@ -58,10 +60,30 @@ public class VagrantNodeLoaderTest {
                 VagrantConstants.CONFIG_HARDWARE_ID, "small");
         Hardware expectedHardware = new HardwareBuilder().ids("small").ram(1024).processor(new Processor(1.0, 1)).build();
 
-        doTest(hardwareConfig, expectedHardware);
+        doTest(hardwareConfig, expectedHardware, false, false);
     }
 
-    protected void doTest(ImmutableMap<String, Object> hardwareConfig, Hardware expectedHardware) throws IOException {
+    @Test
+    public void testSavedMachine() throws Exception {
+        ImmutableMap<String, Object> hardwareConfig = ImmutableMap.<String, Object>of(
+                VagrantConstants.CONFIG_HARDWARE_ID, "small");
+        Hardware expectedHardware = new HardwareBuilder().ids("small").ram(1024).processor(new Processor(1.0, 1)).build();
+
+        doTest(hardwareConfig, expectedHardware, true, false);
+    }
+
+    @Test
+    public void testUnreadableMetadata() throws Exception {
+        ImmutableMap<String, Object> hardwareConfig = ImmutableMap.<String, Object>of(
+                VagrantConstants.CONFIG_HARDWARE_ID, "small");
+        Hardware expectedHardware = new HardwareBuilder().ids("small").ram(1024).processor(new Processor(1.0, 1)).build();
+
+        // The machine is still loaded, like one created before its metadata was saved
+        doTest(hardwareConfig, expectedHardware, false, true);
+    }
+
+    protected void doTest(ImmutableMap<String, Object> hardwareConfig, Hardware expectedHardware, boolean saved,
+            boolean unreadableMetadata) throws IOException {
         String groupName = "groupId";
         String machineName = "machineId";
 
@@ -71,6 +93,10 @@ public class VagrantNodeLoaderTest {
         machines.mkdirs();
         File machine = new File(machines, machineName + VagrantConstants.MACHINES_CONFIG_EXTENSION);
         Files.write("dummy", machine, Charsets.UTF_8);
+        if (unreadableMetadata) {
+            Files.write("{\"networks\": [", new File(machines, machineName + VagrantConstants.MACHINES_METADATA_EXTENSION),
+                    Charsets.UTF_8);
+        }
 
         MachineConfig config = EasyMock.createMock(MachineConfig.class);
         String imageId = "centos/7";
@@ -95,21 +121,36 @@ public class VagrantNodeLoaderTest {
 
         EasyMock.replay(config, factory, imageSupplier, image, hardwareSupplier);
 
-        VagrantExistingMachines nodeLoader = new VagrantExistingMachines(home.getAbsolutePath(), factory, imageSupplier, hardwareSupplier);
-        Collection<VagrantNode> nodes = nodeLoader.get();
-
-        VagrantNode actualNode = Iterables.getOnlyElement(nodes);
-        VagrantNode expectedNode = VagrantNode.builder()
+        VagrantNode.Builder expectedNodeBuilder = VagrantNode.builder()
                 .setPath(group)
                 .setId(group.getName() + "/" + machineName)
                 .setGroup(group.getName())
                 .setName(machineName)
                 .setImage(image)
-                .setHardware(expectedHardware)
-                .setNetworks(ImmutableList.<String>of())
-                .setHostname("unknown")
-                .build();
-        assertEquals(actualNode, expectedNode);
+                .setHardware(expectedHardware);
+        MachineMetadata.Factory metadataFactory = new MachineMetadata.Factory();
+        if (saved) {
+            expectedNodeBuilder
+                    .setNetworks(ImmutableList.of("172.28.128.3"))
+                    .setHostname("vagrant-machine")
+                    .setTags(ImmutableSet.of("tag"))
+                    .setUserMetadata(ImmutableMap.of("key", "value"));
+            VagrantNode savedNode = expectedNodeBuilder.build();
+            savedNode.setMachineState(Status.RUNNING, 1000L);
+            metadataFactory.newInstance(savedNode).save(savedNode);
+        } else {
+            expectedNodeBuilder
+                    .setNetworks(ImmutableList.<String>of())
+                    .setHostname("unknown");
+        }
+
+        VagrantExistingMachines nodeLoader = new VagrantExistingMachines(home.getAbsolutePath(), factory,
+                metadataFactory, imageSupplier, hardwareSupplier);
+        Collection<VagrantNode> nodes = nodeLoader.get();
+
+        VagrantNode actualNode = Iterables.getOnlyElement(nodes);
+        assertEquals(actualNode, expectedNodeBuilder.build());
+        assertEquals(actualNode.machineState(), saved ? Status.RUNNING : Status.UNRECOGNIZED);
         VagrantUtils.deleteFolder(home);
     }
 
@@ -20,7 +20,9 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 
 import java.io.File;
+import java.util.Collection;
 
+import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.HardwareBuilder;
@@ -33,6 +35,7 @@ import org.jclouds.vagrant.domain.VagrantNode;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 public class VagrantNodeRegistryTest {
 
@@ -40,9 +43,10 @@ public class VagrantNodeRegistryTest {
    public void testNodeRegistry() {
       VagrantExistingMachines loader = EasyMock.createMock(VagrantExistingMachines.class);
       EasyMock.expect(loader.get()).andReturn(ImmutableList.<VagrantNode>of());
-      EasyMock.replay(loader);
+      VagrantStatusRefresher statusRefresher = EasyMock.createNiceMock(VagrantStatusRefresher.class);
+      EasyMock.replay(loader, statusRefresher);
 
-      VagrantNodeRegistry registry = new VagrantNodeRegistry(loader);
+      VagrantNodeRegistry registry = new VagrantNodeRegistry(loader, statusRefresher);
       OperatingSystem os = new OperatingSystem(OsFamily.UNRECOGNIZED, "Jclouds OS", "10", "x64", "Jclouds Test Image", true);
       Image image = new ImageBuilder()
             .ids("jclouds/box")
@@ -69,4 +73,36 @@ public class VagrantNodeRegistryTest {
       registry.onTerminated(node);
       assertNull(registry.get(node.id()));
    }
+
+   @Test
+   public void testRefreshGroup() {
+      VagrantNode node1 = newNode("group1", "node1");
+      VagrantNode node2 = newNode("group1", "node2");
+      VagrantNode other = newNode("group2", "node1");
+
+      VagrantExistingMachines loader = EasyMock.createMock(VagrantExistingMachines.class);
+      EasyMock.expect(loader.get()).andReturn(ImmutableList.of(node1, node2, other));
+      VagrantStatusRefresher statusRefresher = EasyMock.createMock(VagrantStatusRefresher.class);
+      Capture<Collection<VagrantNode>> refreshed = new Capture<Collection<VagrantNode>>();
+      statusRefresher.refresh(EasyMock.capture(refreshed));
+      EasyMock.replay(loader, statusRefresher);
+
+      new VagrantNodeRegistry(loader, statusRefresher).refresh("group1");
+
+      assertEquals(ImmutableSet.copyOf(refreshed.getValue()), ImmutableSet.of(node1, node2));
+      EasyMock.verify(statusRefresher);
+   }
+
+   private static VagrantNode newNode(String group, String name) {
+      return VagrantNode.builder()
+            .setPath(new File("/path/to/" + group))
+            .setId(group + "/" + name)
+            .setGroup(group)
+            .setName(name)
+            .setImage(EasyMock.createMock(Image.class))
+            .setNetworks(ImmutableList.<String>of())
+            .setHardware(EasyMock.createMock(Hardware.class))
+            .setHostname(name)
+            .build();
+   }
 }
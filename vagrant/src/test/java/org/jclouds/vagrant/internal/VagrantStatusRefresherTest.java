@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.domain.VagrantNode;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+public class VagrantStatusRefresherTest {
+
+   @Test
+   public void testRefreshesStaleMachinesOnly() {
+      File group = Files.createTempDir();
+      new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).mkdirs();
+
+      Image image = EasyMock.createMock(Image.class);
+      EasyMock.expect(image.getUserMetadata()).andReturn(ImmutableMap.of(VagrantConstants.USER_META_PROVIDER, "virtualbox")).anyTimes();
+      VagrantNode stale1 = newNode(group, "m1", image);
+      stale1.setMachineState(Status.RUNNING, 0);
+      VagrantNode stale2 = newNode(group, "m2", image);
+      stale2.setMachineState(Status.UNRECOGNIZED, 0);
+      VagrantNode fresh = newNode(group, "m3", image);
+      fresh.setMachineState(Status.RUNNING);
+
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.status(ImmutableList.of("m1", "m2")))
+            .andReturn(ImmutableMap.of("m1", Status.SUSPENDED, "m2", Status.RUNNING));
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(group.getAbsoluteFile())).andReturn(vagrant);
+      EasyMock.replay(image, vagrant, factory);
+
+      MachineMetadata.Factory metadataFactory = new MachineMetadata.Factory();
+      VagrantStatusRefresher refresher = new VagrantStatusRefresher(factory, new VagrantCommandScheduler(""),
+            metadataFactory, sameThreadExecutor(), 60);
+      refresher.refreshStale(ImmutableList.of(stale1, stale2, fresh));
+
+      assertEquals(stale1.machineState(), Status.SUSPENDED);
+      assertEquals(stale2.machineState(), Status.RUNNING);
+      assertEquals(fresh.machineState(), Status.RUNNING);
+      assertTrue(stale1.machineStateTimestamp() > 0);
+      assertEquals(metadataFactory.newInstance(stale1).load().get().state(), Status.SUSPENDED);
+      EasyMock.verify(vagrant, factory);
+      VagrantUtils.deleteFolder(group);
+   }
+
+   @Test
+   public void testRefreshesGroupOncePerTtl() {
+      File group = Files.createTempDir();
+      new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).mkdirs();
+
+      Image image = EasyMock.createMock(Image.class);
+      EasyMock.expect(image.getUserMetadata()).andReturn(ImmutableMap.of(VagrantConstants.USER_META_PROVIDER, "virtualbox")).anyTimes();
+      VagrantNode node = newNode(group, "m1", image);
+      node.setMachineState(Status.RUNNING, 0);
+
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.status(ImmutableList.of("m1"))).andReturn(ImmutableMap.<String, Status>of());
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(group.getAbsoluteFile())).andReturn(vagrant);
+      EasyMock.replay(image, vagrant, factory);
+
+      VagrantStatusRefresher refresher = new VagrantStatusRefresher(factory, new VagrantCommandScheduler(""),
+            new MachineMetadata.Factory(), sameThreadExecutor(), 60);
+      // The machine is not reported so its state stays stale, still vagrant is not asked again within the TTL
+      refresher.refreshStale(ImmutableList.of(node));
+      refresher.refreshStale(ImmutableList.of(node));
+
+      assertEquals(node.machineState(), Status.RUNNING);
+      EasyMock.verify(vagrant, factory);
+      VagrantUtils.deleteFolder(group);
+   }
+
+   @Test
+   public void testRefresh() {
+      File group = Files.createTempDir();
+      new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).mkdirs();
+
+      Image image = EasyMock.createMock(Image.class);
+      EasyMock.expect(image.getUserMetadata()).andReturn(ImmutableMap.of(VagrantConstants.USER_META_PROVIDER, "virtualbox")).anyTimes();
+      VagrantNode node = newNode(group, "m1", image);
+      node.setMachineState(Status.RUNNING, 0);
+
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.status(ImmutableList.of("m1"))).andReturn(ImmutableMap.of("m1", Status.SUSPENDED));
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(group.getAbsoluteFile())).andReturn(vagrant);
+      EasyMock.replay(image, vagrant, factory);
+
+      // Refreshing explicitly doesn't depend on the TTL
+      VagrantStatusRefresher refresher = new VagrantStatusRefresher(factory, new VagrantCommandScheduler(""),
+            new MachineMetadata.Factory(), sameThreadExecutor(), 0);
+      refresher.refresh(ImmutableList.of(node));
+
+      assertEquals(node.machineState(), Status.SUSPENDED);
+      EasyMock.verify(vagrant, factory);
+      VagrantUtils.deleteFolder(group);
+   }
+
+   @Test
+   public void testSkipsDestroyedMachines() {
+      final File group = Files.createTempDir();
+      new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).mkdirs();
+
+      Image image = EasyMock.createMock(Image.class);
+      EasyMock.expect(image.getUserMetadata()).andReturn(ImmutableMap.of(VagrantConstants.USER_META_PROVIDER, "virtualbox")).anyTimes();
+      final VagrantNode terminated = newNode(group, "m1", image);
+      terminated.setMachineState(Status.RUNNING, 0);
+      final VagrantNode deleted = newNode(group, "m2", image);
+      deleted.setMachineState(Status.RUNNING, 0);
+
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.status(ImmutableList.of("m1", "m2"))).andAnswer(new IAnswer<Map<String, Status>>() {
+         @Override
+         public Map<String, Status> answer() {
+            // The machines are destroyed while the status command is running
+            terminated.setMachineState(Status.TERMINATED, 0);
+            VagrantUtils.deleteFiles(new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER), "m");
+            return ImmutableMap.of("m1", Status.RUNNING, "m2", Status.RUNNING);
+         }
+      });
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(group.getAbsoluteFile())).andReturn(vagrant);
+      EasyMock.replay(image, vagrant, factory);
+
+      VagrantStatusRefresher refresher = new VagrantStatusRefresher(factory, new VagrantCommandScheduler(""),
+            new MachineMetadata.Factory(), sameThreadExecutor(), 0);
+      refresher.refresh(ImmutableList.of(terminated, deleted));
+
+      assertEquals(terminated.machineState(), Status.TERMINATED);
+      assertEquals(deleted.machineStateTimestamp(), 0);
+      assertEquals(new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).list().length, 0);
+      EasyMock.verify(vagrant, factory);
+      VagrantUtils.deleteFolder(group);
+   }
+
+   @Test
+   public void testKeepsStateSetDuringRefresh() {
+      File group = Files.createTempDir();
+      new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).mkdirs();
+
+      Image image = EasyMock.createMock(Image.class);
+      EasyMock.expect(image.getUserMetadata()).andReturn(ImmutableMap.of(VagrantConstants.USER_META_PROVIDER, "virtualbox")).anyTimes();
+      final VagrantNode node = newNode(group, "m1", image);
+      node.setMachineState(Status.RUNNING, 0);
+
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.status(ImmutableList.of("m1"))).andAnswer(new IAnswer<Map<String, Status>>() {
+         @Override
+         public Map<String, Status> answer() {
+            // The machine is halted while the status command is running
+            node.setMachineState(Status.SUSPENDED, System.currentTimeMillis() + 1);
+            return ImmutableMap.of("m1", Status.RUNNING);
+         }
+      });
+      VagrantApiFacade.Factory factory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(factory.create(group.getAbsoluteFile())).andReturn(vagrant);
+      EasyMock.replay(image, vagrant, factory);
+
+      VagrantStatusRefresher refresher = new VagrantStatusRefresher(factory, new VagrantCommandScheduler(""),
+            new MachineMetadata.Factory(), sameThreadExecutor(), 0);
+      refresher.refresh(ImmutableList.of(node));
+
+      assertEquals(node.machineState(), Status.SUSPENDED);
+      EasyMock.verify(vagrant, factory);
+      VagrantUtils.deleteFolder(group);
+   }
+
+   private static VagrantNode newNode(File group, String name, Image image) {
+      try {
+         Files.touch(new File(new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER),
+               name + VagrantConstants.MACHINES_CONFIG_EXTENSION));
+      } catch (IOException e) {
+         throw new IllegalStateException(e);
+      }
+      return VagrantNode.builder()
+            .setPath(group)
+            .setId(group.getName() + "/" + name)
+            .setGroup(group.getName())
+            .setName(name)
+            .setImage(image)
+            .setHardware(EasyMock.createMock(Hardware.class))
+            .setNetworks(ImmutableList.<String>of())
+            .setHostname(name)
+            .build();
+   }
+
+}